@@ -0,0 +1,28 @@
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+ 
+def buildLog = new File( basedir, 'build.log' ).readLines()
+
+def forked = buildLog.dropWhile{ !it.contains( ':jdkinternals (forked) @' ) }.takeWhile{ !it.contains( ':jdkinternals (in-process) @' ) }
+assert forked.any{ it =~ /\[DEBUG\] Executing: .*jdeps(\.exe)? / }
+assert !forked.any{ it.contains( 'Running jdeps in-process' ) }
+
+def inProcess = buildLog.dropWhile{ !it.contains( ':jdkinternals (in-process) @' ) }
+assert inProcess.any{ it.contains( '[DEBUG] Running jdeps in-process through the ToolProvider API' ) }
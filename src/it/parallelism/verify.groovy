@@ -0,0 +1,29 @@
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+ 
+def buildLog = new File( basedir, 'build.log' ).readLines()
+
+assert buildLog.any{ it.contains( '[DEBUG] Analyzing the archives in 2 shards' ) }
+assert buildLog.count{ it =~ /\[DEBUG\] Executing: .*jdeps(\.exe)? / } == 2
+
+// the output of both shards is merged
+assert buildLog.any{ it =~ /^\s*classes -> java\.base/ }
+assert buildLog.any{ it =~ /^\s*guava-32\.0\.0-jre\.jar -> java\.base/ }
+assert buildLog.dropWhile{ !(it =~ /Found offending packages\:$/) }.getAt(1) ==~ /\[ERROR\]\s+sun\.misc -> JDK internal API \(jdk\.unsupported\)/
@@ -0,0 +1,30 @@
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+ 
+assert new File( basedir, 'target/jdeps/summary.dot' ).isFile()
+
+def buildLog = new File( basedir, 'build.log' ).readLines()
+assert buildLog.any{ it =~ /\[INFO\] Indexed \d+ dependencies in \d+ ms/ }
+
+def dependencies = buildLog.dropWhile{ !it.contains( 'direct dependencies of org.apache.maven.plugins.jdeps.its:' ) }
+assert dependencies.any{ it.trim() == 'java.util (java.base)' }
+
+def dependents = buildLog.dropWhile{ !it.contains( 'direct dependents of java.util:' ) }
+assert dependents.getAt(1).trim() == 'org.apache.maven.plugins.jdeps.its (classes)'
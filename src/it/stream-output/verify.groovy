@@ -0,0 +1,31 @@
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+ 
+def buildLog = new File( basedir, 'build.log' ).readLines()
+
+// the output is logged as a single block, with the level on the line before
+def block = buildLog.dropWhile{ !it.contains( ':jdkinternals (block) @' ) }.takeWhile{ !it.contains( ':jdkinternals (streamed) @' ) }
+assert block.any{ it ==~ /classes -> java\.base/ }
+assert !block.any{ it ==~ /\[INFO\] classes -> java\.base/ }
+
+// every line is logged on its own
+def streamed = buildLog.dropWhile{ !it.contains( ':jdkinternals (streamed) @' ) }
+assert streamed.any{ it ==~ /\[INFO\] classes -> java\.base/ }
+assert streamed.any{ it =~ /\[INFO\]\s+org\.apache\.maven\.plugins\.jdeps\.its\s+-> java\.util\s+java\.base/ }
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.toolchain.Toolchain;
+import org.apache.maven.toolchain.ToolchainManager;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+
+/**
+ * A project with synthetic artifacts in 100 groups, and a stub jdeps which prints the output of jdeps 11 to 21 for
+ * Guava, for the benchmarks of the goal.
+ */
+final class BenchmarkProject {
+    private final Path tempDirectory;
+
+    final BenchmarkMojo mojo;
+
+    BenchmarkProject(int artifactCount) throws Exception {
+        tempDirectory = Files.createTempDirectory("jdeps-benchmark");
+        Path classesDirectory = Files.createDirectories(tempDirectory.resolve("classes"));
+
+        List<Artifact> artifacts = new ArrayList<>(artifactCount);
+        List<Path> classPath = new ArrayList<>(artifactCount);
+        for (int i = 0; i < artifactCount; i++) {
+            String groupId = "org.example.group" + (i % 100);
+            String artifactId = "artifact" + i;
+            Path file = tempDirectory.resolve("repository/" + groupId + '/' + artifactId + "-1.0.jar");
+            Artifact artifact = new DefaultArtifact(
+                    groupId,
+                    artifactId,
+                    "1.0",
+                    Artifact.SCOPE_COMPILE,
+                    "jar",
+                    null,
+                    new DefaultArtifactHandler("jar"));
+            artifact.setFile(file.toFile());
+            artifacts.add(artifact);
+            classPath.add(file);
+        }
+
+        mojo = new BenchmarkMojo(
+                new StubToolchainManager(createStubJDeps()), classesDirectory, classPath, artifacts);
+        mojo.setLog(new QuietLog());
+        set("session", newSession());
+        set("outputDirectory", tempDirectory.toFile());
+        set("engine", "jdeps");
+        set("inProcess", false);
+        set("parallelism", 1);
+        set(
+                "dependenciesToAnalyzeIncludes",
+                Arrays.asList("org.example.group1*:*", "org.example.group42:*", "*:artifact7*"));
+        set("dependenciesToAnalyzeExcludes", Arrays.asList("org.example.group13:*", "*:artifact77"));
+    }
+
+    private Path createStubJDeps() throws IOException {
+        Path bin = Files.createDirectories(tempDirectory.resolve("jdk/bin"));
+        Path output = bin.resolve("jdeps-output.txt");
+        try (InputStream in = BenchmarkProject.class.getResourceAsStream("/jdeps-output/jdk11.txt")) {
+            Files.copy(in, output, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // the java launcher runs jdeps when an argument file is used, which requires a JDK with modules, on Windows
+        // this stub can't stand in for java.exe though
+        Files.createDirectories(tempDirectory.resolve("jdk/lib"));
+        Files.createFile(tempDirectory.resolve("jdk/lib/jrt-fs.jar"));
+        createStubExecutable(bin, "java", output);
+        return createStubExecutable(bin, "jdeps", output);
+    }
+
+    private static Path createStubExecutable(Path bin, String name, Path output) throws IOException {
+        Path executable;
+        if (SystemUtils.IS_OS_WINDOWS) {
+            executable = bin.resolve(name + ".cmd");
+            Files.write(executable, Collections.singletonList("@type \"" + output + '"'), StandardCharsets.UTF_8);
+        } else {
+            executable = bin.resolve(name);
+            Files.write(executable, Arrays.asList("#!/bin/sh", "cat '" + output + "'"), StandardCharsets.UTF_8);
+            executable.toFile().setExecutable(true);
+        }
+        return executable;
+    }
+
+    void set(String name, Object value) throws ReflectiveOperationException {
+        Field field = AbstractJDepsMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+    void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(tempDirectory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static MavenSession newSession() {
+        return new MavenSession(
+                null,
+                new DefaultRepositorySystemSession(),
+                new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult());
+    }
+
+    static final class BenchmarkMojo extends AbstractJDepsMojo {
+        private final Path classesDirectory;
+
+        private final Collection<Path> classPath;
+
+        private final Collection<Artifact> artifacts;
+
+        BenchmarkMojo(
+                ToolchainManager toolchainManager,
+                Path classesDirectory,
+                Collection<Path> classPath,
+                Collection<Artifact> artifacts) {
+            super(toolchainManager);
+            this.classesDirectory = classesDirectory;
+            this.classPath = classPath;
+            this.artifacts = artifacts;
+        }
+
+        @Override
+        protected String getClassesDirectory() {
+            return classesDirectory.toString();
+        }
+
+        @Override
+        protected Collection<Path> getClassPath() {
+            return classPath;
+        }
+
+        @Override
+        protected Collection<Artifact> getArtifacts() {
+            return artifacts;
+        }
+    }
+
+    private static final class StubToolchainManager implements ToolchainManager, Toolchain {
+        private final Path jdeps;
+
+        StubToolchainManager(Path jdeps) {
+            this.jdeps = jdeps;
+        }
+
+        @Override
+        public Toolchain getToolchainFromBuildContext(String type, MavenSession session) {
+            return this;
+        }
+
+        @Override
+        public List<Toolchain> getToolchains(MavenSession session, String type, Map<String, String> requirements) {
+            return Collections.singletonList(this);
+        }
+
+        @Override
+        public String getType() {
+            return "jdk";
+        }
+
+        @Override
+        public String findTool(String toolName) {
+            return jdeps.toString();
+        }
+
+        @Override
+        public String toString() {
+            return "JDK[" + jdeps.getParent().getParent() + "]";
+        }
+    }
+
+    /**
+     * Keeps the output of jdeps and the offending packages it reports out of the benchmark output.
+     */
+    private static final class QuietLog extends SystemStreamLog {
+        @Override
+        public void debug(CharSequence content) {}
+
+        @Override
+        public void info(CharSequence content) {}
+
+        @Override
+        public void warn(CharSequence content) {}
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.util.cli.Commandline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times the work the plugin does around jdeps for large projects: selecting the dependencies to analyze from thousands
+ * of artifacts, and assembling the command line with a classpath of thousands of entries. A complete execution of the
+ * goal is timed by {@link JDepsMojoExecutionBenchmark}.
+ * <p>
+ * Run with {@code mvn verify -Pjmh -DskipTests -Djmh.include=JDepsMojoBenchmark}, the results are written to
+ * {@code target/jmh-result.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JDepsMojoBenchmark {
+
+    @Param({"1000", "10000"})
+    public int artifactCount;
+
+    private BenchmarkProject project;
+
+    private Set<Path> dependenciesToAnalyze;
+
+    @Setup
+    public void createProject() throws Exception {
+        project = new BenchmarkProject(artifactCount);
+        dependenciesToAnalyze = project.mojo.getDependenciesToAnalyze(false);
+    }
+
+    @TearDown
+    public void deleteProject() throws IOException {
+        project.delete();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Set<Path> getDependenciesToAnalyze() throws Exception {
+        return project.mojo.getDependenciesToAnalyze(false);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String[] addJDepsOptions() throws Exception {
+        Commandline cmd = new Commandline();
+        project.mojo.addJDepsOptions(cmd, dependenciesToAnalyze);
+        return cmd.getArguments();
+    }
+}
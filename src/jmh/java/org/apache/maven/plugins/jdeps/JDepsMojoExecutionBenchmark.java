@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times a complete execution of the goal for a project of 1000 artifacts, with a stub jdeps which prints recorded
+ * output, so the score doesn't depend on the JDK. The project is smaller than those of {@link JDepsMojoBenchmark}, as
+ * a classpath of 10000 artifacts exceeds the maximum length of an argument unless it's passed in an argument file.
+ * <p>
+ * Run with {@code mvn verify -Pjmh -DskipTests -Djmh.include=JDepsMojoExecutionBenchmark}, the results are written to
+ * {@code target/jmh-result.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JDepsMojoExecutionBenchmark {
+
+    @Param({"false", "true"})
+    public boolean argumentFile;
+
+    private BenchmarkProject project;
+
+    @Setup
+    public void createProject() throws Exception {
+        project = new BenchmarkProject(1000);
+        project.set("argumentFile", argumentFile);
+    }
+
+    @TearDown
+    public void deleteProject() throws IOException {
+        project.delete();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        project.mojo.execute();
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps.consumers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses recorded jdeps output one line per operation, so the score is in lines per second and
+ * {@code gc.alloc.rate.norm} of the gc profiler is the number of bytes allocated per line. The regular expressions the
+ * consumer used before serve as a baseline.
+ * <p>
+ * The output of {@code jdeps -verbose:package -R -cp failureaccess-1.0.1.jar guava-32.1.3-jre.jar} was recorded with
+ * JDK 8, 11, 17 and 21. JDK 11, 17 and 21 print the same output, one line per dependency, so only that of JDK 11 is
+ * kept. JDK 8 prints a line per origin followed by a line per dependency, most of them without a module, the location
+ * of the JDK is replaced by {@code <java.home>}. More outputs can be added to {@code src/jmh/resources/jdeps-output}
+ * and {@link #output}.
+ * <p>
+ * Run with {@code mvn verify -Pjmh -DskipTests}, the results are written to {@code target/jmh-result.json}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JDepsConsumerBenchmark {
+
+    private static final Pattern JDKINTERNALAPI =
+            Pattern.compile(".+->\\s([a-z\\.]+)\\s+(JDK (?:removed )?internal API.*)");
+
+    private static final Pattern PROFILE = Pattern.compile("\\s+->\\s([a-z\\.]+)\\s+(\\S+)");
+
+    @Param({"jdk8", "jdk11"})
+    public String output;
+
+    private String[] lines;
+
+    private int index;
+
+    private JDepsConsumer consumer;
+
+    private Map<String, String> offendingPackages;
+
+    private Map<String, String> profiles;
+
+    @Setup
+    public void readOutput() throws IOException {
+        String resource = "/jdeps-output/" + output + ".txt";
+        try (InputStream in = JDepsConsumerBenchmark.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Missing " + resource);
+            }
+            List<String> recorded = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                    .lines()
+                    .collect(Collectors.toList());
+            lines = recorded.toArray(new String[0]);
+        }
+
+        // the output itself isn't kept, it would dominate the allocations
+        consumer = new JDepsConsumer(null, false);
+        offendingPackages = new HashMap<>();
+        profiles = new HashMap<>();
+    }
+
+    @Benchmark
+    public JDepsConsumer consumeLine() {
+        consumer.consumeLine(nextLine());
+        return consumer;
+    }
+
+    @Benchmark
+    public Map<String, String> regularExpressions() {
+        String line = nextLine();
+        Matcher matcher = JDKINTERNALAPI.matcher(line);
+        if (matcher.matches()) {
+            offendingPackages.put(matcher.group(1), matcher.group(2));
+            return offendingPackages;
+        }
+        matcher = PROFILE.matcher(line);
+        if (matcher.matches()) {
+            profiles.put(matcher.group(1), matcher.group(2));
+        }
+        return profiles;
+    }
+
+    private String nextLine() {
+        String line = lines[index];
+        if (++index == lines.length) {
+            index = 0;
+        }
+        return line;
+    }
+}
@@ -20,19 +20,31 @@ package org.apache.maven.plugins.jdeps;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemUtils;
@@ -41,15 +53,16 @@ import org.apache.maven.artifact.ArtifactUtils;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Count;
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Phase;
 import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.toolchain.Toolchain;
 import org.apache.maven.toolchain.ToolchainManager;
-import org.codehaus.plexus.util.MatchPatterns;
-import org.codehaus.plexus.util.cli.CommandLineException;
 import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.codehaus.plexus.util.cli.Commandline;
 
@@ -77,6 +90,10 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
 
     /**
      * Specifies the version when processing multi-release JAR files version should be an integer >=9 or base.
+     * Since 3.2.1 a comma separated list of versions, or {@code all} for the base version and every version present
+     * in {@code META-INF/versions} of the analyzed archives. Each version is analyzed by jdeps executions of its own,
+     * running concurrently, and offending packages are reported per version. The results of several versions are
+     * not reused by later builds, and their DOT files are written to a subdirectory of {@code dotOutput} per version.
      *
      * @since 3.1.1
      */
@@ -91,6 +108,19 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
     @Parameter(defaultValue = "true", property = "jdeps.includeClasspath")
     private boolean includeClasspath;
 
+    /**
+     * Whether to pass the dependencies which are modules on the module path instead of the classpath, so modular
+     * projects are analyzed as modules. The modules are found with the module graph of the classpath, which is cached
+     * in {@code analysisCacheDirectory}, and only those needed to resolve the analyzed modules are passed to jdeps.
+     * Dependencies which aren't modules remain on the classpath, analyzed modular JAR files are analyzed as root
+     * modules. The results are reported per module instead of per archive, so they can't be reused by
+     * {@code analysisCache}, {@code incremental} or {@code shareResults}. Requires jdeps of JDK 9 or later.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.useModulePath")
+    private boolean useModulePath;
+
     /**
      * Additional dependencies which should be analyzed besides the classes.
      * Specify as {@code groupId:artifactId}, allowing ant-pattern.
@@ -191,6 +221,280 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
     @Parameter(defaultValue = "false", property = "jdeps.jdkinternals")
     private boolean jdkinternals;
 
+    /**
+     * Whether to execute jdeps in-process through the {@code java.util.spi.ToolProvider} API instead of forking the
+     * jdeps executable. Only applies when the JDK running Maven provides the API and no other JDK has been selected by
+     * a toolchain, otherwise jdeps is forked anyway. In-process jdeps saves starting a JVM per execution, but shares
+     * the memory of Maven and can't be interrupted.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.inProcess")
+    private boolean inProcess;
+
+    /**
+     * Whether to cache the results of analyzed dependency JARs, so unchanged JARs aren't analyzed again by later builds.
+     * JARs are identified by the hash of their content, and results are only reused for the same JDK and the same
+     * analysis options. The cache isn't used together with {@code dotOutput}, {@code recursive} or {@code module},
+     * because their output can't be attributed to a single JAR, or with {@code graphFile}.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.analysisCache")
+    private boolean analysisCache;
+
+    /**
+     * The directory containing the analysis cache. The bytecode engine also stores the index of the modules of each
+     * JDK here, independent of {@code analysisCache}, and so do {@code classDataSharing} its archives and
+     * {@code useModulePath} its module graphs.
+     *
+     * @see #analysisCache
+     * @since 3.2.1
+     */
+    @Parameter(
+            defaultValue = "${settings.localRepository}/.cache/maven-jdeps-plugin",
+            property = "jdeps.analysisCacheDirectory")
+    private File analysisCacheDirectory;
+
+    /**
+     * The number of jdeps executions to run in parallel. The analyzed archives are split into this many shards, which
+     * are all analyzed with the complete classpath, and the results are merged. Ignored when {@code dotOutput} or
+     * {@code module} is set.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "1", property = "jdeps.parallelism")
+    private int parallelism;
+
+    /**
+     * Whether to only analyze the packages of the classes directory with added, modified or removed class files since
+     * the previous build. The results of the other packages are taken from an index in the build directory. Not used
+     * together with {@code dotOutput}, {@code recursive}, {@code module} or {@code graphFile}, or for classes
+     * directories containing a module descriptor or multi-release classes.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.incremental")
+    private boolean incremental;
+
+    /**
+     * Whether forked jdeps executions start from a class data sharing archive of the classes jdeps loads. The first
+     * execution with a JDK creates the archive in {@code analysisCacheDirectory}, later executions with that JDK map the
+     * classes from it instead of loading them. Requires jdeps of JDK 13 or later, ignored when jdeps runs in-process.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.classDataSharing")
+    private boolean classDataSharing;
+
+    /**
+     * Options for the JVM of forked jdeps executions, passed with {@code -J} to jdeps. E.g.
+     * {@code -XX:TieredStopAtLevel=1} and {@code -XX:+UseSerialGC} make jdeps start and finish faster for most
+     * projects, {@code -Xmx} limits or raises the heap for large classpaths. Ignored when jdeps runs in-process.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "jdeps.jvmOptions")
+    private List<String> jvmOptions;
+
+    /**
+     * Whether forked jdeps executions run in a worker JVM instead of a JVM of their own. A worker is started once per
+     * JDK and {@code jvmOptions}, and runs the executions of all modules of the build, so the classes of jdeps are
+     * loaded and compiled once. Declare the plugin with {@code <extensions>true</extensions>} to have workers exit
+     * promptly at the end of the build. Otherwise they exit once they had no request for {@code workerIdleTimeout}, or
+     * when Maven exits. Requires jdeps of JDK 9 or later, ignored when jdeps runs in-process. {@code argumentFile} and
+     * {@code classDataSharing} don't apply to workers.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.worker")
+    private boolean worker;
+
+    /**
+     * The seconds a {@code worker} waits for requests before it exits, or {@code 0} to keep it until the end of the
+     * build or until Maven exits. An execution after it exited starts a new worker.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "300", property = "jdeps.workerIdleTimeout")
+    private int workerIdleTimeout;
+
+    /**
+     * Whether to stop the analysis as soon as the first offending package is found, if the build fails on warnings.
+     * Other jdeps executions are then stopped, and jdeps isn't executed at all if the analysis cache already has an
+     * offending package. The build fails right away, listing the offending packages found until then. As jdeps only
+     * prints its results once it has analyzed all classes, this mostly pays off with {@code parallelism} and
+     * {@code analysisCache}. Forked jdeps processes are killed and requests of the {@code worker} are cancelled, while
+     * jdeps running in-process can't be interrupted: it only stops once it prints its results.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.failFast")
+    private boolean failFast;
+
+    /**
+     * Whether to log the jdeps output line by line while jdeps is running, instead of as a single block once it has
+     * finished. The complete output is then never kept in memory, which matters for large classpaths or verbose
+     * output. Output of parallel executions may interleave.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.streamOutput")
+    private boolean streamOutput;
+
+    /**
+     * File to write the raw jdeps output to, e.g. to keep verbose output without logging it. Output of parallel
+     * executions is interleaved line by line.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "jdeps.outputFile")
+    private File outputFile;
+
+    /**
+     * How to find the dependencies:
+     * <dl>
+     *   <dt>jdeps</dt><dd>Execute jdeps<dd/>
+     *   <dt>bytecode</dt><dd>Read the class files directly and classify the referenced packages by the modules of the
+     *   JDK. Only dependencies on the JDK are reported. Falls back to jdeps for JDKs without modules and when
+     *   {@code dotOutput}, {@code verbose}, {@code packages}, {@code include}, {@code apiOnly}, {@code profile},
+     *   {@code recursive}, {@code module}, {@code multiRelease} or {@code jdkinternals} is set.<dd/>
+     * </dl>
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "jdeps", property = "jdeps.engine")
+    private String engine;
+
+    /**
+     * Whether executions within the same build share the results of dependency JARs, so a JAR used by many modules is
+     * only analyzed by the first one to need it, also when modules are built in parallel. Results are only shared for
+     * the same JDK and the same analysis options, and not together with {@code dotOutput}, {@code recursive},
+     * {@code module} or {@code graphFile}.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.shareResults")
+    private boolean shareResults;
+
+    /**
+     * Whether the analysis of the test classes reuses the results of the archives analyzed for the main classes, so
+     * only the test classes and the test dependencies are analyzed. {@code jdkinternals} keeps its results in the
+     * build directory, {@code test-jdkinternals} reuses those of archives unchanged since, if both analyze with the
+     * same JDK and the same analysis options. Both goals must enable it. Not used together with {@code dotOutput},
+     * {@code recursive}, {@code module} or {@code graphFile}.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.reuseMainResults")
+    private boolean reuseMainResults;
+
+    /**
+     * Whether to skip the analysis if its inputs are unchanged since the previous build: the classes directories, the
+     * size and modification time of the archives on the classpath, the analysis options and the JDK. The results of
+     * the previous build are reported again, failing the build again if offending packages have been found. Not used
+     * together with {@code dotOutput}, {@code outputFile} or {@code graphFile}, whose files wouldn't be written.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.upToDateCheck")
+    private boolean upToDateCheck;
+
+    /**
+     * Whether to pass the options and archives to a forked jdeps in an argument file in the build directory instead of
+     * on the command line, for classpaths too long for the operating system. As jdeps doesn't read argument files, it's
+     * then run by the java launcher of its JDK, which requires JDK 9 or later.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.argumentFile")
+    private boolean argumentFile;
+
+    /**
+     * File to write the dependencies found by jdeps to while it's running, for tools processing the dependency graph.
+     * Every archive dependency and every dependency of a package or class, depending on {@code verbose}, is written
+     * as soon as it's parsed, see {@code graphFormat}. Not used together with {@code analysisCache},
+     * {@code incremental} or {@code shareResults}, as reused results don't contain the dependencies.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(property = "jdeps.graphFile")
+    private File graphFile;
+
+    /**
+     * The format of the {@code graphFile}:
+     * <dl>
+     *   <dt>jsonl</dt><dd>One JSON object per dependency and line, e.g.
+     *   <code>{"level":"package","archive":"guava.jar","source":"com.google.common.base","target":"java.lang",
+     *   "detail":"java.base"}</code> or <code>{"level":"archive","source":"guava.jar","target":"java.base"}</code><dd/>
+     *   <dt>binary</dt><dd>A compact format in which every name is written once and dependencies refer to names by
+     *   number<dd/>
+     * </dl>
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "jsonl", property = "jdeps.graphFormat")
+    private String graphFormat;
+
+    /**
+     * Whether to index the DOT files written to {@code dotOutput} once jdeps has finished, so the {@code query} goal
+     * doesn't have to. The index is written to {@code jdeps-graph.index} in {@code dotOutput}.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.indexDotOutput")
+    private boolean indexDotOutput;
+
+    /**
+     * Whether to measure the time spent in the phases of the execution, like selecting the dependencies, running jdeps
+     * and parsing its output, and to count the archives, classpath entries, output lines and offending packages. They
+     * are written as JSON to {@code maven-jdeps-plugin/<goal>@<execution>-metrics.json} in the build directory, and
+     * those of all executions of the build to {@code jdeps-metrics.json} in the build directory of the top level
+     * project. If the plugin is declared with {@code <extensions>true</extensions>}, the executions are also summarized
+     * in the log at the end of the build.
+     *
+     * @since 3.2.1
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.metrics")
+    private boolean metrics;
+
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    private MojoExecution mojoExecution;
+
+    private DependencyGraphWriter graphWriter;
+
+    private ExecutionMetrics executionMetrics;
+
+    /**
+     * The worker running jdeps for this execution, if any.
+     */
+    private JDepsWorkerClient jdepsWorker;
+
+    /**
+     * The versions of multi-release archives to analyze, resolved from {@link #multiRelease}.
+     */
+    private List<String> multiReleaseVersions = Collections.emptyList();
+
+    /**
+     * The results per version, if several versions of multi-release archives are analyzed.
+     */
+    private Map<String, JDepsConsumer> multiReleaseResults;
+
+    /**
+     * The module graph of the classpath, if {@link #useModulePath} is set.
+     */
+    private ModuleGraph moduleGraph;
+
+    /**
+     * Set at the first offending package in fail-fast mode, the analysis is then stopped.
+     */
+    private final AtomicBoolean offendingPackageFound = new AtomicBoolean();
+
+    /**
+     * The threads executing jdeps, interrupted to stop the analysis.
+     */
+    private final Set<Thread> jdepsThreads = new HashSet<>();
+
     private final ToolchainManager toolchainManager;
 
     protected AbstractJDepsMojo(ToolchainManager toolchainManager) {
@@ -201,61 +505,918 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
         return project;
     }
 
+    protected MavenSession getSession() {
+        return session;
+    }
+
     public void execute() throws MojoExecutionException, MojoFailureException {
-        if (!new File(getClassesDirectory()).exists()) {
+        if (getClassesDirectories().isEmpty()) {
             getLog().debug("No classes to analyze");
             return;
         }
 
-        String jExecutable;
+        executionMetrics =
+                metrics ? new ExecutionMetrics(getModuleName(), getExecutionName()) : new ExecutionMetrics(null, null);
+        long start = System.nanoTime();
         try {
-            jExecutable = getJDepsExecutable();
+            executeAnalysis();
+        } finally {
+            if (worker) {
+                releaseWorker();
+            }
+            executionMetrics.addTime(Phase.TOTAL, start);
+            if (metrics) {
+                writeMetrics();
+            }
+        }
+    }
+
+    /**
+     * Releases the worker of this execution, all workers are closed at the end of the build.
+     */
+    private void releaseWorker() {
+        if (jdepsWorker == null) {
+            return;
+        }
+        try {
+            JDepsSessionContext.of(session).releaseWorker(jdepsWorker);
+            jdepsWorker = null;
         } catch (IOException e) {
-            throw new MojoFailureException("Unable to find jdeps command: " + e.getMessage(), e);
+            getLog().debug("Unable to close the jdeps worker: " + e.getMessage());
+        }
+    }
+
+    private String getModuleName() {
+        if (project == null) {
+            return null;
+        }
+        return project.getGroupId() + ':' + project.getArtifactId();
+    }
+
+    private String getExecutionName() {
+        if (mojoExecution == null) {
+            return "jdeps";
+        }
+        return mojoExecution.getGoal() + '@' + mojoExecution.getExecutionId();
+    }
+
+    /**
+     * Writes the metrics of this execution, and of all executions of the build so far to the top level project. They
+     * are summarized at the end of the build if the plugin is declared with {@code <extensions>true</extensions>},
+     * otherwise the roll-up file is their only summary.
+     */
+    private void writeMetrics() {
+        Path file = Paths.get(
+                project.getBuild().getDirectory(),
+                "maven-jdeps-plugin",
+                executionMetrics.getExecution().replace(':', '-') + "-metrics.json");
+        try {
+            executionMetrics.write(file);
+            getLog().info("Wrote the metrics to " + file);
+
+            MavenProject topLevelProject = session.getTopLevelProject();
+            if (topLevelProject == null) {
+                return;
+            }
+            Path rollUpFile = Paths.get(topLevelProject.getBuild().getDirectory(), "jdeps-metrics.json");
+            JDepsSessionContext.of(session).addMetrics(executionMetrics, rollUpFile, getLog());
+        } catch (IOException e) {
+            getLog().warn("Unable to write the metrics: " + e.getMessage());
+        }
+    }
+
+    private void executeAnalysis() throws MojoExecutionException, MojoFailureException {
+        long start = System.nanoTime();
+        Toolchain tc = getToolchain();
+
+        JDepsToolProvider jdepsTool = null;
+        if (inProcess) {
+            jdepsTool = InProcessJDepsRunner.findTool(tc);
+            if (jdepsTool != null && isFailFast()) {
+                getLog().warn("jdeps running in-process can't be interrupted, fail-fast only stops it once it prints"
+                        + " its results. Disable inProcess to stop it right away.");
+            }
+        }
+
+        String jdepsExecutable = jdepsTool == null ? getJDepsExecutable(tc) : "jdeps";
+
+        File javaHome = jdepsTool != null ? SystemUtils.getJavaHome() : JdkRelease.getJavaHome(jdepsExecutable);
+
+        JdkModules jdkModules = null;
+        if ("bytecode".equals(engine)) {
+            jdkModules = getJdkModules(javaHome);
+        } else if (!"jdeps".equals(engine)) {
+            throw new MojoFailureException("Unknown engine '" + engine + "', use jdeps or bytecode");
         }
+        executionMetrics.addTime(Phase.JDK_LOOKUP, start);
 
-        //      Synopsis
-        //      jdeps [options] classes ...
-        Commandline cmd = new Commandline();
-        cmd.setExecutable(jExecutable);
+        if (graphFile != null
+                && !DependencyGraphWriter.JSONL.equals(graphFormat)
+                && !DependencyGraphWriter.BINARY.equals(graphFormat)) {
+            throw new MojoFailureException("Unknown graph format '" + graphFormat + "', use jsonl or binary");
+        }
 
+        start = System.nanoTime();
         Set<Path> dependenciesToAnalyze = null;
         try {
-            dependenciesToAnalyze = getDependenciesToAnalyze(includeClasspath);
+            dependenciesToAnalyze = new LinkedHashSet<>(getDependenciesToAnalyze(includeClasspath));
+        } catch (DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        try {
+            multiReleaseVersions = MultiReleaseVersions.resolve(multiRelease, dependenciesToAnalyze);
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to find the multi-release versions: " + e.getMessage(), e);
+        }
+        if (multiReleaseVersions.size() > 1 && jdepsTool != null) {
+            // jdeps registers the version of multi-release classes for the lifetime of its JVM
+            getLog().debug("Forking jdeps for every multi-release version");
+            jdepsTool = null;
+            jdepsExecutable = getJDepsExecutable(tc);
+        }
+        executionMetrics.addTime(Phase.DEPENDENCY_SELECTION, start);
+        executionMetrics.add(Count.ARCHIVES, dependenciesToAnalyze.size());
+
+        start = System.nanoTime();
+        UpToDateCheck inputs = null;
+        if (upToDateCheck && dotOutput == null && outputFile == null && graphFile == null) {
+            inputs = createUpToDateCheck(javaHome, dependenciesToAnalyze);
+            if (inputs != null && replayPreviousResults(inputs)) {
+                return;
+            }
+        }
+        executionMetrics.addTime(Phase.RESULT_REUSE, start);
+        ResultReuse resultReuse = createResultReuse(javaHome, jdkModules != null, dependenciesToAnalyze);
+        dependenciesToAnalyze = resultReuse.select(dependenciesToAnalyze);
+
+        openGraphFile();
+        try {
+            ResultReuse.Analysis analysis = getAnalysis(jdepsTool, jdepsExecutable, jdkModules);
+            JDepsConsumer consumer = analyze(resultReuse, analysis, dependenciesToAnalyze);
+            resultReuse.addOtherResults(consumer, analysis);
+            if (!offendingPackageFound.get()) {
+                resultReuse.storeMainResults(consumer);
+            }
+            if (inputs != null && !offendingPackageFound.get()) {
+                inputs.store(consumer, multiReleaseResults, getLog());
+            }
+
+            executionMetrics.add(
+                    Count.OFFENDING_PACKAGES, consumer.getOffendingPackages().size());
+            start = System.nanoTime();
+            try {
+                closeGraphFile();
+                if (dotOutput != null && indexDotOutput) {
+                    indexDotOutput();
+                }
+                checkOffendingPackages(consumer);
+            } finally {
+                executionMetrics.addTime(Phase.REPORTING, start);
+            }
+        } finally {
+            resultReuse.fail();
+            if (graphWriter != null) {
+                // the analysis failed, the file is incomplete anyway
+                try {
+                    graphWriter.close();
+                } catch (IOException e) {
+                    getLog().debug("Unable to close " + graphFile + ": " + e.getMessage());
+                }
+                graphWriter = null;
+            }
+        }
+    }
+
+    /**
+     * @return the up-to-date check of this execution, or {@code null} if the inputs can't be read
+     */
+    private UpToDateCheck createUpToDateCheck(File javaHome, Set<Path> dependenciesToAnalyze)
+            throws MojoExecutionException, MojoFailureException {
+        Commandline options = new Commandline();
+        addJDepsOptions(options, dependenciesToAnalyze);
+        addJDepsClasses(options, dependenciesToAnalyze);
+        String inputs = JdkRelease.describe(javaHome) + "\nengine=" + engine + "\nmultiRelease=" + multiReleaseVersions
+                + "\nplugin=" + (mojoExecution != null ? mojoExecution.getVersion() : null) + '\n'
+                + String.join("\n", options.getArguments());
+
+        Set<Path> archives = new LinkedHashSet<>(dependenciesToAnalyze);
+        try {
+            archives.addAll(getClassPath());
+            return new UpToDateCheck(
+                    outputDirectory.toPath().resolve("maven-jdeps-plugin").resolve(getExecutionName() + ".results"),
+                    inputs,
+                    archives);
         } catch (DependencyResolutionRequiredException e) {
             throw new MojoExecutionException(e.getMessage(), e);
+        } catch (IOException e) {
+            getLog().warn("Unable to check whether the inputs changed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code true} if the inputs are unchanged and the results of the previous build have been reported
+     */
+    private boolean replayPreviousResults(UpToDateCheck inputs) throws MojoExecutionException {
+        Map<String, JDepsConsumer> versionResults = new LinkedHashMap<>();
+        JDepsConsumer consumer = inputs.replay(versionResults);
+        if (consumer == null) {
+            return false;
+        }
+        getLog().info("Skipping the analysis, the inputs are unchanged since the previous build");
+        if (!versionResults.isEmpty()) {
+            multiReleaseResults = versionResults;
         }
-        addJDepsOptions(cmd, dependenciesToAnalyze);
-        addJDepsClasses(cmd, dependenciesToAnalyze);
+        executionMetrics.add(
+                Count.OFFENDING_PACKAGES, consumer.getOffendingPackages().size());
+        checkOffendingPackages(consumer);
+        return true;
+    }
 
-        JDepsConsumer consumer = new JDepsConsumer();
-        executeJDepsCommandLine(cmd, outputDirectory, consumer);
+    private String getJDepsExecutable(Toolchain tc) throws MojoFailureException {
+        try {
+            return JDepsSessionContext.of(session).getJDepsExecutable(tc, () -> JDepsExecutable.find(tc));
+        } catch (IOException e) {
+            throw new MojoFailureException("Unable to find jdeps command: " + e.getMessage(), e);
+        }
+    }
+
+    private void indexDotOutput() throws MojoExecutionException {
+        if (multiReleaseVersions.size() > 1) {
+            for (String version : multiReleaseVersions) {
+                indexDotOutput(new File(dotOutput, version));
+            }
+        } else {
+            indexDotOutput(dotOutput);
+        }
+    }
+
+    private void indexDotOutput(File directory) throws MojoExecutionException {
+        try {
+            long start = System.nanoTime();
+            int edgeCount = DependencyGraphIndex.build(directory.toPath());
+            getLog().debug("Indexed " + edgeCount + " dependencies of " + directory + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            throw new MojoExecutionException(
+                    "Unable to index the DOT files in " + directory + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void openGraphFile() throws MojoExecutionException {
+        if (graphFile == null) {
+            return;
+        }
+        String level = verbose == null || "package".equals(verbose) ? "package" : "class";
+        try {
+            graphWriter = DependencyGraphWriter.open(graphFile.toPath(), graphFormat, level);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to create " + graphFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void closeGraphFile() throws MojoExecutionException {
+        DependencyGraphWriter writer = graphWriter;
+        graphWriter = null;
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write " + graphFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the reuse of earlier results, which reuses nothing if the results of this execution can't be reused
+     */
+    private ResultReuse createResultReuse(File javaHome, boolean bytecodeEngine, Set<Path> dependenciesToAnalyze)
+            throws MojoFailureException {
+        MainResults.Mode mainResultsMode = reuseMainResults ? getMainResultsMode() : null;
+        String analysisKey = null;
+        if (isResultReuseApplicable() && (analysisCache || incremental || shareResults || mainResultsMode != null)) {
+            analysisKey = getAnalysisKey(javaHome, bytecodeEngine, dependenciesToAnalyze);
+        }
+        ResultReuse resultReuse = new ResultReuse(
+                JDepsSessionContext.of(session), analysisKey, getModuleName(), executionMetrics, getLog());
+        if (analysisKey == null) {
+            return resultReuse;
+        }
+        if (mainResultsMode != null) {
+            resultReuse.useMainResults(mainResultsMode, getMainResultsFile());
+        }
+        if (incremental && getClassesDirectories().size() == 1) {
+            Path classesDirectory = getClassesDirectories().iterator().next();
+            resultReuse.useIncrementalAnalysis(
+                    classesDirectory,
+                    outputDirectory
+                            .toPath()
+                            .resolve("maven-jdeps-plugin")
+                            .resolve(classesDirectory.getFileName() + ".index"));
+        }
+        if (shareResults) {
+            resultReuse.shareResults();
+        }
+        if (analysisCache) {
+            resultReuse.useAnalysisCache(analysisCacheDirectory.toPath());
+        }
+        return resultReuse;
+    }
+
+    /**
+     * Analyzes the archives, reusing the results of earlier builds where possible.
+     */
+    private JDepsConsumer analyze(
+            ResultReuse resultReuse, ResultReuse.Analysis analysis, Set<Path> dependenciesToAnalyze)
+            throws MojoExecutionException, MojoFailureException {
+        // cached archives are still required on the classpath to resolve dependencies
+        Set<Path> archives = resultReuse.lookUpCache(dependenciesToAnalyze);
+        if (isFailFast()) {
+            JDepsConsumer cachedConsumer = resultReuse.getCachedResults();
+            if (!cachedConsumer.getOffendingPackages().isEmpty()) {
+                failFast(cachedConsumer);
+            }
+        }
+        executionMetrics.add(Count.ANALYZED_ARCHIVES, archives.size());
+
+        JDepsConsumer consumer;
+        if (archives.isEmpty()) {
+            getLog().info("Reusing the results of the previous analysis");
+            consumer = new JDepsConsumer();
+        } else {
+            consumer = analysis.analyze(archives);
+        }
+        resultReuse.addResults(consumer);
+        return consumer;
+    }
+
+    /**
+     * @return the analysis of archives with the bytecode engine if there are JDK modules, otherwise with jdeps
+     */
+    private ResultReuse.Analysis getAnalysis(
+            JDepsToolProvider jdepsTool, String jdepsExecutable, JdkModules jdkModules) {
+        if (jdkModules != null) {
+            return archives -> analyzeClassFiles(jdkModules, archives);
+        }
+        return archives -> executeJDepsShards(jdepsTool, jdepsExecutable, archives);
+    }
+
+    private Path getMainResultsFile() {
+        return outputDirectory.toPath().resolve("maven-jdeps-plugin").resolve("main.results");
+    }
+
+    private boolean isFailFast() {
+        return failFast && isFailOnWarning();
+    }
+
+    /**
+     * Stops all jdeps executions of this mojo, once the first offending package has been found.
+     */
+    private void stopAnalysis() {
+        if (offendingPackageFound.compareAndSet(false, true)) {
+            getLog().debug("Stopping the analysis at the first offending package");
+            synchronized (jdepsThreads) {
+                for (Thread thread : jdepsThreads) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails the build with the offending packages found until the analysis was stopped.
+     */
+    private void failFast(JDepsConsumer consumer) throws MojoExecutionException {
+        try {
+            checkOffendingPackages(consumer);
+        } catch (MojoExecutionException e) {
+            throw new MojoExecutionException(
+                    e.getMessage()
+                            + "The analysis stopped at the first offending package, other offending packages may be missing."
+                            + System.lineSeparator(),
+                    e);
+        }
+    }
 
+    /**
+     * Reports the offending packages found by jdeps, failing the build if required.
+     *
+     * @param consumer the results of the analysis
+     * @throws MojoExecutionException if offending packages are found and the build must fail
+     */
+    protected void checkOffendingPackages(JDepsConsumer consumer) throws MojoExecutionException {
         // @ TODO if there will be more goals, this should be pushed down to AbstractJDKInternals
         if (!consumer.getOffendingPackages().isEmpty()) {
-            final String ls = System.lineSeparator();
+            Map<String, Map<String, String>> offendingPackages = new LinkedHashMap<>();
+            if (multiReleaseResults != null) {
+                for (Map.Entry<String, JDepsConsumer> version : multiReleaseResults.entrySet()) {
+                    if (!version.getValue().getOffendingPackages().isEmpty()) {
+                        offendingPackages.put(
+                                "Multi-release version " + version.getKey(),
+                                version.getValue().getOffendingPackages());
+                    }
+                }
+            } else {
+                offendingPackages.put(null, consumer.getOffendingPackages());
+            }
+            failOnOffendingPackages(offendingPackages);
+        }
+    }
+
+    /**
+     * Fails the build listing the offending packages, if required.
+     *
+     * @param offendingPackages the offending packages with their details per group, e.g. per multi-release version,
+     *            with a {@code null} group to list them without heading
+     * @throws MojoExecutionException if the build must fail
+     */
+    protected void failOnOffendingPackages(Map<String, Map<String, String>> offendingPackages)
+            throws MojoExecutionException {
+        if (!isFailOnWarning()) {
+            return;
+        }
+
+        final String ls = System.lineSeparator();
 
-            StringBuilder msg = new StringBuilder();
-            msg.append("Found offending packages:").append(ls);
-            for (Map.Entry<String, String> offendingPackage :
-                    consumer.getOffendingPackages().entrySet()) {
-                msg.append(' ')
+        StringBuilder msg = new StringBuilder();
+        msg.append("Found offending packages:").append(ls);
+        for (Map.Entry<String, Map<String, String>> group : offendingPackages.entrySet()) {
+            String indent = " ";
+            if (group.getKey() != null) {
+                msg.append(indent).append(group.getKey()).append(':').append(ls);
+                indent = "  ";
+            }
+            for (Map.Entry<String, String> offendingPackage : new TreeMap<>(group.getValue()).entrySet()) {
+                msg.append(indent)
                         .append(offendingPackage.getKey())
                         .append(" -> ")
                         .append(offendingPackage.getValue())
                         .append(ls);
             }
+        }
+        throw new MojoExecutionException(msg.toString());
+    }
+
+    /**
+     * Analyzes the archives in shards, each executed with the complete classpath. Output is logged and results are
+     * merged in the order of the shards, independent of the order in which the executions finish.
+     */
+    private JDepsConsumer executeJDepsShards(
+            JDepsToolProvider jdepsTool, String jdepsExecutable, Set<Path> dependenciesToAnalyze)
+            throws MojoExecutionException, MojoFailureException {
+        if (jdepsTool == null && worker && jdepsWorker == null && multiReleaseVersions.size() <= 1) {
+            jdepsWorker = acquireWorker(jdepsExecutable);
+        }
+        boolean forked = jdepsTool == null && jdepsWorker == null;
+        JDepsRunner runner;
+        if (jdepsTool != null) {
+            runner = new InProcessJDepsRunner(jdepsTool, offendingPackageFound::get, getLog());
+        } else if (jdepsWorker != null) {
+            runner = new WorkerJDepsRunner(jdepsWorker, getLog());
+        } else {
+            runner = new ForkedJDepsRunner(executionMetrics, getLog());
+        }
+
+        long start = System.nanoTime();
+        // with dotOutput or module, each execution would overwrite the summary of the others
+        List<Set<Path>> shards = dotOutput != null || module != null
+                ? Collections.singletonList(dependenciesToAnalyze)
+                : Shards.create(dependenciesToAnalyze, parallelism);
+        String javaExecutable = forked && argumentFile ? getJavaExecutable(jdepsExecutable) : null;
+
+        ClassDataArchive classDataArchive = null;
+        if (forked && classDataSharing) {
+            classDataArchive = getClassDataArchive(jdepsExecutable, javaExecutable != null);
+        }
+
+        // every version of multi-release archives is analyzed by executions of its own, all running concurrently
+        List<String> versions = multiReleaseVersions.size() > 1 ? multiReleaseVersions : null;
+        List<String> cmdVersions = new ArrayList<>();
+        List<Set<Path>> cmdShards = new ArrayList<>();
+        for (String version : versions != null ? versions : Collections.singletonList((String) null)) {
+            for (Set<Path> shard : shards) {
+                cmdVersions.add(version);
+                cmdShards.add(shard);
+            }
+        }
+
+        List<Commandline> cmds = new ArrayList<>(cmdShards.size());
+        List<Path> argumentFiles = new ArrayList<>();
+        for (int i = 0; i < cmdShards.size(); i++) {
+            Set<Path> shard = cmdShards.get(i);
+            //      Synopsis
+            //      jdeps [options] classes ...
+            Commandline cmd = new Commandline();
+            cmd.setExecutable(jdepsExecutable);
+            if (versions != null) {
+                addJDepsOptions(cmd, shard, cmdVersions.get(i));
+            } else {
+                addJDepsOptions(cmd, shard);
+            }
+            addJDepsClasses(cmd, shard);
+            executionMetrics.add(Count.CLASSPATH_ENTRIES, countClassPathEntries(cmd.getArguments()));
+
+            List<String> cmdJvmOptions = new ArrayList<>();
+            if (forked) {
+                cmdJvmOptions.addAll(getClassDataSharingOptions(classDataArchive, cmds.isEmpty()));
+                if (jvmOptions != null) {
+                    cmdJvmOptions.addAll(jvmOptions);
+                }
+            }
+            if (javaExecutable != null) {
+                cmd = createArgumentFileCommandline(javaExecutable, cmdJvmOptions, cmd, argumentFiles);
+            } else {
+                // in front of the jdeps options, in reverse order as each is inserted at the start
+                for (int j = cmdJvmOptions.size() - 1; j >= 0; j--) {
+                    cmd.createArg(true).setValue("-J" + cmdJvmOptions.get(j));
+                }
+            }
+            cmds.add(cmd);
+        }
+        executionMetrics.addTime(Phase.COMMAND_LINE, start);
+        executionMetrics.add(Count.JDEPS_EXECUTIONS, cmds.size());
+
+        PrintWriter spool = openOutputFile();
+        JDepsConsumer consumer;
+        try {
+            consumer = executeJDepsShards(runner, cmdShards, cmds, cmdVersions, spool);
+            if (classDataArchive != null) {
+                storeClassDataArchive(classDataArchive);
+            }
+        } finally {
+            closeOutputFile(spool);
+            if (classDataArchive != null) {
+                try {
+                    classDataArchive.cleanUp();
+                } catch (IOException e) {
+                    getLog().debug("Unable to delete the class data sharing archive: " + e.getMessage());
+                }
+            }
+        }
+
+        // only kept if jdeps failed, the error message refers to them
+        for (Path file : argumentFiles) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                getLog().debug("Unable to delete " + file + ": " + e.getMessage());
+            }
+        }
+        return consumer;
+    }
+
+    private static int countClassPathEntries(String[] arguments) {
+        for (int i = 0; i < arguments.length - 1; i++) {
+            if ("-cp".equals(arguments[i])) {
+                return arguments[i + 1].split(File.pathSeparator).length;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the worker running jdeps of the JDK of the executable, or {@code null} if the JDK can't run one
+     */
+    private JDepsWorkerClient acquireWorker(String jdepsExecutable) throws MojoExecutionException {
+        File javaHome = JdkRelease.getJavaHome(jdepsExecutable);
+        File javaExecutable = new File(new File(javaHome, "bin"), "java" + (SystemUtils.IS_OS_WINDOWS ? ".exe" : ""));
+        if (JdkRelease.getFeatureVersion(javaHome) < 9 || !javaExecutable.isFile()) {
+            getLog().warn("The jdeps worker requires jdeps of JDK 9 or later, forking jdeps instead");
+            return null;
+        }
+
+        List<String> workerJvmOptions = jvmOptions != null ? jvmOptions : Collections.emptyList();
+        // jdeps registers the version of multi-release classes for the lifetime of the worker
+        String key = javaHome.getAbsolutePath()
+                + '\n'
+                + String.join("\n", workerJvmOptions)
+                + '\n'
+                + multiReleaseVersions
+                + '\n'
+                + workerIdleTimeout;
+        long start = System.nanoTime();
+        try {
+            return JDepsSessionContext.of(session).acquireWorker(key, () -> {
+                getLog().debug("Starting a jdeps worker with " + javaExecutable);
+                return JDepsWorkerClient.start(javaExecutable.getAbsolutePath(), workerJvmOptions, workerIdleTimeout);
+            });
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to start the jdeps worker: " + e.getMessage(), e);
+        } finally {
+            executionMetrics.addTime(Phase.PROCESS_START, start);
+        }
+    }
+
+    /**
+     * @return the class data sharing archive of jdeps, or {@code null} if the JDK can't create one
+     */
+    private ClassDataArchive getClassDataArchive(String jdepsExecutable, boolean javaLauncher) {
+        ClassDataArchive classDataArchive = ClassDataArchive.of(
+                JdkRelease.getJavaHome(jdepsExecutable),
+                javaLauncher ? "java" : "jdeps",
+                analysisCacheDirectory.toPath().resolve("cds"));
+        if (classDataArchive == null) {
+            getLog().warn("Class data sharing requires jdeps of JDK " + ClassDataArchive.MIN_FEATURE_VERSION
+                    + " or later, starting jdeps without it");
+        }
+        return classDataArchive;
+    }
+
+    /**
+     * @param create whether the execution creates the archive if it doesn't exist yet
+     */
+    private List<String> getClassDataSharingOptions(ClassDataArchive classDataArchive, boolean create) {
+        if (classDataArchive == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return classDataArchive.getJvmOptions(create);
+        } catch (IOException e) {
+            getLog().warn("Unable to create the class data sharing archive: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private void storeClassDataArchive(ClassDataArchive classDataArchive) {
+        try {
+            classDataArchive.store();
+        } catch (IOException e) {
+            getLog().warn("Unable to store the class data sharing archive " + classDataArchive.getFile() + ": "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the java launcher of the JDK of jdeps, or {@code null} if it can't run jdeps from an argument file
+     */
+    private String getJavaExecutable(String jdepsExecutable) {
+        File javaHome = JdkRelease.getJavaHome(jdepsExecutable);
+        File javaExecutable = new File(new File(javaHome, "bin"), "java" + (SystemUtils.IS_OS_WINDOWS ? ".exe" : ""));
+        if (!new File(javaHome, "lib/jrt-fs.jar").isFile() || !javaExecutable.isFile()) {
+            getLog().warn("Argument files require jdeps of JDK 9 or later, passing the arguments on the command line");
+            return null;
+        }
+        return javaExecutable.getAbsolutePath();
+    }
+
+    /**
+     * Writes the arguments of the command line to an argument file in the output directory.
+     *
+     * @return the command line running jdeps with the JVM options and the argument file
+     */
+    private Commandline createArgumentFileCommandline(
+            String javaExecutable, List<String> jvmOptions, Commandline cmd, List<Path> argumentFiles)
+            throws MojoExecutionException {
+        Path file;
+        try {
+            Files.createDirectories(outputDirectory.toPath());
+            file = Files.createTempFile(outputDirectory.toPath(), "jdeps-", ".args");
+            argumentFiles.add(file);
+            ArgumentFile.write(file, ArgumentFile.JDEPS_MODULE, cmd.getArguments());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to write the jdeps argument file: " + e.getMessage(), e);
+        }
+
+        Commandline argumentFileCmd = new Commandline();
+        argumentFileCmd.setExecutable(javaExecutable);
+        for (String jvmOption : jvmOptions) {
+            argumentFileCmd.createArg().setValue(jvmOption);
+        }
+        argumentFileCmd.createArg().setValue("@" + file);
+        return argumentFileCmd;
+    }
+
+    /**
+     * @param versions the version of multi-release archives of every command line, or {@code null} entries
+     */
+    private JDepsConsumer executeJDepsShards(
+            JDepsRunner runner,
+            List<Set<Path>> shards,
+            List<Commandline> cmds,
+            List<String> versions,
+            PrintWriter spool)
+            throws MojoExecutionException {
+        if (cmds.size() == 1) {
+            JDepsConsumer consumer = createOutputConsumer(spool);
+            CommandLineUtils.StringStreamConsumer err = createErrorConsumer();
+            long start = System.nanoTime();
+            int exitCode = executeJDeps(runner, shards.get(0), cmds.get(0), consumer, err);
+            executionMetrics.addTime(Phase.JDEPS, start);
+            if (offendingPackageFound.get()) {
+                failFast(consumer);
+            }
+            start = System.nanoTime();
+            handleJDepsResult(cmds.get(0), exitCode, consumer, err);
+            executionMetrics.addTime(Phase.LOGGING, start);
+            return consumer;
+        }
+
+        getLog().debug("Analyzing the archives in " + cmds.size() + " shards");
+        if (versions.get(0) != null) {
+            multiReleaseResults = new LinkedHashMap<>();
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(cmds.size(), r -> {
+            Thread thread = new Thread(r, "jdeps-shard-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<JDepsConsumer> outs = new ArrayList<>(cmds.size());
+            List<CommandLineUtils.StringStreamConsumer> errs = new ArrayList<>(cmds.size());
+            List<Future<Integer>> exitCodes = new ArrayList<>(cmds.size());
+            // the end of each execution, jdeps took from the start of the first to the end of the last
+            long[] ends = new long[cmds.size()];
+            long start = System.nanoTime();
+            for (int i = 0; i < cmds.size(); i++) {
+                Set<Path> shard = shards.get(i);
+                Commandline cmd = cmds.get(i);
+                JDepsConsumer out = createOutputConsumer(spool);
+                CommandLineUtils.StringStreamConsumer err = createErrorConsumer();
+                outs.add(out);
+                errs.add(err);
+                int index = i;
+                exitCodes.add(executor.submit(() -> {
+                    try {
+                        return executeJDeps(runner, shard, cmd, out, err);
+                    } finally {
+                        ends[index] = System.nanoTime();
+                    }
+                }));
+            }
+
+            JDepsConsumer consumer = new JDepsConsumer();
+            long logging = 0;
+            for (int i = 0; i < cmds.size(); i++) {
+                int exitCode = getExitCode(exitCodes.get(i));
+                if (offendingPackageFound.get()) {
+                    // the other executions have been stopped as well, only wait for them to finish
+                    for (int j = i + 1; j < cmds.size(); j++) {
+                        getExitCode(exitCodes.get(j));
+                    }
+                    for (int j = i; j < cmds.size(); j++) {
+                        addResults(consumer, versions.get(j), outs.get(j));
+                    }
+                    failFast(consumer);
+                }
+                long handleStart = System.nanoTime();
+                String version = versions.get(i);
+                if (version != null && !multiReleaseResults.containsKey(version)) {
+                    getLog().info("Multi-release version " + version);
+                }
+                handleJDepsResult(cmds.get(i), exitCode, outs.get(i), errs.get(i));
+                addResults(consumer, version, outs.get(i));
+                logging += System.nanoTime() - handleStart;
+            }
+            long end = start;
+            for (long shardEnd : ends) {
+                end = Math.max(end, shardEnd);
+            }
+            executionMetrics.addNanos(Phase.JDEPS, end - start);
+            executionMetrics.addNanos(Phase.LOGGING, logging);
+            return consumer;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds the results of an execution to the merged results, and to those of its multi-release version.
+     */
+    private void addResults(JDepsConsumer consumer, String version, JDepsConsumer out) {
+        consumer.addResults(out);
+        if (version != null) {
+            multiReleaseResults
+                    .computeIfAbsent(version, v -> new JDepsConsumer())
+                    .addResults(out);
+        }
+    }
+
+    /**
+     * Finds the dependencies on the JDK with the bytecode engine, and passes them on in the output format of jdeps.
+     */
+    private JDepsConsumer analyzeClassFiles(JdkModules jdkModules, Set<Path> dependenciesToAnalyze)
+            throws MojoExecutionException {
+        PrintWriter spool = openOutputFile();
+        try {
+            JDepsConsumer consumer = createOutputConsumer(spool);
+            new BytecodeJDepsRunner(jdkModules, getModuleName(), executionMetrics, getLog())
+                    .run(dependenciesToAnalyze, null, consumer, createErrorConsumer());
+            long start = System.nanoTime();
+            if (StringUtils.isNotEmpty(consumer.getOutput())) {
+                getLog().info('\n' + consumer.getOutput().trim());
+            }
+            executionMetrics.addTime(Phase.LOGGING, start);
+            return consumer;
+        } finally {
+            closeOutputFile(spool);
+        }
+    }
+
+    /**
+     * @return the modules of the JDK, or {@code null} if the bytecode engine can't be used
+     */
+    private JdkModules getJdkModules(File javaHome) {
+        if (dotOutput != null
+                || verbose != null
+                || packages != null
+                || include != null
+                || apiOnly
+                || profile
+                || recursive
+                || module != null
+                || multiRelease != null
+                || jdkinternals) {
+            getLog().info("The bytecode engine doesn't support the configured options, using jdeps instead");
+            return null;
+        }
+
+        try {
+            JdkModules jdkModules =
+                    JdkModules.load(javaHome, analysisCacheDirectory.toPath().resolve("jdk"));
+            if (jdkModules == null) {
+                getLog().info("The bytecode engine requires a JDK with modules, using jdeps instead");
+            }
+            return jdkModules;
+        } catch (IOException e) {
+            getLog().warn("Unable to read the modules of " + javaHome + ", using jdeps instead: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int getExitCode(Future<Integer> exitCode) throws MojoExecutionException {
+        try {
+            return exitCode.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for jdeps", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException(
+                    "Unable to execute jdeps: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Results can only be reused if the jdeps output can be attributed to the analyzed archives and packages, and
+     * to a single version of multi-release archives. Modules are reported by their name instead of their archive.
+     */
+    private boolean isResultReuseApplicable() {
+        return dotOutput == null
+                && !recursive
+                && module == null
+                && graphFile == null
+                && multiReleaseVersions.size() <= 1
+                && !useModulePath;
+    }
+
+    /**
+     * @return the jdeps version and every option which influences the result of a single archive
+     */
+    private String getAnalysisKey(File javaHome, boolean bytecodeEngine, Set<Path> dependenciesToAnalyze)
+            throws MojoFailureException {
+        StringBuilder key = new StringBuilder(JdkRelease.describe(javaHome));
+        if (bytecodeEngine) {
+            key.append("\nengine=bytecode");
+        }
 
-            if (isFailOnWarning()) {
-                throw new MojoExecutionException(msg.toString());
+        Commandline options = new Commandline();
+        addJDepsOptions(options, dependenciesToAnalyze);
+        String[] arguments = options.getArguments();
+        for (int i = 0; i < arguments.length; i++) {
+            if ("-cp".equals(arguments[i]) || "--module-path".equals(arguments[i])) {
+                // the classpath only contributes the names of the archives containing the dependencies
+                i++;
+            } else {
+                key.append('\n').append(arguments[i]);
             }
         }
+        return key.toString();
     }
 
     protected void addJDepsOptions(Commandline cmd, Set<Path> dependenciesToAnalyze) throws MojoFailureException {
+        addJDepsOptions(
+                cmd, dependenciesToAnalyze, multiReleaseVersions.size() == 1 ? multiReleaseVersions.get(0) : null);
+    }
+
+    /**
+     * @param multiReleaseVersion the version of multi-release archives to analyze, or {@code null}
+     */
+    private void addJDepsOptions(Commandline cmd, Set<Path> dependenciesToAnalyze, String multiReleaseVersion)
+            throws MojoFailureException {
         if (dotOutput != null) {
             cmd.createArg().setValue("-dotoutput");
-            cmd.createArg().setFile(dotOutput);
+            if (multiReleaseVersions.size() > 1) {
+                // each version would overwrite the DOT files of the others
+                cmd.createArg().setFile(new File(dotOutput, multiReleaseVersion));
+            } else {
+                cmd.createArg().setFile(dotOutput);
+            }
         }
 
         if (verbose != null) {
@@ -277,6 +1438,10 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
                 }
             }
 
+            if (useModulePath) {
+                cp = addModulePath(cmd, cp, dependenciesToAnalyze);
+            }
+
             if (!cp.isEmpty()) {
                 cmd.createArg().setValue("-cp");
 
@@ -308,9 +1473,9 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
             cmd.createArg().setValue(module);
         }
 
-        if (multiRelease != null) {
+        if (multiReleaseVersion != null) {
             cmd.createArg().setValue("--multi-release");
-            cmd.createArg().setValue(multiRelease);
+            cmd.createArg().setValue(multiReleaseVersion);
         }
 
         if (apiOnly) {
@@ -326,31 +1491,63 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
         }
     }
 
+    /**
+     * Passes the modules needed to resolve the analyzed archives on the module path.
+     *
+     * @return the rest of the classpath, which isn't a module
+     */
+    private Collection<Path> addModulePath(Commandline cmd, Collection<Path> cp, Set<Path> dependenciesToAnalyze)
+            throws MojoFailureException, DependencyResolutionRequiredException {
+        if (moduleGraph == null) {
+            // the classes directories change with every build, the graph of the dependencies can be reused
+            Set<Path> archives = new LinkedHashSet<>(getClassPath());
+            archives.removeAll(getClassesDirectories());
+            Path indexDirectory = analysisCacheDirectory.toPath().resolve("modules");
+            try {
+                String key = ModuleGraph.getKey(archives);
+                moduleGraph = JDepsSessionContext.of(session)
+                        .getModuleGraph(key, () -> ModuleGraph.load(archives, key, indexDirectory));
+            } catch (IOException e) {
+                throw new MojoFailureException("Unable to read the module descriptors: " + e.getMessage(), e);
+            }
+        }
+
+        ModuleGraph.ModulePath modulePath = moduleGraph.getModulePath(cp, dependenciesToAnalyze);
+        if (!modulePath.getModulePath().isEmpty()) {
+            cmd.createArg().setValue("--module-path");
+            cmd.createArg().setValue(StringUtils.join(modulePath.getModulePath().iterator(), File.pathSeparator));
+        }
+        if (!modulePath.getRootModules().isEmpty()) {
+            cmd.createArg().setValue("--add-modules");
+            cmd.createArg().setValue(String.join(",", modulePath.getRootModules()));
+        }
+        return modulePath.getClassPath();
+    }
+
     protected Set<Path> getDependenciesToAnalyze(boolean includeClasspath)
             throws DependencyResolutionRequiredException {
         Set<Path> jdepsClasses = new LinkedHashSet<>();
 
-        jdepsClasses.add(Paths.get(getClassesDirectory()));
+        jdepsClasses.addAll(getClassesDirectories());
 
         if (includeClasspath) {
             jdepsClasses.addAll(getClassPath());
         }
 
         if (dependenciesToAnalyzeIncludes != null) {
-            MatchPatterns includes = MatchPatterns.from(dependenciesToAnalyzeIncludes);
+            ArtifactPatternIndex includes = new ArtifactPatternIndex(dependenciesToAnalyzeIncludes);
 
-            MatchPatterns excludes;
+            ArtifactPatternIndex excludes;
             if (dependenciesToAnalyzeExcludes != null) {
-                excludes = MatchPatterns.from(dependenciesToAnalyzeExcludes);
+                excludes = new ArtifactPatternIndex(dependenciesToAnalyzeExcludes);
             } else {
-                excludes = MatchPatterns.from(Collections.emptyList());
+                excludes = new ArtifactPatternIndex(Collections.emptyList());
             }
 
-            for (Artifact artifact : project.getArtifacts()) {
+            for (Artifact artifact : getArtifacts()) {
                 String versionlessKey = ArtifactUtils.versionlessKey(artifact);
 
-                if (includes.matchesPatternStart(versionlessKey, true)
-                        && !excludes.matchesPatternStart(versionlessKey, true)) {
+                if (includes.matches(versionlessKey) && !excludes.matches(versionlessKey)) {
                     jdepsClasses.add(artifact.getFile().toPath());
                 }
             }
@@ -362,106 +1559,119 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
     protected void addJDepsClasses(Commandline cmd, Set<Path> dependenciesToAnalyze) {
         // <classes> can be a pathname to a .class file, a directory, a JAR file, or a fully-qualified class name.
         for (Path dependencyToAnalyze : dependenciesToAnalyze) {
-            cmd.createArg().setFile(dependencyToAnalyze.toFile());
+            // modular JAR files are analyzed as root modules of the module path
+            if (moduleGraph == null || !moduleGraph.isModularJar(dependencyToAnalyze)) {
+                cmd.createArg().setFile(dependencyToAnalyze.toFile());
+            }
         }
     }
 
-    private String getJDepsExecutable() throws IOException {
-        Toolchain tc = getToolchain();
-
-        String jdepsExecutable = null;
-        if (tc != null) {
-            jdepsExecutable = tc.findTool("jdeps");
+    /**
+     * Executes jdeps for a shard, recorded as JFR event. Stopped by interrupting the thread in fail-fast mode.
+     *
+     * @return the exit code of jdeps, {@code -1} if the analysis has been stopped
+     */
+    private int executeJDeps(
+            JDepsRunner runner,
+            Set<Path> shard,
+            Commandline cmd,
+            JDepsConsumer out,
+            CommandLineUtils.StringStreamConsumer err)
+            throws MojoExecutionException {
+        FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.JDEPS);
+        int exitCode;
+        Thread thread = Thread.currentThread();
+        synchronized (jdepsThreads) {
+            if (offendingPackageFound.get()) {
+                return -1;
+            }
+            jdepsThreads.add(thread);
         }
-
-        String jdepsCommand = "jdeps" + (SystemUtils.IS_OS_WINDOWS ? ".exe" : "");
-
-        File jdepsExe;
-
-        if (StringUtils.isNotEmpty(jdepsExecutable)) {
-            jdepsExe = new File(jdepsExecutable);
-
-            if (jdepsExe.isDirectory()) {
-                jdepsExe = new File(jdepsExe, jdepsCommand);
+        try {
+            exitCode = runner.run(shard, cmd, out, err);
+        } catch (MojoExecutionException e) {
+            if (offendingPackageFound.get()) {
+                // stopped by interrupting the thread
+                return -1;
             }
-
-            if (SystemUtils.IS_OS_WINDOWS && jdepsExe.getName().indexOf('.') < 0) {
-                jdepsExe = new File(jdepsExe.getPath() + ".exe");
+            throw e;
+        } finally {
+            synchronized (jdepsThreads) {
+                jdepsThreads.remove(thread);
             }
-
-            if (!jdepsExe.isFile()) {
-                throw new IOException("The jdeps executable '" + jdepsExe + "' doesn't exist or is not a file.");
+            if (offendingPackageFound.get()) {
+                // clear the interrupt of stopAnalysis
+                Thread.interrupted();
             }
-            return jdepsExe.getAbsolutePath();
         }
-
-        jdepsExe = new File(SystemUtils.getJavaHome() + File.separator + ".." + File.separator + "sh", jdepsCommand);
-
-        // ----------------------------------------------------------------------
-        // Try to find jdepsExe from JAVA_HOME environment variable
-        // ----------------------------------------------------------------------
-        Properties env = CommandLineUtils.getSystemEnvVars();
-        if (!jdepsExe.exists() || !jdepsExe.isFile()) {
-            String javaHome = env.getProperty("JAVA_HOME");
-            if (!StringUtils.isEmpty(javaHome)) {
-                if ((!new File(javaHome).getCanonicalFile().exists())
-                        || (new File(javaHome).getCanonicalFile().isFile())) {
-                    throw new IOException("The environment variable JAVA_HOME=" + javaHome
-                            + " doesn't exist or is not a valid directory.");
-                }
-
-                jdepsExe = new File(javaHome + File.separator + "bin", jdepsCommand);
+        if (event.isEnabled()) {
+            event.set("module", getModuleName())
+                    .set("archive", shard.size() == 1 ? shard.iterator().next().toString() : null)
+                    .set("archiveCount", shard.size())
+                    .set("exitCode", exitCode);
+            if (out instanceof ExecutionJDepsConsumer) {
+                event.set("lineCount", ((ExecutionJDepsConsumer) out).getLineCount())
+                        .set("parsingTime", ((ExecutionJDepsConsumer) out).getParsingTime());
             }
+            event.commit();
         }
+        return exitCode;
+    }
 
-        if (!jdepsExe.getCanonicalFile().exists()
-                || !jdepsExe.getCanonicalFile().isFile()) {
-            // ----------------------------------------------------------------------
-            // Try to find jdepsExe from PATH environment variable
-            // ----------------------------------------------------------------------
-            String path = env.getProperty("PATH");
-            if (path == null) {
-                path = env.getProperty("Path");
+    private PrintWriter openOutputFile() throws MojoExecutionException {
+        if (outputFile == null) {
+            return null;
+        }
+        try {
+            if (outputFile.getParentFile() != null) {
+                Files.createDirectories(outputFile.getParentFile().toPath());
             }
-            if (path == null) {
-                path = env.getProperty("path");
+            return new PrintWriter(Files.newBufferedWriter(outputFile.toPath(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to create " + outputFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void closeOutputFile(PrintWriter spool) {
+        if (spool != null) {
+            spool.close();
+            if (spool.checkError()) {
+                getLog().warn("Unable to write the jdeps output to " + outputFile);
             }
-            if (path != null) {
-                String[] pathDirs = path.split(File.pathSeparator);
-                for (String pathDir : pathDirs) {
-                    if (StringUtils.isBlank(pathDir)) {
-                        continue;
-                    }
-                    File pathJdepsExe = new File(pathDir, jdepsCommand);
-                    File canonicalPathJdepsExe = pathJdepsExe.getCanonicalFile();
-                    if (canonicalPathJdepsExe.exists()
-                            && canonicalPathJdepsExe.isFile()
-                            && canonicalPathJdepsExe.canExecute()) {
-                        return canonicalPathJdepsExe.getAbsolutePath();
+        }
+    }
+
+    private JDepsConsumer createOutputConsumer(PrintWriter spool) {
+        Consumer<String> lineConsumer = null;
+        if (streamOutput || spool != null) {
+            lineConsumer = line -> {
+                if (streamOutput) {
+                    getLog().info(line);
+                }
+                if (spool != null) {
+                    synchronized (spool) {
+                        spool.println(line);
                     }
                 }
-            }
-
-            throw new IOException(
-                    "Unable to locate the jdeps executable. Verify that JAVA_HOME is set correctly or ensure that jdeps is available on the system PATH.");
+            };
         }
-
-        if (!jdepsExe.canExecute()) {
-            throw new IOException("The jdeps executable '" + jdepsExe + "' is not executable.");
+        boolean measured = metrics || FlightRecorderEvent.JDEPS.isEnabled();
+        if (measured || isFailFast()) {
+            return new ExecutionJDepsConsumer(
+                    lineConsumer,
+                    !streamOutput,
+                    graphWriter,
+                    measured ? executionMetrics : null,
+                    isFailFast() ? this::stopAnalysis : null);
         }
-        return jdepsExe.getAbsolutePath();
+        return new JDepsConsumer(lineConsumer, !streamOutput, graphWriter);
     }
 
-    private void executeJDepsCommandLine(
-            Commandline cmd, File jOutputDirectory, CommandLineUtils.StringStreamConsumer consumer)
-            throws MojoExecutionException {
-        if (getLog().isDebugEnabled()) {
-            // no quoted arguments
-            getLog().debug("Executing: "
-                    + CommandLineUtils.toString(cmd.getCommandline()).replaceAll("'", ""));
+    private CommandLineUtils.StringStreamConsumer createErrorConsumer() {
+        if (streamOutput) {
+            return new StreamingErrorConsumer(getLog());
         }
-
-        CommandLineUtils.StringStreamConsumer err = new CommandLineUtils.StringStreamConsumer() {
+        return new CommandLineUtils.StringStreamConsumer() {
             @Override
             public void consumeLine(String line) {
                 if (!line.startsWith("Picked up JAVA_TOOL_OPTIONS:")) {
@@ -469,48 +1679,43 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
                 }
             }
         };
-        CommandLineUtils.StringStreamConsumer out;
-        if (consumer != null) {
-            out = consumer;
-        } else {
-            out = new CommandLineUtils.StringStreamConsumer();
-        }
-
-        try {
-            int exitCode = CommandLineUtils.executeCommandLine(cmd, out, err);
-
-            String output = (StringUtils.isEmpty(out.getOutput())
-                    ? null
-                    : '\n' + out.getOutput().trim());
-
-            if (exitCode != 0) {
-                if (StringUtils.isNotEmpty(output)) {
-                    getLog().info(output);
-                }
-
-                StringBuilder msg = new StringBuilder("\nExit code: ");
-                msg.append(exitCode);
-                if (StringUtils.isNotEmpty(err.getOutput())) {
-                    msg.append(" - ").append(err.getOutput());
-                }
-                msg.append('\n');
-                msg.append("Command line was: ").append(cmd).append('\n').append('\n');
+    }
 
-                throw new MojoExecutionException(msg.toString());
-            }
+    private void handleJDepsResult(
+            Commandline cmd,
+            int exitCode,
+            CommandLineUtils.StringStreamConsumer out,
+            CommandLineUtils.StringStreamConsumer err)
+            throws MojoExecutionException {
+        String output = (StringUtils.isEmpty(out.getOutput())
+                ? null
+                : '\n' + out.getOutput().trim());
 
+        if (exitCode != 0) {
             if (StringUtils.isNotEmpty(output)) {
                 getLog().info(output);
             }
-        } catch (CommandLineException e) {
-            throw new MojoExecutionException("Unable to execute jdeps command: " + e.getMessage(), e);
+
+            StringBuilder msg = new StringBuilder("\nExit code: ");
+            msg.append(exitCode);
+            if (StringUtils.isNotEmpty(err.getOutput())) {
+                msg.append(" - ").append(err.getOutput());
+            }
+            msg.append('\n');
+            msg.append("Command line was: ").append(cmd).append('\n').append('\n');
+
+            throw new MojoExecutionException(msg.toString());
+        }
+
+        if (StringUtils.isNotEmpty(output)) {
+            getLog().info(output);
         }
 
         // ----------------------------------------------------------------------
         // Handle JDeps warnings
         // ----------------------------------------------------------------------
 
-        if (StringUtils.isNotEmpty(err.getOutput()) && getLog().isWarnEnabled()) {
+        if (!streamOutput && StringUtils.isNotEmpty(err.getOutput()) && getLog().isWarnEnabled()) {
             getLog().warn("JDeps Warnings");
 
             StringTokenizer token = new StringTokenizer(err.getOutput(), "\n");
@@ -528,33 +1733,65 @@ public abstract class AbstractJDepsMojo extends AbstractMojo {
             tc = toolchainManager.getToolchainFromBuildContext("jdk", session);
 
             if (tc == null) {
-                // Maven 3.2.6 has plugin execution scoped Toolchain Support
-                try {
-                    Method getToolchainsMethod = toolchainManager
-                            .getClass()
-                            .getMethod("getToolchains", MavenSession.class, String.class, Map.class);
+                // the toolchains plugin selects toolchains per project, but this lookup gives the same result for all
+                tc = JDepsSessionContext.of(session).getToolchain("jdk:[1.8,)", this::findToolchain);
+            }
+        }
 
-                    @SuppressWarnings("unchecked")
-                    List<Toolchain> tcs = (List<Toolchain>) getToolchainsMethod.invoke(
-                            toolchainManager, session, "jdk", Collections.singletonMap("version", "[1.8,)"));
+        return tc;
+    }
 
-                    if (tcs != null && !tcs.isEmpty()) {
-                        // pick up latest, jdeps of JDK9 has more options compared to JDK8
-                        tc = tcs.get(tcs.size() - 1);
-                    }
-                } catch (NoSuchMethodException
-                        | SecurityException
-                        | IllegalAccessException
-                        | IllegalArgumentException
-                        | InvocationTargetException e) {
-                    // ignore
-                }
+    private Toolchain findToolchain() {
+        Toolchain tc = null;
+        // Maven 3.2.6 has plugin execution scoped Toolchain Support
+        try {
+            Method getToolchainsMethod =
+                    toolchainManager.getClass().getMethod("getToolchains", MavenSession.class, String.class, Map.class);
+
+            @SuppressWarnings("unchecked")
+            List<Toolchain> tcs = (List<Toolchain>) getToolchainsMethod.invoke(
+                    toolchainManager, session, "jdk", Collections.singletonMap("version", "[1.8,)"));
+
+            if (tcs != null && !tcs.isEmpty()) {
+                // pick up latest, jdeps of JDK9 has more options compared to JDK8
+                tc = tcs.get(tcs.size() - 1);
             }
+        } catch (NoSuchMethodException
+                | SecurityException
+                | IllegalAccessException
+                | IllegalArgumentException
+                | InvocationTargetException e) {
+            // ignore
         }
 
         return tc;
     }
 
+    /**
+     * @return the existing directories with the classes to analyze
+     */
+    protected Collection<Path> getClassesDirectories() {
+        Path classesDirectory = Paths.get(getClassesDirectory());
+        return Files.exists(classesDirectory)
+                ? Collections.singletonList(classesDirectory)
+                : Collections.<Path>emptyList();
+    }
+
+    /**
+     * @return the artifacts to match against {@code dependenciesToAnalyzeIncludes}
+     */
+    protected Collection<Artifact> getArtifacts() {
+        return project.getArtifacts();
+    }
+
+    /**
+     * @return whether this goal stores its results for the analysis of the test classes or reuses the stored results,
+     *         {@code null} for neither
+     */
+    MainResults.Mode getMainResultsMode() {
+        return null;
+    }
+
     protected boolean isFailOnWarning() {
         return failOnWarning;
     }
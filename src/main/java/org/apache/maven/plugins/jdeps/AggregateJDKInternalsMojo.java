@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import javax.inject.Inject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.maven.RepositoryUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+import org.apache.maven.project.DefaultDependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+import org.apache.maven.toolchain.ToolchainManager;
+import org.eclipse.aether.graph.Dependency;
+
+/**
+ * Check if the main classes of all modules of the reactor depend on internal JDK classes. Every archive is analyzed
+ * only once, even if it's a dependency of many modules, and the offending packages are reported per module.
+ * <p>
+ * The compile dependencies of every module are resolved by this goal, modules of the reactor must have been compiled
+ * in the same build or installed, e.g. {@code mvn compile jdeps:aggregate-jdkinternals}.
+ *
+ * @since 3.2.1
+ */
+@Mojo(
+        name = "aggregate-jdkinternals",
+        aggregator = true,
+        requiresDependencyResolution = ResolutionScope.COMPILE,
+        threadSafe = true)
+public class AggregateJDKInternalsMojo extends AbstractJDepsMojo {
+
+    /**
+     * The scopes of the compile classpath.
+     */
+    private static final Set<String> COMPILE_SCOPES =
+            new HashSet<>(Arrays.asList(Artifact.SCOPE_COMPILE, Artifact.SCOPE_PROVIDED, Artifact.SCOPE_SYSTEM));
+
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true, required = true)
+    private List<MavenProject> reactorProjects;
+
+    private final ProjectDependenciesResolver projectDependenciesResolver;
+
+    /**
+     * The compile dependencies of every module of the reactor, other than modules of the reactor.
+     */
+    private Map<MavenProject, List<Artifact>> moduleDependencies;
+
+    @Inject
+    public AggregateJDKInternalsMojo(
+            ToolchainManager toolchainManager, ProjectDependenciesResolver projectDependenciesResolver) {
+        super(toolchainManager);
+        this.projectDependenciesResolver = projectDependenciesResolver;
+    }
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        // only the dependencies of the project the goal is executed for are resolved by Maven
+        moduleDependencies = resolveModuleDependencies();
+        super.execute();
+    }
+
+    private Map<MavenProject, List<Artifact>> resolveModuleDependencies() throws MojoExecutionException {
+        Set<String> reactorKeys = new HashSet<>();
+        for (MavenProject reactorProject : reactorProjects) {
+            reactorKeys.add(ArtifactUtils.versionlessKey(reactorProject.getGroupId(), reactorProject.getArtifactId()));
+        }
+
+        Map<MavenProject, List<Artifact>> dependencies = new LinkedHashMap<>();
+        for (MavenProject reactorProject : reactorProjects) {
+            DefaultDependencyResolutionRequest request = new DefaultDependencyResolutionRequest(
+                    reactorProject, getSession().getRepositorySession());
+            request.setResolutionFilter((node, parents) -> node.getDependency() == null
+                    || COMPILE_SCOPES.contains(node.getDependency().getScope()));
+
+            List<Dependency> resolved;
+            try {
+                resolved = projectDependenciesResolver.resolve(request).getDependencies();
+            } catch (DependencyResolutionException e) {
+                throw new MojoExecutionException(
+                        "Unable to resolve the dependencies of " + reactorProject.getId()
+                                + ", modules of the reactor must be compiled in the same build or installed: "
+                                + e.getMessage(),
+                        e);
+            }
+
+            List<Artifact> artifacts = new ArrayList<>();
+            for (Dependency dependency : resolved) {
+                Artifact artifact = RepositoryUtils.toArtifact(dependency.getArtifact());
+                // modules of the reactor are analyzed by their classes directory
+                if (artifact.getFile() != null
+                        && COMPILE_SCOPES.contains(dependency.getScope())
+                        && !reactorKeys.contains(ArtifactUtils.versionlessKey(artifact))) {
+                    artifact.setScope(dependency.getScope());
+                    artifacts.add(artifact);
+                }
+            }
+            dependencies.put(reactorProject, artifacts);
+        }
+        return dependencies;
+    }
+
+    @Override
+    protected String getClassesDirectory() {
+        return getProject().getBuild().getOutputDirectory();
+    }
+
+    @Override
+    protected Collection<Path> getClassesDirectories() {
+        Set<Path> classesDirectories = new LinkedHashSet<>();
+        for (MavenProject reactorProject : reactorProjects) {
+            Path classesDirectory = Paths.get(reactorProject.getBuild().getOutputDirectory());
+            if (Files.exists(classesDirectory)) {
+                classesDirectories.add(classesDirectory);
+            }
+        }
+        return classesDirectories;
+    }
+
+    /**
+     * The union of the compile dependencies of all modules, without the modules of the reactor.
+     */
+    @Override
+    protected Collection<Path> getClassPath() {
+        Set<Path> classPath = new LinkedHashSet<>();
+        for (Artifact artifact : getArtifacts()) {
+            classPath.add(artifact.getFile().toPath());
+        }
+        return classPath;
+    }
+
+    @Override
+    protected Collection<Artifact> getArtifacts() {
+        Map<Path, Artifact> artifacts = new LinkedHashMap<>();
+        for (List<Artifact> dependencies : moduleDependencies.values()) {
+            for (Artifact artifact : dependencies) {
+                artifacts.putIfAbsent(artifact.getFile().toPath(), artifact);
+            }
+        }
+        return artifacts.values();
+    }
+
+    /**
+     * Attributes the offending packages of the classes directories to the modules whose classes of the origin depend
+     * on them, as jdeps can't tell classes directories apart and packages may be split across modules, and those of
+     * dependencies by the name of the archive.
+     */
+    @Override
+    protected void checkOffendingPackages(JDepsConsumer consumer) throws MojoExecutionException {
+        if (consumer.getOffendingPackages().isEmpty()) {
+            return;
+        }
+
+        Set<String> classesArchiveNames = new HashSet<>();
+        for (Path classesDirectory : getClassesDirectories()) {
+            classesArchiveNames.add(classesDirectory.getFileName().toString());
+            classesArchiveNames.add(classesDirectory.toAbsolutePath().toString());
+        }
+
+        Map<String, Map<String, String>> moduleOffendingPackages = new LinkedHashMap<>();
+        Map<String, String> attributed = new TreeMap<>();
+        for (MavenProject reactorProject : reactorProjects) {
+            Map<String, String> offendingPackages = new TreeMap<>();
+
+            Path classesDirectory = Paths.get(reactorProject.getBuild().getOutputDirectory());
+            if (Files.exists(classesDirectory)) {
+                for (String archiveName : classesArchiveNames) {
+                    for (Map.Entry<String, Map<String, String>> origin :
+                            consumer.getOffendingPackagesByOrigin(archiveName).entrySet()) {
+                        for (Map.Entry<String, String> offendingPackage :
+                                origin.getValue().entrySet()) {
+                            if (dependsOn(classesDirectory, origin.getKey(), offendingPackage.getKey())) {
+                                offendingPackages.put(offendingPackage.getKey(), offendingPackage.getValue());
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (Artifact artifact : moduleDependencies.get(reactorProject)) {
+                Path path = artifact.getFile().toPath();
+                if (Files.isRegularFile(path)) {
+                    offendingPackages.putAll(
+                            consumer.getOffendingPackages(path.getFileName().toString()));
+                    offendingPackages.putAll(
+                            consumer.getOffendingPackages(path.toAbsolutePath().toString()));
+                }
+            }
+
+            if (!offendingPackages.isEmpty()) {
+                moduleOffendingPackages.put(
+                        reactorProject.getGroupId() + ':' + reactorProject.getArtifactId(), offendingPackages);
+                attributed.putAll(offendingPackages);
+            }
+        }
+
+        Map<String, String> unattributed = new TreeMap<>(consumer.getOffendingPackages());
+        unattributed.keySet().removeAll(attributed.keySet());
+        if (!unattributed.isEmpty()) {
+            moduleOffendingPackages.put("Other archives", unattributed);
+        }
+
+        failOnOffendingPackages(moduleOffendingPackages);
+    }
+
+    /**
+     * @param origin a package, or a class for class-level output
+     * @param offendingPackage the package the origin depends on
+     * @return {@code true} if a class of the origin in the classes directory references a class of the package
+     */
+    static boolean dependsOn(Path classesDirectory, String origin, String offendingPackage)
+            throws MojoExecutionException {
+        String internalName = origin.replace('.', '/');
+        Path classFile = classesDirectory.resolve(internalName + ".class");
+        try {
+            if (Files.isRegularFile(classFile)) {
+                return dependsOn(classFile, offendingPackage);
+            }
+
+            Path packageDirectory = internalName.isEmpty() ? classesDirectory : classesDirectory.resolve(internalName);
+            if (!Files.isDirectory(packageDirectory)) {
+                return false;
+            }
+            try (DirectoryStream<Path> classFiles = Files.newDirectoryStream(packageDirectory, "*.class")) {
+                for (Path file : classFiles) {
+                    if (dependsOn(file, offendingPackage)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } catch (IOException | UncheckedIOException e) {
+            throw new MojoExecutionException("Unable to read " + classesDirectory + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean dependsOn(Path classFile, String offendingPackage) throws IOException {
+        String packagePrefix = offendingPackage.replace('.', '/') + '/';
+        for (String className : new ClassFileReader(Files.readAllBytes(classFile)).getReferencedClassNames()) {
+            if (className.startsWith(packagePrefix) && className.indexOf('/', packagePrefix.length()) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
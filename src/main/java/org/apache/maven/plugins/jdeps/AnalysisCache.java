@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+
+/**
+ * On-disk cache of the jdeps results of single archives. Entries are addressed by the SHA-256 hash of the archive
+ * content, within a namespace derived from everything else that influences the result: the jdeps version and the
+ * analysis options.
+ */
+final class AnalysisCache {
+
+    private static final String OFFENDING_PREFIX = "offending.";
+
+    private static final String PROFILE_PREFIX = "profile.";
+
+    private final Path directory;
+
+    private final Map<Path, String> contentHashes = new HashMap<>();
+
+    /**
+     * @param cacheDirectory the root directory of the cache
+     * @param analysisKey identifies the jdeps version and analysis options
+     */
+    AnalysisCache(Path cacheDirectory, String analysisKey) {
+        this.directory = cacheDirectory.resolve(hash(analysisKey.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param archive the archive to look up
+     * @return the cached result, or {@code null} if the archive hasn't been analyzed before
+     * @throws IOException if the archive can't be read
+     */
+    Result get(Path archive) throws IOException {
+        Path entry = getEntry(archive);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(entry)) {
+            properties.load(in);
+        } catch (IOException e) {
+            // corrupt entries are treated as missing and will be overwritten
+            return null;
+        }
+
+        Result result = new Result();
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(OFFENDING_PREFIX)) {
+                result.offendingPackages.put(key.substring(OFFENDING_PREFIX.length()), properties.getProperty(key));
+            } else if (key.startsWith(PROFILE_PREFIX)) {
+                result.profiles.put(key.substring(PROFILE_PREFIX.length()), properties.getProperty(key));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Looks up the results of the archives. Only JAR files can be cached, and only if their name is unique, because
+     * jdeps identifies archives by name.
+     *
+     * @param dependenciesToAnalyze the archives to analyze
+     * @param archivesToCache receives the archives to cache once analyzed
+     * @param module the module of the execution, for the flight recorder
+     * @param log the log
+     * @return the cached results
+     */
+    Map<Path, Result> lookup(Set<Path> dependenciesToAnalyze, Set<Path> archivesToCache, String module, Log log) {
+        Map<Path, Result> cachedResults = new LinkedHashMap<>();
+        for (Path dependencyToAnalyze : getSingleArchives(dependenciesToAnalyze)) {
+            FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.CACHE_LOOKUP);
+            try {
+                Result cachedResult = get(dependencyToAnalyze);
+                event.set("module", module)
+                        .set("archive", dependencyToAnalyze.toString())
+                        .set("hit", cachedResult != null)
+                        .commit();
+                if (cachedResult != null) {
+                    log.debug("Using cached jdeps result of " + dependencyToAnalyze);
+                    cachedResults.put(dependencyToAnalyze, cachedResult);
+                } else {
+                    archivesToCache.add(dependencyToAnalyze);
+                }
+            } catch (IOException e) {
+                log.warn("Unable to read " + dependencyToAnalyze + ": " + e.getMessage());
+            }
+        }
+        return cachedResults;
+    }
+
+    /**
+     * @param archivesToCache the analyzed archives to cache
+     * @param consumer the results of the analysis
+     * @param log the log
+     */
+    void store(Set<Path> archivesToCache, JDepsConsumer consumer, Log log) {
+        for (Path archive : archivesToCache) {
+            Result result = Result.of(consumer, archive);
+            try {
+                put(archive, result.getOffendingPackages(), result.getProfiles());
+            } catch (IOException e) {
+                log.warn("Unable to cache the jdeps result of " + archive + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds results found without analyzing the archives.
+     *
+     * @param consumer the results of the analysis
+     * @param results the results per archive
+     */
+    static void addResults(JDepsConsumer consumer, Map<Path, Result> results) {
+        for (Map.Entry<Path, Result> result : results.entrySet()) {
+            consumer.addResults(
+                    result.getKey().getFileName().toString(),
+                    result.getValue().getOffendingPackages(),
+                    result.getValue().getProfiles());
+        }
+    }
+
+    /**
+     * @param archive a JAR file or directory
+     * @return the size and modification time of the JAR file, or a hash of those of the files of the directory
+     * @throws IOException if the archive can't be read
+     */
+    static String fingerprint(Path archive) throws IOException {
+        if (!Files.isDirectory(archive)) {
+            return Files.size(archive) + ":"
+                    + Files.getLastModifiedTime(archive).toMillis();
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(archive)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        StringBuilder states = new StringBuilder();
+        for (Path file : files) {
+            states.append(archive.relativize(file))
+                    .append('\n')
+                    .append(Files.size(file))
+                    .append(':')
+                    .append(Files.getLastModifiedTime(file).toMillis())
+                    .append('\n');
+        }
+        return files.size() + ":" + hash(states.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param archive the analyzed archive
+     * @param offendingPackages the offending packages found in the archive
+     * @param profiles the profiles of the packages used by the archive
+     * @throws IOException if the archive can't be read or the entry can't be written
+     */
+    void put(Path archive, Map<String, String> offendingPackages, Map<String, String> profiles) throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, String> offendingPackage : offendingPackages.entrySet()) {
+            properties.setProperty(OFFENDING_PREFIX + offendingPackage.getKey(), offendingPackage.getValue());
+        }
+        for (Map.Entry<String, String> profile : profiles.entrySet()) {
+            properties.setProperty(PROFILE_PREFIX + profile.getKey(), profile.getValue());
+        }
+
+        AtomicFiles.write(
+                getEntry(archive),
+                out -> properties.store(out, archive.getFileName().toString()));
+    }
+
+    private Path getEntry(Path archive) throws IOException {
+        String contentHash = contentHashes.get(archive);
+        if (contentHash == null) {
+            contentHash = hash(archive);
+            contentHashes.put(archive, contentHash);
+        }
+        return directory.resolve(contentHash.substring(0, 2)).resolve(contentHash + ".properties");
+    }
+
+    static String hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    static String hash(byte[] bytes) {
+        return toHex(newDigest().digest(bytes));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @param dependenciesToAnalyze the archives to analyze
+     * @return the JAR files among the archives, if their name is unique, as jdeps identifies archives by name
+     */
+    static Set<Path> getSingleArchives(Set<Path> dependenciesToAnalyze) {
+        Map<Path, Integer> fileNames = new HashMap<>();
+        for (Path dependencyToAnalyze : dependenciesToAnalyze) {
+            fileNames.merge(dependencyToAnalyze.getFileName(), 1, Integer::sum);
+        }
+
+        Set<Path> singleArchives = new LinkedHashSet<>();
+        for (Path dependencyToAnalyze : dependenciesToAnalyze) {
+            if (Files.isRegularFile(dependencyToAnalyze) && fileNames.get(dependencyToAnalyze.getFileName()) == 1) {
+                singleArchives.add(dependencyToAnalyze);
+            }
+        }
+        return singleArchives;
+    }
+
+    /**
+     * The cached jdeps result of a single archive.
+     */
+    static final class Result {
+        private final Map<String, String> offendingPackages = new HashMap<>();
+
+        private final Map<String, String> profiles = new HashMap<>();
+
+        /**
+         * @param consumer the results of a jdeps execution
+         * @param archive a single archive analyzed by the execution
+         * @return the results of the archive
+         */
+        static Result of(JDepsConsumer consumer, Path archive) {
+            // JDK 8 prints the archive as passed to jdeps, later versions only print the file name
+            Result result = new Result();
+            result.offendingPackages.putAll(
+                    consumer.getOffendingPackages(archive.getFileName().toString()));
+            result.offendingPackages.putAll(
+                    consumer.getOffendingPackages(archive.toAbsolutePath().toString()));
+            result.profiles.putAll(consumer.getProfiles(archive.getFileName().toString()));
+            result.profiles.putAll(consumer.getProfiles(archive.toAbsolutePath().toString()));
+            return result;
+        }
+
+        Map<String, String> getOffendingPackages() {
+            return offendingPackages;
+        }
+
+        Map<String, String> getProfiles() {
+            return profiles;
+        }
+    }
+}
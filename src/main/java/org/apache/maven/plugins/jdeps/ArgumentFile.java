@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An argument file of the java launcher. jdeps doesn't read argument files itself, so the java launcher of JDK 9 or
+ * later runs the jdeps module with the arguments from the file instead, which keeps the command line short however
+ * many archives are passed.
+ */
+final class ArgumentFile {
+
+    /**
+     * Runs jdeps through the java launcher.
+     */
+    static final String[] JDEPS_MODULE = {"-m", "jdk.jdeps/com.sun.tools.jdeps.Main"};
+
+    private ArgumentFile() {}
+
+    /**
+     * Writes every argument on a line of its own, each argument is written as soon as it's passed.
+     *
+     * @param file the argument file
+     * @param arguments the arguments for the java launcher
+     * @throws IOException if the file can't be written
+     */
+    static void write(Path file, String[]... arguments) throws IOException {
+        // the launcher reads the file in the encoding of the platform
+        try (Writer writer = Files.newBufferedWriter(file, getPlatformCharset())) {
+            for (String[] args : arguments) {
+                for (String argument : args) {
+                    write(writer, argument);
+                }
+            }
+        }
+    }
+
+    /**
+     * Quotes the argument, as it may contain white space, and escapes backslashes, which the launcher only treats as
+     * escape characters within quotes.
+     */
+    static void write(Writer writer, String argument) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < argument.length(); i++) {
+            char c = argument.charAt(i);
+            switch (c) {
+                case '\\':
+                case '"':
+                    writer.write('\\');
+                    writer.write(c);
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                default:
+                    writer.write(c);
+            }
+        }
+        writer.write('"');
+        writer.write('\n');
+    }
+
+    private static Charset getPlatformCharset() {
+        String encoding = System.getProperty("sun.jnu.encoding");
+        if (encoding != null) {
+            try {
+                return Charset.forName(encoding);
+            } catch (IllegalArgumentException e) {
+                // fall back to the default
+            }
+        }
+        return Charset.defaultCharset();
+    }
+}
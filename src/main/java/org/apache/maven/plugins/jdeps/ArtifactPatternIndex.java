@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codehaus.plexus.util.MatchPatterns;
+
+/**
+ * Matches {@code groupId:artifactId} keys against ant-style patterns with the result of
+ * {@link MatchPatterns#matchesPatternStart(String, boolean)}, case sensitive, but without trying every pattern for
+ * every key. Patterns without wildcards are looked up by the key, patterns starting with a literal prefix like
+ * {@code org.foo.*:*} are found in a trie of prefixes, and only patterns starting with a wildcard are tried one by one.
+ * Patterns with path separators or a {@code %regex[]} or {@code %ant[]} prefix are left to {@link MatchPatterns}.
+ */
+final class ArtifactPatternIndex {
+
+    private final Set<String> exactPatterns = new HashSet<>();
+
+    private final Node prefixPatterns = new Node();
+
+    private final List<String> wildcardPatterns = new ArrayList<>();
+
+    private final MatchPatterns otherPatterns;
+
+    private final MatchPatterns allPatterns;
+
+    private boolean matchesAll;
+
+    ArtifactPatternIndex(Collection<String> patterns) {
+        List<String> others = new ArrayList<>();
+        for (String pattern : patterns) {
+            if (pattern.isEmpty()) {
+                // matches nothing but the empty key, which is left to MatchPatterns
+                continue;
+            }
+            if (pattern.startsWith("%") || pattern.indexOf('/') >= 0 || pattern.indexOf('\\') >= 0) {
+                others.add(pattern);
+            } else if ("**".equals(pattern)) {
+                matchesAll = true;
+            } else {
+                int wildcard = indexOfWildcard(pattern);
+                if (wildcard < 0) {
+                    exactPatterns.add(pattern);
+                } else if (wildcard == 0) {
+                    wildcardPatterns.add(pattern);
+                } else {
+                    prefixPatterns.add(pattern, wildcard);
+                }
+            }
+        }
+        otherPatterns = others.isEmpty() ? null : MatchPatterns.from(others);
+        allPatterns = MatchPatterns.from(patterns);
+    }
+
+    /**
+     * @param key the versionless key of an artifact, i.e. {@code groupId:artifactId}
+     * @return {@code true} if any of the patterns matches the key
+     */
+    boolean matches(String key) {
+        if (key.isEmpty() || key.indexOf('/') >= 0 || key.indexOf('\\') >= 0) {
+            // keys of artifacts never look like this, these are matched as paths
+            return allPatterns.matchesPatternStart(key, true);
+        }
+
+        if (matchesAll || exactPatterns.contains(key) || prefixPatterns.matches(key)) {
+            return true;
+        }
+        for (String pattern : wildcardPatterns) {
+            if (matches(pattern, 0, key, 0)) {
+                return true;
+            }
+        }
+        return otherPatterns != null && otherPatterns.matchesPatternStart(key, true);
+    }
+
+    private static int indexOfWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Matches the rest of the key against the rest of the pattern, where {@code *} matches any characters and
+     * {@code ?} a single character.
+     */
+    static boolean matches(String pattern, int patternIndex, String key, int keyIndex) {
+        int starPatternIndex = -1;
+        int starKeyIndex = -1;
+        while (keyIndex < key.length()) {
+            char p = patternIndex < pattern.length() ? pattern.charAt(patternIndex) : 0;
+            if (patternIndex < pattern.length() && p == '*') {
+                starPatternIndex = patternIndex++;
+                starKeyIndex = keyIndex;
+            } else if (patternIndex < pattern.length() && (p == '?' || p == key.charAt(keyIndex))) {
+                patternIndex++;
+                keyIndex++;
+            } else if (starPatternIndex >= 0) {
+                // let the last star match one more character
+                patternIndex = starPatternIndex + 1;
+                keyIndex = ++starKeyIndex;
+            } else {
+                return false;
+            }
+        }
+        while (patternIndex < pattern.length() && pattern.charAt(patternIndex) == '*') {
+            patternIndex++;
+        }
+        return patternIndex == pattern.length();
+    }
+
+    /**
+     * Trie of the literal prefixes of patterns, every node holds the patterns whose prefix ends there.
+     */
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>();
+
+        private final List<String> patterns = new ArrayList<>();
+
+        /**
+         * Whether a pattern ends with a star right after the prefix, i.e. it matches every key with the prefix.
+         */
+        private boolean matchesAll;
+
+        void add(String pattern, int prefixLength) {
+            Node node = this;
+            for (int i = 0; i < prefixLength; i++) {
+                node = node.children.computeIfAbsent(pattern.charAt(i), c -> new Node());
+            }
+            if (isStars(pattern, prefixLength)) {
+                node.matchesAll = true;
+            } else {
+                node.patterns.add(pattern);
+            }
+        }
+
+        boolean matches(String key) {
+            Node node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.get(key.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+                if (node.matchesAll) {
+                    return true;
+                }
+                for (String pattern : node.patterns) {
+                    if (ArtifactPatternIndex.matches(pattern, i + 1, key, i + 1)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static boolean isStars(String pattern, int index) {
+            for (int i = index; i < pattern.length(); i++) {
+                if (pattern.charAt(i) != '*') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
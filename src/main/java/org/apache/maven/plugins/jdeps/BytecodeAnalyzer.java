@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds the dependencies of archives on JDK modules by reading their class files, without executing jdeps. The result
+ * is printed the way jdeps prints package-level dependencies, so it can be consumed the same way.
+ */
+final class BytecodeAnalyzer {
+
+    /**
+     * Printed by jdeps in place of the module of JDK 8 internal API removed since.
+     */
+    private static final String JDK_REMOVED_INTERNAL_API = "JDK removed internal API";
+
+    private final JdkModules jdkModules;
+
+    BytecodeAnalyzer(JdkModules jdkModules) {
+        this.jdkModules = jdkModules;
+    }
+
+    /**
+     * @param archives JAR files, directories or class files
+     * @param threads the number of archives to analyze in parallel
+     * @return the dependencies on JDK modules in the output format of jdeps, in the order of the archives
+     * @throws IOException if an archive can't be read
+     */
+    List<String> analyze(Collection<Path> archives, int threads) throws IOException {
+        if (threads <= 1 || archives.size() <= 1) {
+            List<String> lines = new ArrayList<>();
+            for (Path archive : archives) {
+                lines.addAll(analyze(archive));
+            }
+            return lines;
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, archives.size()), r -> {
+            Thread thread = new Thread(r, "jdeps-bytecode-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<List<String>>> results = new ArrayList<>(archives.size());
+            for (Path archive : archives) {
+                results.add(executor.submit(() -> analyze(archive)));
+            }
+
+            List<String> lines = new ArrayList<>();
+            for (Future<List<String>> result : results) {
+                lines.addAll(result.get());
+            }
+            return lines;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analyzing class files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<String> analyze(Path archive) throws IOException {
+        // origin package -> JDK package -> modules, as a package may have both removed and remaining classes
+        Map<String, Map<String, Set<String>>> dependencies = new TreeMap<>();
+
+        if (Files.isDirectory(archive)) {
+            List<Path> classFiles;
+            try (Stream<Path> files = Files.walk(archive)) {
+                classFiles = files.filter(file -> isClassFile(archive.relativize(file)
+                                .toString()
+                                .replace(file.getFileSystem().getSeparator(), "/")))
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (Path classFile : classFiles) {
+                addDependencies(classFile.toString(), Files.readAllBytes(classFile), dependencies);
+            }
+        } else if (archive.getFileName().toString().endsWith(".class")) {
+            addDependencies(archive.toString(), Files.readAllBytes(archive), dependencies);
+        } else if (Files.isRegularFile(archive)) {
+            try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && isClassFile(entry.getName())) {
+                        try (InputStream in = zipFile.getInputStream(entry)) {
+                            addDependencies(archive + "!/" + entry.getName(), readAllBytes(in, entry), dependencies);
+                        }
+                    }
+                }
+            }
+        }
+
+        return format(archive.getFileName().toString(), dependencies);
+    }
+
+    /**
+     * Multi-release classes are ignored, just like jdeps does without {@code --multi-release}.
+     */
+    private static boolean isClassFile(String relativePath) {
+        return relativePath.endsWith(".class")
+                && !relativePath.startsWith("META-INF/versions/")
+                && !relativePath.endsWith("module-info.class");
+    }
+
+    private void addDependencies(String location, byte[] bytes, Map<String, Map<String, Set<String>>> dependencies)
+            throws IOException {
+        ClassFileReader reader;
+        Set<String> classNames;
+        try {
+            reader = new ClassFileReader(bytes);
+            classNames = reader.getReferencedClassNames();
+        } catch (IOException e) {
+            throw new IOException("Unable to read " + location + ": " + e.getMessage(), e);
+        }
+
+        Map<String, Set<String>> originDependencies = null;
+        for (String className : classNames) {
+            String pkg = getPackage(className);
+            String module =
+                    jdkModules.isRemovedInternal(className) ? JDK_REMOVED_INTERNAL_API : jdkModules.getModule(pkg);
+            if (module != null) {
+                if (originDependencies == null) {
+                    originDependencies =
+                            dependencies.computeIfAbsent(getPackage(reader.getClassName()), k -> new TreeMap<>());
+                }
+                originDependencies.computeIfAbsent(pkg, k -> new TreeSet<>()).add(module);
+            }
+        }
+    }
+
+    private List<String> format(String archiveName, Map<String, Map<String, Set<String>>> dependencies) {
+        Set<String> modules = new TreeSet<>();
+        for (Map<String, Set<String>> originDependencies : dependencies.values()) {
+            for (Set<String> packageModules : originDependencies.values()) {
+                modules.addAll(packageModules);
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (String module : modules) {
+            lines.add(archiveName + " -> " + module);
+        }
+        for (Map.Entry<String, Map<String, Set<String>>> originDependencies : dependencies.entrySet()) {
+            String origin = originDependencies.getKey().isEmpty() ? "<unnamed>" : originDependencies.getKey();
+            for (Map.Entry<String, Set<String>> dependency :
+                    originDependencies.getValue().entrySet()) {
+                String pkg = dependency.getKey();
+                for (String module : dependency.getValue()) {
+                    lines.add(String.format("   %-50s -> %-50s %s", origin, pkg, describe(pkg, module)));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private String describe(String pkg, String module) {
+        if (JDK_REMOVED_INTERNAL_API.equals(module)) {
+            return module;
+        }
+        return jdkModules.isInternal(pkg) ? "JDK internal API (" + module + ")" : module;
+    }
+
+    private static String getPackage(String className) {
+        int index = className.lastIndexOf('/');
+        return index < 0 ? "" : className.substring(0, index).replace('/', '.');
+    }
+
+    private static byte[] readAllBytes(InputStream in, ZipEntry entry) throws IOException {
+        byte[] buffer = new byte[entry.getSize() > 0 ? (int) entry.getSize() : 8192];
+        int length = 0;
+        int n;
+        while ((n = in.read(buffer, length, buffer.length - length)) != -1) {
+            length += n;
+            if (length == buffer.length) {
+                int next = in.read();
+                if (next == -1) {
+                    break;
+                }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffer[length++] = (byte) next;
+            }
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+}
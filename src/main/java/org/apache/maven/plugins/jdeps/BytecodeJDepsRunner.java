@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Phase;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Finds the dependencies on the JDK with the {@link BytecodeAnalyzer} in place of jdeps, recorded as JFR event. The
+ * analysis ignores the command line and always succeeds.
+ */
+final class BytecodeJDepsRunner implements JDepsRunner {
+
+    private final JdkModules jdkModules;
+
+    private final String module;
+
+    private final ExecutionMetrics executionMetrics;
+
+    private final Log log;
+
+    BytecodeJDepsRunner(JdkModules jdkModules, String module, ExecutionMetrics executionMetrics, Log log) {
+        this.jdkModules = jdkModules;
+        this.module = module;
+        this.executionMetrics = executionMetrics;
+        this.log = log;
+    }
+
+    @Override
+    public int run(Set<Path> archives, Commandline cmd, StreamConsumer out, StreamConsumer err)
+            throws MojoExecutionException {
+        log.debug("Analyzing " + archives.size() + " archives with the bytecode engine");
+
+        FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.BYTECODE_ANALYSIS);
+        long start = System.nanoTime();
+        List<String> lines;
+        try {
+            lines = new BytecodeAnalyzer(jdkModules)
+                    .analyze(archives, Runtime.getRuntime().availableProcessors());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to analyze the class files: " + e.getMessage(), e);
+        } finally {
+            executionMetrics.addTime(Phase.BYTECODE_ANALYSIS, start);
+        }
+        event.set("module", module)
+                .set("archiveCount", archives.size())
+                .set("lineCount", (long) lines.size())
+                .commit();
+
+        try {
+            for (String line : lines) {
+                out.consumeLine(line);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to consume the output: " + e.getMessage(), e);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A dynamic class data sharing archive of the classes loaded by jdeps of a JDK. The first forked execution dumps the
+ * classes it loaded at exit, all later executions map them from the archive instead of loading them from the JDK.
+ * Archives are identified by the installation and release of the JDK, and by the launcher, as the JVM ignores an
+ * archive created by another launcher or another build of the JDK.
+ */
+final class ClassDataArchive {
+
+    /**
+     * The first JDK able to dump the loaded classes at exit, with {@code -XX:ArchiveClassesAtExit}.
+     */
+    static final int MIN_FEATURE_VERSION = 13;
+
+    private final Path file;
+
+    private Path dumpFile;
+
+    private ClassDataArchive(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * @param javaHome the JDK directory
+     * @param launcher the launcher running jdeps, i.e. {@code jdeps} or {@code java}
+     * @param directory the directory containing the archives
+     * @return the archive, or {@code null} if the JDK can't create archives
+     */
+    static ClassDataArchive of(File javaHome, String launcher, Path directory) {
+        if (JdkRelease.getFeatureVersion(javaHome) < MIN_FEATURE_VERSION) {
+            return null;
+        }
+        String key = javaHome.getAbsolutePath() + '\n' + JdkRelease.describe(javaHome) + '\n' + launcher;
+        return new ClassDataArchive(
+                directory.resolve(AnalysisCache.hash(key.getBytes(StandardCharsets.UTF_8)) + ".jsa"));
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * @param create whether the execution creates the archive if it doesn't exist yet
+     * @return the JVM options of an execution
+     * @throws IOException if the archive can't be created
+     */
+    List<String> getJvmOptions(boolean create) throws IOException {
+        if (Files.isRegularFile(file)) {
+            return Collections.singletonList("-XX:SharedArchiveFile=" + file);
+        }
+        if (!create || dumpFile != null) {
+            return Collections.emptyList();
+        }
+
+        // dumped to a private file first, other executions shouldn't see a partial archive
+        Files.createDirectories(file.getParent());
+        dumpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        return Collections.singletonList("-XX:ArchiveClassesAtExit=" + dumpFile);
+    }
+
+    /**
+     * Makes the archive dumped by a successful execution available to later executions.
+     *
+     * @throws IOException if the archive can't be moved
+     */
+    void store() throws IOException {
+        if (dumpFile == null || Files.size(dumpFile) == 0) {
+            return;
+        }
+        AtomicFiles.move(dumpFile, file);
+        dumpFile = null;
+    }
+
+    /**
+     * Deletes the archive dumped by an execution, if it hasn't been stored.
+     */
+    void cleanUp() throws IOException {
+        if (dumpFile != null) {
+            Files.deleteIfExists(dumpFile);
+            dumpFile = null;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Minimal class file reader, which only reads what's needed to find the classes a class depends on: the constant pool,
+ * the descriptors of fields and methods and the name, requires and exports of a module descriptor.
+ */
+final class ClassFileReader {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int UTF8 = 1;
+
+    private static final int CLASS = 7;
+
+    private static final int NAME_AND_TYPE = 12;
+
+    private static final int METHOD_TYPE = 16;
+
+    private static final int PACKAGE = 20;
+
+    private static final int ACC_STATIC_PHASE = 0x0040;
+
+    private final byte[] bytes;
+
+    private final byte[] tags;
+
+    /**
+     * Offset of each constant pool entry, just after its tag.
+     */
+    private final int[] offsets;
+
+    /**
+     * Offset of the access flags, just after the constant pool.
+     */
+    private final int headerOffset;
+
+    /**
+     * @param bytes the content of the class file
+     * @throws IOException if the content isn't a class file
+     */
+    ClassFileReader(byte[] bytes) throws IOException {
+        this.bytes = bytes;
+        if (bytes.length < 10 || readInt(0) != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+
+        int count = readUnsignedShort(8);
+        tags = new byte[count];
+        offsets = new int[count];
+        int offset = 10;
+        try {
+            for (int i = 1; i < count; i++) {
+                int tag = bytes[offset++];
+                tags[i] = (byte) tag;
+                offsets[i] = offset;
+                switch (tag) {
+                    case UTF8:
+                        offset += 2 + readUnsignedShort(offset);
+                        break;
+                    case CLASS:
+                    case 8: // String
+                    case METHOD_TYPE:
+                    case 19: // Module
+                    case PACKAGE:
+                        offset += 2;
+                        break;
+                    case 15: // MethodHandle
+                        offset += 3;
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case NAME_AND_TYPE:
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        offset += 4;
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        offset += 8;
+                        i++;
+                        break;
+                    default:
+                        throw new IOException("Invalid constant pool tag " + tag);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+        headerOffset = offset;
+    }
+
+    /**
+     * @return the internal name of the class, e.g. {@code java/lang/Object}
+     */
+    String getClassName() throws IOException {
+        return getClassName(readUnsignedShort(headerOffset + 2));
+    }
+
+    /**
+     * @return the internal names of all classes referenced by the class, excluding array classes and the class itself
+     */
+    Set<String> getReferencedClassNames() throws IOException {
+        Set<String> classNames = new HashSet<>();
+        try {
+            for (int i = 1; i < tags.length; i++) {
+                switch (tags[i]) {
+                    case CLASS:
+                        String className = getClassName(i);
+                        if (className.startsWith("[")) {
+                            addDescriptorClassNames(className, classNames);
+                        } else {
+                            classNames.add(className);
+                        }
+                        break;
+                    case NAME_AND_TYPE:
+                        addDescriptorClassNames(getUtf8(readUnsignedShort(offsets[i] + 2)), classNames);
+                        break;
+                    case METHOD_TYPE:
+                        addDescriptorClassNames(getUtf8(readUnsignedShort(offsets[i])), classNames);
+                        break;
+                    default:
+                }
+            }
+
+            // fields and methods which aren't accessed by the class itself only appear by their descriptors
+            int offset = headerOffset + 6;
+            offset += 2 + 2 * readUnsignedShort(offset);
+            for (int memberKind = 0; memberKind < 2; memberKind++) {
+                int memberCount = readUnsignedShort(offset);
+                offset += 2;
+                for (int i = 0; i < memberCount; i++) {
+                    addDescriptorClassNames(getUtf8(readUnsignedShort(offset + 4)), classNames);
+                    offset = skipAttributes(offset + 6);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+
+        classNames.remove(getClassName());
+        return classNames;
+    }
+
+    /**
+     * @return the packages a module descriptor exports in internal form, e.g. {@code java/lang}, with the modules they
+     *         are exported to, which are empty for packages exported to all modules
+     */
+    Map<String, List<String>> getExports() throws IOException {
+        Map<String, List<String>> exports = new LinkedHashMap<>();
+        try {
+            int moduleOffset = getModuleAttributeOffset();
+            if (moduleOffset < 0) {
+                return exports;
+            }
+            moduleOffset += 6;
+            moduleOffset += 2 + 6 * readUnsignedShort(moduleOffset);
+            int exportCount = readUnsignedShort(moduleOffset);
+            moduleOffset += 2;
+            for (int j = 0; j < exportCount; j++) {
+                int packageIndex = readUnsignedShort(moduleOffset);
+                int targetCount = readUnsignedShort(moduleOffset + 4);
+                List<String> targets = new ArrayList<>(targetCount);
+                for (int k = 0; k < targetCount; k++) {
+                    targets.add(getUtf8(readUnsignedShort(offsets[readUnsignedShort(moduleOffset + 6 + 2 * k)])));
+                }
+                exports.put(getUtf8(readUnsignedShort(offsets[packageIndex])), targets);
+                moduleOffset += 6 + 2 * targetCount;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+        return exports;
+    }
+
+    /**
+     * @return the name of the module of a module descriptor
+     * @throws IOException if the class file isn't a module descriptor
+     */
+    String getModuleName() throws IOException {
+        try {
+            int moduleOffset = getModuleAttributeOffset();
+            if (moduleOffset < 0) {
+                throw new IOException("Not a module descriptor");
+            }
+            return getUtf8(readUnsignedShort(offsets[readUnsignedShort(moduleOffset)]));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+    }
+
+    /**
+     * @return the modules a module descriptor requires at run time, i.e. without {@code requires static}
+     */
+    List<String> getRequiredModules() throws IOException {
+        List<String> requires = new ArrayList<>();
+        try {
+            int moduleOffset = getModuleAttributeOffset();
+            if (moduleOffset < 0) {
+                return requires;
+            }
+            moduleOffset += 6;
+            int requireCount = readUnsignedShort(moduleOffset);
+            moduleOffset += 2;
+            for (int j = 0; j < requireCount; j++) {
+                if ((readUnsignedShort(moduleOffset + 2) & ACC_STATIC_PHASE) == 0) {
+                    requires.add(getUtf8(readUnsignedShort(offsets[readUnsignedShort(moduleOffset)])));
+                }
+                moduleOffset += 6;
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Truncated class file", e);
+        }
+        return requires;
+    }
+
+    /**
+     * @return the offset of the content of the {@code Module} attribute, or {@code -1} if there's none
+     */
+    private int getModuleAttributeOffset() throws IOException {
+        int offset = headerOffset + 6;
+        offset += 2 + 2 * readUnsignedShort(offset);
+        for (int memberKind = 0; memberKind < 2; memberKind++) {
+            int memberCount = readUnsignedShort(offset);
+            offset += 2;
+            for (int i = 0; i < memberCount; i++) {
+                offset = skipAttributes(offset + 6);
+            }
+        }
+
+        int attributeCount = readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < attributeCount; i++) {
+            String name = getUtf8(readUnsignedShort(offset));
+            int length = readInt(offset + 2);
+            offset += 6;
+            if ("Module".equals(name)) {
+                return offset;
+            }
+            offset += length;
+        }
+        return -1;
+    }
+
+    private int skipAttributes(int offset) {
+        int attributeCount = readUnsignedShort(offset);
+        offset += 2;
+        for (int i = 0; i < attributeCount; i++) {
+            offset += 6 + readInt(offset + 2);
+        }
+        return offset;
+    }
+
+    private String getClassName(int index) throws IOException {
+        if (tags[index] != CLASS) {
+            throw new IOException("Constant pool entry " + index + " isn't a class");
+        }
+        return getUtf8(readUnsignedShort(offsets[index]));
+    }
+
+    private String getUtf8(int index) throws IOException {
+        if (tags[index] != UTF8) {
+            throw new IOException("Constant pool entry " + index + " isn't a string");
+        }
+        int offset = offsets[index];
+        int length = readUnsignedShort(offset);
+        for (int i = offset + 2; i < offset + 2 + length; i++) {
+            if (bytes[i] < 0) {
+                // modified UTF-8, which only DataInput decodes
+                return new DataInputStream(new ByteArrayInputStream(bytes, offset, length + 2)).readUTF();
+            }
+        }
+        return new String(bytes, offset + 2, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Adds the classes of a field or method descriptor, e.g. {@code (Ljava/lang/String;[I)Ljava/util/List;}.
+     */
+    private static void addDescriptorClassNames(String descriptor, Set<String> classNames) {
+        int start = descriptor.indexOf('L');
+        while (start >= 0) {
+            int end = descriptor.indexOf(';', start);
+            if (end < 0) {
+                return;
+            }
+            classNames.add(descriptor.substring(start + 1, end));
+            start = descriptor.indexOf('L', end);
+        }
+    }
+
+    private int readUnsignedShort(int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private int readInt(int offset) {
+        return (readUnsignedShort(offset) << 16) | readUnsignedShort(offset + 2);
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A memory-mapped index of the dependency graph jdeps writes to the DOT files of {@code dotOutput}, so queries don't
+ * have to read the DOT files again. The nodes are the packages, classes, archives and modules named in the DOT files,
+ * numbered in the order of their UTF-8 encoded names, so a name is found by binary search without decoding. The edges
+ * are stored in both directions as compressed sparse rows: the edges of a node are a range of an array of nodes, which
+ * starts at the offset of the node.
+ * <p>
+ * The file consists of big-endian ints, apart from the UTF-8 encoded strings:
+ * <pre>
+ * magic, version, node count N, string count S, edge count E
+ * S + 1 offsets of the strings, followed by the strings
+ * N containers, the number of the string naming the archive or module of a node, or -1 if it isn't known
+ * N + 1 offsets of the dependencies of the nodes, followed by E nodes
+ * N + 1 offsets of the dependents of the nodes, followed by E nodes
+ * </pre>
+ * Strings {@code 0} to {@code N - 1} are the names of the nodes, the others only name containers.
+ */
+final class DependencyGraphIndex {
+
+    static final String FILE_NAME = "jdeps-graph.index";
+
+    private static final int MAGIC = 0x4A444749;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+
+    private final int nodeCount;
+
+    private final int stringOffsets;
+
+    private final int strings;
+
+    private final int containers;
+
+    private final int dependencyOffsets;
+
+    private final int dependencies;
+
+    private final int dependentOffsets;
+
+    private final int dependents;
+
+    private DependencyGraphIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a dependency graph index of this version");
+        }
+        nodeCount = buffer.getInt(8);
+        int stringCount = buffer.getInt(12);
+        int edgeCount = buffer.getInt(16);
+
+        stringOffsets = HEADER_SIZE;
+        strings = stringOffsets + (stringCount + 1) * Integer.BYTES;
+        containers = strings + buffer.getInt(stringOffsets + stringCount * Integer.BYTES);
+        dependencyOffsets = containers + nodeCount * Integer.BYTES;
+        dependencies = dependencyOffsets + (nodeCount + 1) * Integer.BYTES;
+        dependentOffsets = dependencies + edgeCount * Integer.BYTES;
+        dependents = dependentOffsets + (nodeCount + 1) * Integer.BYTES;
+        if (dependents + edgeCount * Integer.BYTES != buffer.capacity()) {
+            throw new IOException("Truncated dependency graph index");
+        }
+    }
+
+    /**
+     * @param directory the directory with the DOT files
+     * @return the index file of the directory
+     */
+    static Path getIndexFile(Path directory) {
+        return directory.resolve(FILE_NAME);
+    }
+
+    /**
+     * @param directory the directory with the DOT files
+     * @return {@code true} if the index exists and no DOT file is newer
+     * @throws IOException if the directory can't be read
+     */
+    static boolean isUpToDate(Path directory) throws IOException {
+        Path indexFile = getIndexFile(directory);
+        if (!Files.isRegularFile(indexFile)) {
+            return false;
+        }
+        long indexed = Files.getLastModifiedTime(indexFile).toMillis();
+        for (Path dotFile : getDotFiles(directory)) {
+            if (Files.getLastModifiedTime(dotFile).toMillis() > indexed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads all DOT files of the directory and writes their index to the directory.
+     *
+     * @param directory the directory with the DOT files
+     * @return the number of edges
+     * @throws IOException if a DOT file can't be read or the index can't be written
+     */
+    static int build(Path directory) throws IOException {
+        Builder builder = new Builder();
+        for (Path dotFile : getDotFiles(directory)) {
+            builder.parse(dotFile);
+        }
+
+        int[] edgeCount = new int[1];
+        AtomicFiles.write(getIndexFile(directory), out -> edgeCount[0] = builder.write(new DataOutputStream(out)));
+        return edgeCount[0];
+    }
+
+    /**
+     * @param directory the directory with the DOT files and their index
+     * @return the index, mapped into memory
+     * @throws IOException if the index can't be read
+     */
+    static DependencyGraphIndex open(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(getIndexFile(directory), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The dependency graph index is too large to be mapped");
+            }
+            // the mapping remains valid after the channel is closed
+            return new DependencyGraphIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static List<Path> getDotFiles(Path directory) throws IOException {
+        List<Path> dotFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.dot")) {
+            for (Path file : files) {
+                dotFiles.add(file);
+            }
+        }
+        dotFiles.sort(null);
+        return dotFiles;
+    }
+
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @param name the name of a package, class, archive or module
+     * @return the node, or {@code -(insertion point + 1)} like {@link Arrays#binarySearch(int[], int)} if there is no
+     *         node with this name
+     */
+    int find(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Finds the nodes a name stands for. Packages and classes can't be told apart by the DOT files, as class-level
+     * graphs contain package-level summaries, so classes are recognized by the upper case first letter of their simple
+     * name, as by convention.
+     *
+     * @param name the name of a node, package, archive or module
+     * @return the node with the name, the classes of the package with the name, and the nodes contained in the archive
+     *         or module with the name, in the order of their names
+     */
+    int[] findAll(String name) {
+        BitSet found = new BitSet(nodeCount);
+        int node = find(name);
+        if (node >= 0) {
+            found.set(node);
+        }
+
+        // the classes of the package directly follow the package name and a dot
+        String prefix = name + '.';
+        int first = find(prefix);
+        for (int i = first >= 0 ? first : -(first + 1); i < nodeCount; i++) {
+            String className = getName(i);
+            if (!className.startsWith(prefix)) {
+                break;
+            }
+            if (className.length() > prefix.length()
+                    && Character.isUpperCase(className.charAt(prefix.length()))
+                    && className.indexOf('.', prefix.length()) < 0) {
+                found.set(i);
+            }
+        }
+
+        int container = node >= 0 ? node : findContainer(name);
+        if (container >= 0) {
+            for (int i = 0; i < nodeCount; i++) {
+                if (i != container && buffer.getInt(containers + i * Integer.BYTES) == container) {
+                    found.set(i);
+                }
+            }
+        }
+        return found.stream().toArray();
+    }
+
+    /**
+     * @return the number of the string naming a container which isn't a node, or {@code -1}
+     */
+    private int findContainer(String name) {
+        int stringCount = buffer.getInt(12);
+        for (int i = nodeCount; i < stringCount; i++) {
+            if (getString(i).equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    String getName(int node) {
+        return getString(node);
+    }
+
+    /**
+     * @return the archive or module containing the node, or {@code null} if it isn't known
+     */
+    String getContainer(int node) {
+        int container = buffer.getInt(containers + node * Integer.BYTES);
+        return container < 0 ? null : getString(container);
+    }
+
+    /**
+     * @return the nodes the node depends on, in the order of their names
+     */
+    int[] getDependencies(int node) {
+        return getEdges(dependencyOffsets, dependencies, node);
+    }
+
+    /**
+     * @return the nodes depending on the node, in the order of their names
+     */
+    int[] getDependents(int node) {
+        return getEdges(dependentOffsets, dependents, node);
+    }
+
+    /**
+     * @param nodes the nodes to start from
+     * @param reverse whether to follow the edges to the dependents instead of the dependencies
+     * @return all nodes reachable from the nodes, which only includes the nodes themselves if they are part of a cycle
+     */
+    BitSet getTransitiveClosure(int[] nodes, boolean reverse) {
+        int offsets = reverse ? dependentOffsets : dependencyOffsets;
+        int edges = reverse ? dependents : dependencies;
+
+        BitSet reached = new BitSet(nodeCount);
+        int[] queue = new int[Math.max(16, nodes.length)];
+        int head = 0;
+        int tail = 0;
+        for (int node : nodes) {
+            queue[tail++] = node;
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            int end = buffer.getInt(offsets + (node + 1) * Integer.BYTES);
+            for (int i = buffer.getInt(offsets + node * Integer.BYTES); i < end; i++) {
+                int next = buffer.getInt(edges + i * Integer.BYTES);
+                if (!reached.get(next)) {
+                    reached.set(next);
+                    if (tail == queue.length) {
+                        queue = Arrays.copyOf(queue, tail * 2);
+                    }
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return reached;
+    }
+
+    private int[] getEdges(int offsets, int edges, int node) {
+        int start = buffer.getInt(offsets + node * Integer.BYTES);
+        int end = buffer.getInt(offsets + (node + 1) * Integer.BYTES);
+        int[] nodes = new int[end - start];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = buffer.getInt(edges + (start + i) * Integer.BYTES);
+        }
+        return nodes;
+    }
+
+    private String getString(int string) {
+        int start = buffer.getInt(stringOffsets + string * Integer.BYTES);
+        int end = buffer.getInt(stringOffsets + (string + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(strings + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the name of the node with the key like {@link #compare(byte[], byte[])}.
+     */
+    private int compare(int node, byte[] key) {
+        int start = buffer.getInt(stringOffsets + node * Integer.BYTES);
+        int length = buffer.getInt(stringOffsets + (node + 1) * Integer.BYTES) - start;
+        for (int i = 0; i < length && i < key.length; i++) {
+            int cmp = Integer.compare(buffer.get(strings + start + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    /**
+     * Compares unsigned, which orders UTF-8 encoded strings by code point.
+     */
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            int cmp = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /**
+     * Collects the nodes and edges of the DOT files.
+     */
+    private static final class Builder {
+
+        private final Map<String, Integer> nodes = new HashMap<>();
+
+        private final List<String> names = new ArrayList<>();
+
+        private final List<String> containers = new ArrayList<>();
+
+        /**
+         * The edges as source node in the upper and target node in the lower half.
+         */
+        private long[] edges = new long[1024];
+
+        private int edgeCount;
+
+        /**
+         * Reads the edges of a graph written by jdeps:
+         * <pre>
+         * digraph "guava.jar" {
+         *     // Path: /path/to/guava.jar
+         *    "com.google.common.base"    -> "java.lang (java.base)";
+         * </pre>
+         * The sources are contained in the archive named by the graph, except in {@code summary.dot}.
+         */
+        void parse(Path dotFile) throws IOException {
+            String graphName = null;
+            try (BufferedReader reader = Files.newBufferedReader(dotFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int start = line.indexOf('"');
+                    int end = start < 0 ? -1 : line.indexOf('"', start + 1);
+                    if (end < 0) {
+                        continue;
+                    }
+                    if (line.trim().startsWith("digraph ")) {
+                        graphName = line.substring(start + 1, end);
+                        continue;
+                    }
+                    int arrow = line.indexOf("->", end);
+                    int targetStart = arrow < 0 ? -1 : line.indexOf('"', arrow);
+                    int targetEnd = targetStart < 0 ? -1 : line.indexOf('"', targetStart + 1);
+                    if (targetEnd < 0) {
+                        continue;
+                    }
+
+                    String container = "summary".equals(graphName) ? null : graphName;
+                    int source = addNode(line.substring(start + 1, end), container);
+                    int target = addNode(line.substring(targetStart + 1, targetEnd), null);
+                    if (edgeCount == edges.length) {
+                        edges = Arrays.copyOf(edges, edgeCount * 2);
+                    }
+                    edges[edgeCount++] = ((long) source << 32) | target;
+                }
+            }
+        }
+
+        /**
+         * @param label the label of the node, the name followed by the container in parentheses if the graph isn't
+         *            the one of the container
+         * @param container the container, if the label doesn't name it
+         */
+        private int addNode(String label, String container) {
+            String name = label;
+            int paren = label.lastIndexOf(" (");
+            if (paren > 0 && label.endsWith(")")) {
+                name = label.substring(0, paren);
+                container = label.substring(paren + 2, label.length() - 1);
+            }
+
+            Integer node = nodes.get(name);
+            if (node == null) {
+                node = names.size();
+                nodes.put(name, node);
+                names.add(name);
+                containers.add(container);
+            } else if (container != null && containers.get(node) == null) {
+                containers.set(node, container);
+            }
+            return node;
+        }
+
+        /**
+         * @return the number of distinct edges written
+         */
+        int write(DataOutputStream out) throws IOException {
+            int nodeCount = names.size();
+
+            // number the nodes in the order of their names
+            byte[][] encodedNames = new byte[nodeCount][];
+            Integer[] order = new Integer[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                encodedNames[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> compare(encodedNames[a], encodedNames[b]));
+            int[] numbers = new int[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                numbers[order[i]] = i;
+            }
+
+            // containers which aren't nodes themselves follow the names of the nodes
+            Map<String, Integer> containerStrings = new LinkedHashMap<>();
+            int[] containerNumbers = new int[nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                String container = containers.get(order[i]);
+                if (container == null) {
+                    containerNumbers[i] = -1;
+                } else if (nodes.containsKey(container)) {
+                    containerNumbers[i] = numbers[nodes.get(container)];
+                } else {
+                    containerNumbers[i] =
+                            containerStrings.computeIfAbsent(container, c -> nodeCount + containerStrings.size());
+                }
+            }
+
+            long[] sortedEdges = new long[edgeCount];
+            for (int i = 0; i < edgeCount; i++) {
+                sortedEdges[i] = ((long) numbers[(int) (edges[i] >>> 32)] << 32) | numbers[(int) edges[i]];
+            }
+            Arrays.sort(sortedEdges);
+            int distinctEdgeCount = 0;
+            for (int i = 0; i < edgeCount; i++) {
+                if (i == 0 || sortedEdges[i] != sortedEdges[i - 1]) {
+                    sortedEdges[distinctEdgeCount++] = sortedEdges[i];
+                }
+            }
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nodeCount);
+            out.writeInt(nodeCount + containerStrings.size());
+            out.writeInt(distinctEdgeCount);
+
+            List<byte[]> strings = new ArrayList<>(nodeCount + containerStrings.size());
+            for (int i = 0; i < nodeCount; i++) {
+                strings.add(encodedNames[order[i]]);
+            }
+            for (String container : containerStrings.keySet()) {
+                strings.add(container.getBytes(StandardCharsets.UTF_8));
+            }
+            int offset = 0;
+            for (byte[] string : strings) {
+                out.writeInt(offset);
+                offset += string.length;
+            }
+            out.writeInt(offset);
+            for (byte[] string : strings) {
+                out.write(string);
+            }
+
+            for (int containerNumber : containerNumbers) {
+                out.writeInt(containerNumber);
+            }
+
+            // dependencies in the order of the sorted edges
+            int[] dependencyCounts = new int[nodeCount];
+            int[] dependentCounts = new int[nodeCount];
+            for (int i = 0; i < distinctEdgeCount; i++) {
+                dependencyCounts[(int) (sortedEdges[i] >>> 32)]++;
+                dependentCounts[(int) sortedEdges[i]]++;
+            }
+            writeOffsets(out, dependencyCounts);
+            for (int i = 0; i < distinctEdgeCount; i++) {
+                out.writeInt((int) sortedEdges[i]);
+            }
+
+            // dependents, which are in order as the edges are sorted by source
+            int[] dependentPositions = writeOffsets(out, dependentCounts);
+            int[] dependents = new int[distinctEdgeCount];
+            for (int i = 0; i < distinctEdgeCount; i++) {
+                dependents[dependentPositions[(int) sortedEdges[i]]++] = (int) (sortedEdges[i] >>> 32);
+            }
+            for (int dependent : dependents) {
+                out.writeInt(dependent);
+            }
+            return distinctEdgeCount;
+        }
+
+        /**
+         * @return the start offsets of the nodes
+         */
+        private static int[] writeOffsets(DataOutputStream out, int[] counts) throws IOException {
+            int[] offsets = new int[counts.length];
+            int offset = 0;
+            for (int i = 0; i < counts.length; i++) {
+                offsets[i] = offset;
+                out.writeInt(offset);
+                offset += counts[i];
+            }
+            out.writeInt(offset);
+            return offsets;
+        }
+    }
+}
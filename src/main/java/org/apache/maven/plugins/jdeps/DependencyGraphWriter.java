@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.plugins.jdeps.consumers.DependencyListener;
+
+/**
+ * Writes the dependencies parsed from the output of jdeps to a file as soon as they are parsed. Dependencies of
+ * parallel executions may be interleaved. Writing stops at the first failure, which is reported by {@link #close()}.
+ */
+abstract class DependencyGraphWriter implements DependencyListener, Closeable {
+
+    static final String JSONL = "jsonl";
+
+    static final String BINARY = "binary";
+
+    private IOException failure;
+
+    /**
+     * @param file the file to write
+     * @param format {@value #JSONL} or {@value #BINARY}
+     * @param level the level of the dependencies of origins, {@code package} or {@code class}
+     * @return the writer
+     * @throws IOException if the file can't be created
+     */
+    static DependencyGraphWriter open(Path file, String format, String level) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        if (JSONL.equals(format)) {
+            return new JsonLines(file, level);
+        } else if (BINARY.equals(format)) {
+            return new Binary(file, level);
+        }
+        throw new IllegalArgumentException("Unknown graph format '" + format + "', use " + JSONL + " or " + BINARY);
+    }
+
+    @Override
+    public final synchronized void archiveDependency(String archive, String target) {
+        if (failure == null) {
+            try {
+                writeArchiveDependency(archive, target);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    @Override
+    public final synchronized void dependency(String archive, String origin, String target, String detail) {
+        if (failure == null) {
+            try {
+                writeDependency(archive, origin, target, detail);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    @Override
+    public final synchronized void close() throws IOException {
+        try {
+            closeOutput();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes the string as JSON string, or {@code null}.
+     */
+    static void writeString(Writer writer, String string) throws IOException {
+        if (string == null) {
+            writer.write("null");
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    abstract void writeArchiveDependency(String archive, String target) throws IOException;
+
+    abstract void writeDependency(String archive, String origin, String target, String detail) throws IOException;
+
+    abstract void closeOutput() throws IOException;
+
+    /**
+     * One JSON object per line and dependency:
+     * <pre>
+     * {"level":"archive","source":"guava.jar","target":"java.base"}
+     * {"level":"package","archive":"guava.jar","source":"com.google.common.base","target":"java.lang",
+     *  "detail":"java.base"}
+     * </pre>
+     * The archive is {@code null} if jdeps printed none.
+     */
+    private static final class JsonLines extends DependencyGraphWriter {
+
+        private final Writer writer;
+
+        private final String level;
+
+        JsonLines(Path file, String level) throws IOException {
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            this.level = level;
+        }
+
+        @Override
+        void writeArchiveDependency(String archive, String target) throws IOException {
+            writer.write("{\"level\":\"archive\",\"source\":");
+            writeString(archive);
+            writer.write(",\"target\":");
+            writeString(target);
+            writer.write("}\n");
+        }
+
+        @Override
+        void writeDependency(String archive, String origin, String target, String detail) throws IOException {
+            writer.write("{\"level\":");
+            writeString(level);
+            writer.write(",\"archive\":");
+            writeString(archive);
+            writer.write(",\"source\":");
+            writeString(origin);
+            writer.write(",\"target\":");
+            writeString(target);
+            writer.write(",\"detail\":");
+            writeString(detail);
+            writer.write("}\n");
+        }
+
+        private void writeString(String string) throws IOException {
+            DependencyGraphWriter.writeString(writer, string);
+        }
+
+        @Override
+        void closeOutput() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * A header of the magic number {@code JDGR}, the format version and the level of the dependencies of origins
+     * ({@code 0} for packages, {@code 1} for classes), followed by records starting with their type:
+     * <dl>
+     *   <dt>{@code 0} string</dt><dd>modified UTF-8 as written by {@link DataOutputStream#writeUTF(String)}, strings
+     *   are numbered in the order of their records, starting at 1, and written before they are first referenced</dd>
+     *   <dt>{@code 1} archive dependency</dt><dd>the numbers of the archive and its target</dd>
+     *   <dt>{@code 2} dependency</dt><dd>the numbers of the archive, origin, target and detail</dd>
+     * </dl>
+     * Numbers are unsigned LEB128 varints, {@code 0} stands for {@code null}.
+     */
+    private static final class Binary extends DependencyGraphWriter {
+
+        static final int MAGIC = 0x4A444752;
+
+        static final int VERSION = 1;
+
+        static final int STRING = 0;
+
+        static final int ARCHIVE_DEPENDENCY = 1;
+
+        static final int DEPENDENCY = 2;
+
+        private final DataOutputStream out;
+
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Binary(Path file, String level) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte("class".equals(level) ? 1 : 0);
+        }
+
+        @Override
+        void writeArchiveDependency(String archive, String target) throws IOException {
+            int archiveId = define(archive);
+            int targetId = define(target);
+            out.writeByte(ARCHIVE_DEPENDENCY);
+            writeVarInt(archiveId);
+            writeVarInt(targetId);
+        }
+
+        @Override
+        void writeDependency(String archive, String origin, String target, String detail) throws IOException {
+            int archiveId = define(archive);
+            int originId = define(origin);
+            int targetId = define(target);
+            int detailId = define(detail);
+            out.writeByte(DEPENDENCY);
+            writeVarInt(archiveId);
+            writeVarInt(originId);
+            writeVarInt(targetId);
+            writeVarInt(detailId);
+        }
+
+        /**
+         * @return the number of the string, after writing its record if it's new
+         */
+        private int define(String string) throws IOException {
+            if (string == null) {
+                return 0;
+            }
+            Integer id = strings.get(string);
+            if (id == null) {
+                id = strings.size() + 1;
+                strings.put(string, id);
+                out.writeByte(STRING);
+                out.writeUTF(string);
+            }
+            return id;
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        @Override
+        void closeOutput() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.util.function.Consumer;
+
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Count;
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Phase;
+import org.apache.maven.plugins.jdeps.consumers.DependencyListener;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+
+/**
+ * Measures the time spent on consuming the jdeps output and counts its lines if required, and stops the analysis at
+ * the first offending package in fail-fast mode.
+ */
+final class ExecutionJDepsConsumer extends JDepsConsumer {
+
+    private final ExecutionMetrics executionMetrics;
+
+    private final Runnable offendingPackageListener;
+
+    private long lineCount;
+
+    private long parsingTime;
+
+    /**
+     * @param executionMetrics the metrics to add the parsing time and lines to, or {@code null} if not measured
+     * @param offendingPackageListener called for every line once an offending package has been found, may be
+     *            {@code null}
+     */
+    ExecutionJDepsConsumer(
+            Consumer<String> lineConsumer,
+            boolean keepOutput,
+            DependencyListener dependencyListener,
+            ExecutionMetrics executionMetrics,
+            Runnable offendingPackageListener) {
+        super(lineConsumer, keepOutput, dependencyListener);
+        this.executionMetrics = executionMetrics;
+        this.offendingPackageListener = offendingPackageListener;
+    }
+
+    @Override
+    public void consumeLine(String line) {
+        if (executionMetrics != null) {
+            long start = System.nanoTime();
+            super.consumeLine(line);
+            long time = System.nanoTime() - start;
+            lineCount++;
+            parsingTime += time;
+            executionMetrics.addNanos(Phase.PARSING, time);
+            executionMetrics.add(Count.OUTPUT_LINES, 1);
+        } else {
+            super.consumeLine(line);
+        }
+        if (offendingPackageListener != null && !getOffendingPackages().isEmpty()) {
+            offendingPackageListener.run();
+        }
+    }
+
+    long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the time spent on consuming the output in nanoseconds
+     */
+    long getParsingTime() {
+        return parsingTime;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The time spent in the phases of an execution and the amount of work it did. Times of parallel jdeps executions add
+ * up, and the output is parsed and logged while jdeps is running, so phases may overlap and their sum may exceed the
+ * total time.
+ */
+final class ExecutionMetrics {
+
+    /**
+     * The phases of an execution, in the order they're reported.
+     */
+    enum Phase {
+        /** Locating the toolchain, jdeps and the JDK. */
+        JDK_LOOKUP("jdkLookup"),
+        /** Selecting the archives to analyze. */
+        DEPENDENCY_SELECTION("dependencySelection"),
+        /** Looking up and storing the results of the analysis cache, incremental analysis and shared results. */
+        RESULT_REUSE("resultReuse"),
+        /** Assembling the command lines and argument files. */
+        COMMAND_LINE("commandLine"),
+        /** Starting jdeps processes, summed up. */
+        PROCESS_START("processStart"),
+        /** Running jdeps, from the start of the first to the end of the last execution. */
+        JDEPS("jdeps"),
+        /** Analyzing the class files with the bytecode engine. */
+        BYTECODE_ANALYSIS("bytecodeAnalysis"),
+        /** Consuming the jdeps output while it runs: parsing, streaming and writing it, summed up. */
+        PARSING("parsing"),
+        /** Logging the jdeps output and warnings once it finished. */
+        LOGGING("logging"),
+        /** Waiting for results of archives other executions analyze. */
+        SHARED_RESULTS("sharedResults"),
+        /** Reporting the offending packages and writing graph files and indexes. */
+        REPORTING("reporting"),
+        /** The complete execution. */
+        TOTAL("total");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * What an execution counts, in the order they're reported.
+     */
+    enum Count {
+        /** Selected archives, including the classes directory. */
+        ARCHIVES("archives"),
+        /** Archives analyzed by this execution. */
+        ANALYZED_ARCHIVES("analyzedArchives"),
+        /** Archives whose results were taken from the analysis cache. */
+        CACHED_ARCHIVES("cachedArchives"),
+        /** Archives whose results were taken from other executions. */
+        SHARED_ARCHIVES("sharedArchives"),
+        /** Archives whose results were taken from the analysis of the main classes. */
+        MAIN_ARCHIVES("mainArchives"),
+        /** Entries of the classpaths passed to jdeps, summed up. */
+        CLASSPATH_ENTRIES("classpathEntries"),
+        /** Executions of jdeps. */
+        JDEPS_EXECUTIONS("jdepsExecutions"),
+        /** Lines of jdeps output. */
+        OUTPUT_LINES("outputLines"),
+        /** Offending packages found. */
+        OFFENDING_PACKAGES("offendingPackages");
+
+        private final String name;
+
+        Count(String name) {
+            this.name = name;
+        }
+    }
+
+    private final String project;
+
+    private final String execution;
+
+    private final LongAdder[] nanos = newAdders(Phase.values().length);
+
+    private final LongAdder[] counts = newAdders(Count.values().length);
+
+    /**
+     * @param project identifies the project, e.g. by {@code groupId:artifactId}
+     * @param execution identifies the execution within the project, e.g. by {@code goal@executionId}
+     */
+    ExecutionMetrics(String project, String execution) {
+        this.project = project;
+        this.execution = execution;
+    }
+
+    String getProject() {
+        return project;
+    }
+
+    String getExecution() {
+        return execution;
+    }
+
+    /**
+     * Adds the time since the start to the phase.
+     *
+     * @param phase the phase
+     * @param start the start as returned by {@link System#nanoTime()}
+     */
+    void addTime(Phase phase, long start) {
+        nanos[phase.ordinal()].add(System.nanoTime() - start);
+    }
+
+    void addNanos(Phase phase, long time) {
+        nanos[phase.ordinal()].add(time);
+    }
+
+    void add(Count count, long value) {
+        counts[count.ordinal()].add(value);
+    }
+
+    long getNanos(Phase phase) {
+        return nanos[phase.ordinal()].sum();
+    }
+
+    long get(Count count) {
+        return counts[count.ordinal()].sum();
+    }
+
+    /**
+     * Writes the metrics of an execution as JSON object, times in milliseconds:
+     * <pre>
+     * {
+     *   "project": "org.example:app",
+     *   "execution": "jdkinternals@default",
+     *   "phases": {"jdkLookup": 12.345, ...},
+     *   "counts": {"archives": 42, ...}
+     * }
+     * </pre>
+     *
+     * @param file the file to write
+     * @throws IOException if the file can't be written
+     */
+    void write(Path file) throws IOException {
+        writeFile(file, this::writeJson);
+    }
+
+    /**
+     * Writes the metrics of all executions of a build, followed by their sums:
+     * <pre>
+     * {
+     *   "executions": [{...}, ...],
+     *   "total": {"phases": {...}, "counts": {...}}
+     * }
+     * </pre>
+     *
+     * @param file the file to write
+     * @param executions the metrics of the executions
+     * @throws IOException if the file can't be written
+     */
+    static void writeRollUp(Path file, Collection<ExecutionMetrics> executions) throws IOException {
+        ExecutionMetrics total = new ExecutionMetrics(null, null);
+        for (ExecutionMetrics metrics : executions) {
+            for (Phase phase : Phase.values()) {
+                total.addNanos(phase, metrics.getNanos(phase));
+            }
+            for (Count count : Count.values()) {
+                total.add(count, metrics.get(count));
+            }
+        }
+
+        writeFile(file, (writer, indent) -> {
+            writer.write("{\n" + indent + "  \"executions\": [");
+            String separator = "\n";
+            for (ExecutionMetrics metrics : executions) {
+                writer.write(separator + indent + "    ");
+                metrics.writeJson(writer, indent + "    ");
+                separator = ",\n";
+            }
+            writer.write("\n" + indent + "  ],\n" + indent + "  \"total\": ");
+            total.writeJson(writer, indent + "  ");
+            writer.write("\n" + indent + "}");
+        });
+    }
+
+    /**
+     * @param executions the metrics of the executions
+     * @param rollUpFile the file the metrics of the executions have been written to
+     * @return a summary of the executions and the slowest of them
+     */
+    static String summarize(List<ExecutionMetrics> executions, Path rollUpFile) {
+        long total = 0;
+        for (ExecutionMetrics metrics : executions) {
+            total += metrics.getNanos(Phase.TOTAL);
+        }
+        StringBuilder msg = new StringBuilder();
+        msg.append(executions.size())
+                .append(" jdeps executions took ")
+                .append(total / 1_000_000)
+                .append(" ms, see ")
+                .append(rollUpFile)
+                .append(", the slowest were:");
+
+        List<ExecutionMetrics> slowest = new ArrayList<>(executions);
+        slowest.sort((m1, m2) -> Long.compare(m2.getNanos(Phase.TOTAL), m1.getNanos(Phase.TOTAL)));
+        for (ExecutionMetrics metrics : slowest.subList(0, Math.min(5, slowest.size()))) {
+            msg.append(System.lineSeparator())
+                    .append("   ")
+                    .append(metrics.getProject())
+                    .append(' ')
+                    .append(metrics.getExecution())
+                    .append(": ")
+                    .append(metrics.getNanos(Phase.TOTAL) / 1_000_000)
+                    .append(" ms (jdeps ")
+                    .append(metrics.getNanos(Phase.JDEPS) / 1_000_000)
+                    .append(" ms)");
+        }
+        return msg.toString();
+    }
+
+    private void writeJson(Writer writer, String indent) throws IOException {
+        writer.write("{\n");
+        if (project != null) {
+            writer.write(indent + "  \"project\": ");
+            DependencyGraphWriter.writeString(writer, project);
+            writer.write(",\n" + indent + "  \"execution\": ");
+            DependencyGraphWriter.writeString(writer, execution);
+            writer.write(",\n");
+        }
+
+        writer.write(indent + "  \"phases\": {");
+        String separator = "";
+        for (Phase phase : Phase.values()) {
+            writer.write(separator + '"' + phase.name + "\": "
+                    + String.format(Locale.ROOT, "%.3f", getNanos(phase) / 1_000_000.0));
+            separator = ", ";
+        }
+        writer.write("},\n" + indent + "  \"counts\": {");
+        separator = "";
+        for (Count count : Count.values()) {
+            writer.write(separator + '"' + count.name + "\": " + get(count));
+            separator = ", ";
+        }
+        writer.write("}\n" + indent + "}");
+    }
+
+    private static void writeFile(Path file, JsonWriter json) throws IOException {
+        AtomicFiles.write(file, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            json.write(writer, "");
+            writer.write('\n');
+            writer.flush();
+        });
+    }
+
+    private static LongAdder[] newAdders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private interface JsonWriter {
+        void write(Writer writer, String indent) throws IOException;
+    }
+}
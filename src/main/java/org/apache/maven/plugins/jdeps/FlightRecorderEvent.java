@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A JDK Flight Recorder event of the plugin. The JFR API is only available on some JDKs, so the events are defined
+ * through {@code jdk.jfr.EventFactory} by reflection. Events are only emitted if JFR is available and a recording
+ * enables them, otherwise {@link #begin(Type)} returns an event that ignores all calls.
+ */
+final class FlightRecorderEvent {
+
+    /**
+     * An execution of jdeps, one per shard.
+     */
+    static final Type JDEPS = new Type(
+            "JDeps",
+            "JDeps Execution",
+            "An execution of jdeps, in-process or as separate process",
+            new Field("module", "Module", String.class),
+            new Field("archive", "Archive", String.class),
+            new Field("archiveCount", "Archive Count", int.class),
+            new Field("exitCode", "Exit Code", int.class),
+            new Field("lineCount", "Line Count", long.class),
+            new Field("parsingTime", "Parsing Time", long.class, true));
+
+    /**
+     * An analysis of class files with the bytecode engine.
+     */
+    static final Type BYTECODE_ANALYSIS = new Type(
+            "BytecodeAnalysis",
+            "Bytecode Analysis",
+            "An analysis of class files by the bytecode engine",
+            new Field("module", "Module", String.class),
+            new Field("archiveCount", "Archive Count", int.class),
+            new Field("lineCount", "Line Count", long.class));
+
+    /**
+     * A lookup of the result of an archive in the analysis cache.
+     */
+    static final Type CACHE_LOOKUP = new Type(
+            "AnalysisCacheLookup",
+            "Analysis Cache Lookup",
+            "A lookup of the jdeps result of an archive in the analysis cache",
+            new Field("module", "Module", String.class),
+            new Field("archive", "Archive", String.class),
+            new Field("hit", "Hit", boolean.class));
+
+    private static final FlightRecorderEvent DISABLED = new FlightRecorderEvent(null, null);
+
+    private static final Reflection JFR = Reflection.load();
+
+    private final Type type;
+
+    private final Object event;
+
+    private FlightRecorderEvent(Type type, Object event) {
+        this.type = type;
+        this.event = event;
+    }
+
+    /**
+     * Starts timing an event.
+     *
+     * @param type the type of the event
+     * @return the event, ignoring all calls if it is not recorded
+     */
+    static FlightRecorderEvent begin(Type type) {
+        Object event = type.newEvent();
+        if (event == null) {
+            return DISABLED;
+        }
+        JFR.invoke(JFR.begin, event);
+        return new FlightRecorderEvent(type, event);
+    }
+
+    /**
+     * @return {@code true} if the event is recorded
+     */
+    boolean isEnabled() {
+        return event != null;
+    }
+
+    /**
+     * Sets a field of the event.
+     *
+     * @param field the name of the field
+     * @param value the value, of the type of the field
+     * @return this event
+     */
+    FlightRecorderEvent set(String field, Object value) {
+        if (event != null) {
+            JFR.invoke(JFR.set, event, type.indexOf(field), value);
+        }
+        return this;
+    }
+
+    /**
+     * Stops timing the event and commits it if it passes the threshold of the recording.
+     */
+    void commit() {
+        if (event != null) {
+            JFR.invoke(JFR.end, event);
+            if ((Boolean) JFR.invoke(JFR.shouldCommit, event)) {
+                JFR.invoke(JFR.commit, event);
+            }
+        }
+    }
+
+    /**
+     * A field of an event type.
+     */
+    static final class Field {
+        private final String name;
+
+        private final String label;
+
+        private final Class<?> type;
+
+        private final boolean timespan;
+
+        Field(String name, String label, Class<?> type) {
+            this(name, label, type, false);
+        }
+
+        /**
+         * @param timespan whether the field holds a duration in nanoseconds
+         */
+        Field(String name, String label, Class<?> type, boolean timespan) {
+            this.name = name;
+            this.label = label;
+            this.type = type;
+            this.timespan = timespan;
+        }
+    }
+
+    /**
+     * An event type, registered with JFR the first time an event of it is recorded.
+     */
+    static final class Type {
+        private final String name;
+
+        private final String label;
+
+        private final String description;
+
+        private final Field[] fields;
+
+        private Object factory;
+
+        private boolean failed;
+
+        Type(String name, String label, String description, Field... fields) {
+            this.name = name;
+            this.label = label;
+            this.description = description;
+            this.fields = fields;
+        }
+
+        /**
+         * @return {@code true} if events of this type are recorded
+         */
+        boolean isEnabled() {
+            return newEvent() != null;
+        }
+
+        /**
+         * @return a new {@code jdk.jfr.Event}, or {@code null} if events of this type are not recorded
+         */
+        private Object newEvent() {
+            Object eventFactory = getFactory();
+            if (eventFactory == null) {
+                return null;
+            }
+            Object event = JFR.invoke(JFR.newEvent, eventFactory);
+            return (Boolean) JFR.invoke(JFR.isEnabled, event) ? event : null;
+        }
+
+        private synchronized Object getFactory() {
+            if (factory == null && !failed && JFR != null) {
+                try {
+                    factory = JFR.createFactory(this);
+                } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                    failed = true;
+                }
+            }
+            return factory;
+        }
+
+        private int indexOf(String field) {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i].name.equals(field)) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Event " + name + " has no field " + field);
+        }
+    }
+
+    /**
+     * The reflective access to the JFR API.
+     */
+    private static final class Reflection {
+        private final Method create;
+
+        private final Constructor<?> annotationElement;
+
+        private final Constructor<?> valueDescriptor;
+
+        private final Method newEvent;
+
+        private final Method isEnabled;
+
+        private final Method begin;
+
+        private final Method set;
+
+        private final Method end;
+
+        private final Method shouldCommit;
+
+        private final Method commit;
+
+        private Reflection() throws ReflectiveOperationException {
+            Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+
+            create = eventFactoryClass.getMethod("create", List.class, List.class);
+            annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+            valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+            newEvent = eventFactoryClass.getMethod("newEvent");
+            isEnabled = eventClass.getMethod("isEnabled");
+            begin = eventClass.getMethod("begin");
+            set = eventClass.getMethod("set", int.class, Object.class);
+            end = eventClass.getMethod("end");
+            shouldCommit = eventClass.getMethod("shouldCommit");
+            commit = eventClass.getMethod("commit");
+        }
+
+        /**
+         * @return the reflective access, or {@code null} if the JFR API is not available
+         */
+        static Reflection load() {
+            try {
+                return new Reflection();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return null;
+            }
+        }
+
+        Object createFactory(Type type) throws ReflectiveOperationException {
+            List<Object> annotations = Arrays.asList(
+                    annotation("jdk.jfr.Name", "org.apache.maven.plugins.jdeps." + type.name),
+                    annotation("jdk.jfr.Label", type.label),
+                    annotation("jdk.jfr.Description", type.description),
+                    annotation("jdk.jfr.Category", new String[] {"Maven", "JDeps"}));
+
+            List<Object> fields = new ArrayList<>(type.fields.length);
+            for (Field field : type.fields) {
+                List<Object> fieldAnnotations = new ArrayList<>();
+                fieldAnnotations.add(annotation("jdk.jfr.Label", field.label));
+                if (field.timespan) {
+                    fieldAnnotations.add(annotation("jdk.jfr.Timespan", "NANOSECONDS"));
+                }
+                fields.add(valueDescriptor.newInstance(field.type, field.name, fieldAnnotations));
+            }
+            return create.invoke(null, annotations, fields);
+        }
+
+        private Object annotation(String annotationClass, Object value) throws ReflectiveOperationException {
+            return annotationElement.newInstance(Class.forName(annotationClass), value);
+        }
+
+        Object invoke(Method method, Object event, Object... args) {
+            try {
+                return method.invoke(event, args);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+}
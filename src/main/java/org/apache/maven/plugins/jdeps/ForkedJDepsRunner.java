@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Phase;
+import org.codehaus.plexus.util.cli.CommandLineCallable;
+import org.codehaus.plexus.util.cli.CommandLineException;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Runs jdeps in a process of its own. The process is killed if the running thread is interrupted.
+ */
+final class ForkedJDepsRunner implements JDepsRunner {
+
+    private final ExecutionMetrics executionMetrics;
+
+    private final Log log;
+
+    ForkedJDepsRunner(ExecutionMetrics executionMetrics, Log log) {
+        this.executionMetrics = executionMetrics;
+        this.log = log;
+    }
+
+    @Override
+    public int run(Set<Path> archives, Commandline cmd, StreamConsumer out, StreamConsumer err)
+            throws MojoExecutionException {
+        if (log.isDebugEnabled()) {
+            // no quoted arguments
+            log.debug("Executing: "
+                    + CommandLineUtils.toString(cmd.getCommandline()).replace("'", ""));
+        }
+
+        try {
+            long start = System.nanoTime();
+            CommandLineCallable process = CommandLineUtils.executeCommandLineAsCallable(cmd, null, out, err, 0);
+            executionMetrics.addTime(Phase.PROCESS_START, start);
+            return process.call();
+        } catch (CommandLineException e) {
+            throw new MojoExecutionException("Unable to execute jdeps command: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.jdeps.consumers.StreamConsumerWriter;
+import org.apache.maven.toolchain.Toolchain;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Runs jdeps of the running JDK in-process through the {@code java.util.spi.ToolProvider} API. jdeps ignores
+ * interrupts, once the analysis is stopped it fails at its next line of output instead.
+ */
+final class InProcessJDepsRunner implements JDepsRunner {
+
+    private final JDepsToolProvider jdepsTool;
+
+    private final BooleanSupplier stopped;
+
+    private final Log log;
+
+    /**
+     * @param jdepsTool the jdeps tool of the running JDK
+     * @param stopped whether the analysis has been stopped
+     * @param log the log
+     */
+    InProcessJDepsRunner(JDepsToolProvider jdepsTool, BooleanSupplier stopped, Log log) {
+        this.jdepsTool = jdepsTool;
+        this.stopped = stopped;
+        this.log = log;
+    }
+
+    /**
+     * jdeps can only run in-process if it belongs to the running JDK, i.e. when no toolchain is used or the toolchain
+     * refers to the same JDK.
+     *
+     * @param tc the toolchain, may be {@code null}
+     * @return the in-process jdeps tool, or {@code null} if jdeps must be forked
+     */
+    static JDepsToolProvider findTool(Toolchain tc) {
+        if (tc != null) {
+            String jdepsExecutable = tc.findTool("jdeps");
+            if (StringUtils.isEmpty(jdepsExecutable) || !isInRunningJavaHome(new File(jdepsExecutable))) {
+                return null;
+            }
+        }
+        return JDepsToolProvider.find();
+    }
+
+    private static boolean isInRunningJavaHome(File file) {
+        try {
+            Path javaHome = SystemUtils.getJavaHome().getCanonicalFile().toPath();
+            return file.getCanonicalFile().toPath().startsWith(javaHome);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public int run(Set<Path> archives, Commandline cmd, StreamConsumer out, StreamConsumer err)
+            throws MojoExecutionException {
+        if (log.isDebugEnabled()) {
+            log.debug("Running jdeps in-process through the ToolProvider API");
+            // no quoted arguments
+            log.debug("Executing: "
+                    + CommandLineUtils.toString(cmd.getCommandline()).replace("'", ""));
+        }
+
+        StreamConsumer stoppableOut = line -> {
+            if (stopped.getAsBoolean()) {
+                // not an IOException, which PrintWriter would swallow
+                throw new CancellationException("The analysis has been stopped");
+            }
+            out.consumeLine(line);
+        };
+        try (PrintWriter outWriter = new PrintWriter(new StreamConsumerWriter(stoppableOut));
+                PrintWriter errWriter = new PrintWriter(new StreamConsumerWriter(err))) {
+            return jdepsTool.run(outWriter, errWriter, cmd.getArguments());
+        } catch (InvocationTargetException e) {
+            throw new MojoExecutionException(
+                    "Unable to execute jdeps in-process: " + e.getCause().getMessage(), e.getCause());
+        } catch (CancellationException e) {
+            // thrown again for the last incomplete line
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps an index of the class files of a classes directory and their jdeps results between builds, so only the
+ * packages with added, modified or removed class files have to be analyzed again. Changes are detected per class file
+ * by size, modification time and content hash, but results are kept per package, because that's the granularity of
+ * the jdeps output: all class files of a changed package are analyzed again.
+ */
+final class IncrementalAnalysis {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path classesDirectory;
+
+    private final Path indexFile;
+
+    private final String analysisKey;
+
+    /**
+     * Relative path of the class file, separated by {@code /}, to its state.
+     */
+    private final Map<String, ClassFile> classFiles = new TreeMap<>();
+
+    private final Map<String, Map<String, String>> packageOffendingPackages = new TreeMap<>();
+
+    private final Map<String, Map<String, String>> packageProfiles = new TreeMap<>();
+
+    private final Set<String> packagesToAnalyze = new TreeSet<>();
+
+    private boolean supported = true;
+
+    private boolean fullAnalysis;
+
+    /**
+     * @param classesDirectory the classes directory to analyze
+     * @param indexFile the file containing the index of the previous build
+     * @param analysisKey identifies the jdeps version and analysis options, the index is discarded when it changes
+     */
+    IncrementalAnalysis(Path classesDirectory, Path indexFile, String analysisKey) {
+        this.classesDirectory = classesDirectory;
+        this.indexFile = indexFile;
+        this.analysisKey = analysisKey;
+    }
+
+    /**
+     * Compares the classes directory with the index of the previous build.
+     *
+     * @throws IOException if the classes directory can't be read
+     */
+    void scan() throws IOException {
+        Files.walkFileTree(classesDirectory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String relativePath = classesDirectory
+                        .relativize(file)
+                        .toString()
+                        .replace(file.getFileSystem().getSeparator(), "/");
+                if (relativePath.startsWith("META-INF/versions/") || "module-info.class".equals(relativePath)) {
+                    // jdeps reports these under another name than the classes directory
+                    supported = false;
+                } else if (relativePath.endsWith(".class")) {
+                    classFiles.put(
+                            relativePath,
+                            new ClassFile(attrs.size(), attrs.lastModifiedTime().toMillis()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        Map<String, ClassFile> previousClassFiles = new HashMap<>();
+        if (!readIndex(previousClassFiles)) {
+            fullAnalysis = true;
+            for (Map.Entry<String, ClassFile> classFile : classFiles.entrySet()) {
+                classFile.getValue().hash = AnalysisCache.hash(classesDirectory.resolve(classFile.getKey()));
+                packagesToAnalyze.add(getPackage(classFile.getKey()));
+            }
+            return;
+        }
+
+        for (Map.Entry<String, ClassFile> classFile : classFiles.entrySet()) {
+            ClassFile current = classFile.getValue();
+            ClassFile previous = previousClassFiles.remove(classFile.getKey());
+            if (previous != null && previous.size == current.size && previous.lastModified == current.lastModified) {
+                current.hash = previous.hash;
+            } else {
+                // compilers tend to rewrite unchanged class files, so only the content tells whether it changed
+                current.hash = AnalysisCache.hash(classesDirectory.resolve(classFile.getKey()));
+                if (previous == null || previous.size != current.size || !previous.hash.equals(current.hash)) {
+                    packagesToAnalyze.add(getPackage(classFile.getKey()));
+                }
+            }
+        }
+        for (String removedClassFile : previousClassFiles.keySet()) {
+            packagesToAnalyze.add(getPackage(removedClassFile));
+        }
+
+        packageOffendingPackages.keySet().removeAll(packagesToAnalyze);
+        packageProfiles.keySet().removeAll(packagesToAnalyze);
+
+        // analyzing the classes directory as a whole is cheaper than passing most of its class files one by one
+        fullAnalysis = getClassFilesToAnalyze().size() > classFiles.size() / 2;
+    }
+
+    Path getClassesDirectory() {
+        return classesDirectory;
+    }
+
+    /**
+     * @return {@code false} if the classes directory contains a module descriptor or multi-release classes
+     */
+    boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * @return {@code true} if the classes directory must be analyzed as a whole
+     */
+    boolean isFullAnalysis() {
+        return fullAnalysis;
+    }
+
+    /**
+     * @return the class files of all packages which have to be analyzed again
+     */
+    List<Path> getClassFilesToAnalyze() {
+        List<Path> classFilesToAnalyze = new ArrayList<>();
+        for (String classFile : classFiles.keySet()) {
+            if (packagesToAnalyze.contains(getPackage(classFile))) {
+                classFilesToAnalyze.add(classesDirectory.resolve(classFile));
+            }
+        }
+        return classFilesToAnalyze;
+    }
+
+    /**
+     * @return the names jdeps uses for the analyzed archives
+     */
+    Set<String> getArchiveNames() {
+        Set<Path> archives = new LinkedHashSet<>();
+        if (fullAnalysis) {
+            archives.add(classesDirectory);
+        } else {
+            archives.addAll(getClassFilesToAnalyze());
+        }
+
+        // JDK 8 prints the archive as passed to jdeps, later versions only print the file name
+        Set<String> archiveNames = new LinkedHashSet<>();
+        for (Path archive : archives) {
+            archiveNames.add(archive.getFileName().toString());
+            archiveNames.add(archive.toAbsolutePath().toString());
+        }
+        return archiveNames;
+    }
+
+    /**
+     * Registers the results of the analyzed packages.
+     *
+     * @param offendingPackagesByOrigin the offending packages per origin package or class
+     * @param profilesByOrigin the profiles per origin package or class
+     */
+    void update(
+            Map<String, Map<String, String>> offendingPackagesByOrigin,
+            Map<String, Map<String, String>> profilesByOrigin) {
+        addResults(offendingPackagesByOrigin, packageOffendingPackages);
+        addResults(profilesByOrigin, packageProfiles);
+    }
+
+    private void addResults(
+            Map<String, Map<String, String>> resultsByOrigin, Map<String, Map<String, String>> packageResults) {
+        for (Map.Entry<String, Map<String, String>> originResults : resultsByOrigin.entrySet()) {
+            String pkg = toAnalyzedPackage(originResults.getKey());
+            if (pkg != null) {
+                packageResults.computeIfAbsent(pkg, k -> new TreeMap<>()).putAll(originResults.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return the offending packages of all packages of the classes directory
+     */
+    Map<String, String> getOffendingPackages() {
+        return merge(packageOffendingPackages);
+    }
+
+    /**
+     * @return the profiles of all packages of the classes directory
+     */
+    Map<String, String> getProfiles() {
+        return merge(packageProfiles);
+    }
+
+    private static Map<String, String> merge(Map<String, Map<String, String>> packageResults) {
+        Map<String, String> results = new TreeMap<>();
+        for (Map<String, String> packageResult : packageResults.values()) {
+            results.putAll(packageResult);
+        }
+        return results;
+    }
+
+    /**
+     * Maps the origin reported by jdeps, which is a class for class-level output, to an analyzed package. Origins of
+     * other archives with the same name are ignored this way.
+     */
+    private String toAnalyzedPackage(String origin) {
+        if (packagesToAnalyze.contains(origin)) {
+            return origin;
+        }
+        int index = origin.lastIndexOf('.');
+        String pkg = index < 0 ? "" : origin.substring(0, index);
+        return packagesToAnalyze.contains(pkg) ? pkg : null;
+    }
+
+    private static String getPackage(String classFile) {
+        int index = classFile.lastIndexOf('/');
+        return index < 0 ? "" : classFile.substring(0, index).replace('/', '.');
+    }
+
+    /**
+     * @return {@code false} if there's no usable index
+     */
+    private boolean readIndex(Map<String, ClassFile> previousClassFiles) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != FORMAT_VERSION || !analysisKey.equals(in.readUTF())) {
+                return false;
+            }
+
+            int classFileCount = in.readInt();
+            for (int i = 0; i < classFileCount; i++) {
+                String relativePath = in.readUTF();
+                ClassFile classFile = new ClassFile(in.readLong(), in.readLong());
+                classFile.hash = in.readUTF();
+                previousClassFiles.put(relativePath, classFile);
+            }
+            readResults(in, packageOffendingPackages);
+            readResults(in, packageProfiles);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            // corrupt index, start over
+            previousClassFiles.clear();
+            packageOffendingPackages.clear();
+            packageProfiles.clear();
+            return false;
+        }
+    }
+
+    private static void readResults(DataInputStream in, Map<String, Map<String, String>> packageResults)
+            throws IOException {
+        int packageCount = in.readInt();
+        for (int i = 0; i < packageCount; i++) {
+            Map<String, String> results = new TreeMap<>();
+            packageResults.put(in.readUTF(), results);
+            StringMaps.read(in, results);
+        }
+    }
+
+    /**
+     * Stores the index for the next build, a build reading it concurrently sees either the previous or the complete
+     * index.
+     *
+     * @throws IOException if the index can't be written
+     */
+    void store() throws IOException {
+        AtomicFiles.write(indexFile, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(analysisKey);
+
+            out.writeInt(classFiles.size());
+            for (Map.Entry<String, ClassFile> classFile : classFiles.entrySet()) {
+                out.writeUTF(classFile.getKey());
+                out.writeLong(classFile.getValue().size);
+                out.writeLong(classFile.getValue().lastModified);
+                out.writeUTF(classFile.getValue().hash);
+            }
+            writeResults(out, packageOffendingPackages);
+            writeResults(out, packageProfiles);
+        });
+    }
+
+    private static void writeResults(DataOutputStream out, Map<String, Map<String, String>> packageResults)
+            throws IOException {
+        out.writeInt(packageResults.size());
+        for (Map.Entry<String, Map<String, String>> packageResult : packageResults.entrySet()) {
+            out.writeUTF(packageResult.getKey());
+            StringMaps.write(out, packageResult.getValue());
+        }
+    }
+
+    private static final class ClassFile {
+        private final long size;
+
+        private final long lastModified;
+
+        private String hash;
+
+        ClassFile(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -65,4 +65,9 @@ public class JDKInternalsMojo extends AbstractJDepsMojo {
 
         return classPath;
     }
+
+    @Override
+    MainResults.Mode getMainResultsMode() {
+        return MainResults.Mode.STORE;
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.apache.maven.toolchain.Toolchain;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+
+/**
+ * Locates the jdeps executable to fork.
+ */
+final class JDepsExecutable {
+
+    private JDepsExecutable() {}
+
+    /**
+     * Locates jdeps of the toolchain, or else of the running JDK, the JDK of {@code JAVA_HOME} or on the {@code PATH}.
+     *
+     * @param tc the toolchain, may be {@code null}
+     * @return the absolute path of the jdeps executable
+     * @throws IOException if jdeps can't be found
+     */
+    static String find(Toolchain tc) throws IOException {
+        String jdepsExecutable = null;
+        if (tc != null) {
+            jdepsExecutable = tc.findTool("jdeps");
+        }
+
+        String jdepsCommand = "jdeps" + (SystemUtils.IS_OS_WINDOWS ? ".exe" : "");
+
+        File jdepsExe;
+
+        if (StringUtils.isNotEmpty(jdepsExecutable)) {
+            jdepsExe = new File(jdepsExecutable);
+
+            if (jdepsExe.isDirectory()) {
+                jdepsExe = new File(jdepsExe, jdepsCommand);
+            }
+
+            if (SystemUtils.IS_OS_WINDOWS && jdepsExe.getName().indexOf('.') < 0) {
+                jdepsExe = new File(jdepsExe.getPath() + ".exe");
+            }
+
+            if (!jdepsExe.isFile()) {
+                throw new IOException("The jdeps executable '" + jdepsExe + "' doesn't exist or is not a file.");
+            }
+            return jdepsExe.getAbsolutePath();
+        }
+
+        jdepsExe = new File(SystemUtils.getJavaHome() + File.separator + ".." + File.separator + "sh", jdepsCommand);
+
+        // ----------------------------------------------------------------------
+        // Try to find jdepsExe from JAVA_HOME environment variable
+        // ----------------------------------------------------------------------
+        Properties env = CommandLineUtils.getSystemEnvVars();
+        if (!jdepsExe.exists() || !jdepsExe.isFile()) {
+            String javaHome = env.getProperty("JAVA_HOME");
+            if (!StringUtils.isEmpty(javaHome)) {
+                if ((!new File(javaHome).getCanonicalFile().exists())
+                        || (new File(javaHome).getCanonicalFile().isFile())) {
+                    throw new IOException("The environment variable JAVA_HOME=" + javaHome
+                            + " doesn't exist or is not a valid directory.");
+                }
+
+                jdepsExe = new File(javaHome + File.separator + "bin", jdepsCommand);
+            }
+        }
+
+        if (!jdepsExe.getCanonicalFile().exists()
+                || !jdepsExe.getCanonicalFile().isFile()) {
+            // ----------------------------------------------------------------------
+            // Try to find jdepsExe from PATH environment variable
+            // ----------------------------------------------------------------------
+            String path = env.getProperty("PATH");
+            if (path == null) {
+                path = env.getProperty("Path");
+            }
+            if (path == null) {
+                path = env.getProperty("path");
+            }
+            if (path != null) {
+                String[] pathDirs = path.split(File.pathSeparator);
+                for (String pathDir : pathDirs) {
+                    if (StringUtils.isBlank(pathDir)) {
+                        continue;
+                    }
+                    File pathJdepsExe = new File(pathDir, jdepsCommand);
+                    File canonicalPathJdepsExe = pathJdepsExe.getCanonicalFile();
+                    if (canonicalPathJdepsExe.exists()
+                            && canonicalPathJdepsExe.isFile()
+                            && canonicalPathJdepsExe.canExecute()) {
+                        return canonicalPathJdepsExe.getAbsolutePath();
+                    }
+                }
+            }
+
+            throw new IOException(
+                    "Unable to locate the jdeps executable. Verify that JAVA_HOME is set correctly or ensure that jdeps is available on the system PATH.");
+        }
+
+        if (!jdepsExe.canExecute()) {
+            throw new IOException("The jdeps executable '" + jdepsExe + "' is not executable.");
+        }
+        return jdepsExe.getAbsolutePath();
+    }
+}
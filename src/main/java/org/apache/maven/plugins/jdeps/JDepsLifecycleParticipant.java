@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Ends the {@link JDepsSessionContext} of a build once all projects have been built, closing the jdeps workers and
+ * summarizing the metrics in the log. Maven only runs it if the plugin is declared with
+ * {@code <extensions>true</extensions>} or as a core extension. Otherwise the workers exit once they are idle, and the
+ * metrics are only rolled up to {@code jdeps-metrics.json}, as nothing runs after the last module to log them in order
+ * with the rest of the build.
+ *
+ * @since 3.2.1
+ */
+@Named("jdeps")
+@Singleton
+public class JDepsLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+
+    @Override
+    public void afterSessionEnd(MavenSession session) {
+        JDepsSessionContext.sessionEnded(session);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Runs an analysis of archives, passing the output on line by line in the output format of jdeps: jdeps in a process
+ * of its own, in-process, in a worker JVM, or the bytecode engine in its place.
+ */
+interface JDepsRunner {
+
+    /**
+     * @param archives the archives to analyze
+     * @param cmd the jdeps command line analyzing the archives, {@code null} for the bytecode engine
+     * @param out the consumer of the standard output
+     * @param err the consumer of the error output
+     * @return the exit code of jdeps
+     * @throws MojoExecutionException if the analysis can't be run, or has been interrupted
+     */
+    int run(Set<Path> archives, Commandline cmd, StreamConsumer out, StreamConsumer err) throws MojoExecutionException;
+}
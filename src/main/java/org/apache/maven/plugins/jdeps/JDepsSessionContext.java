@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.toolchain.Toolchain;
+import org.eclipse.aether.SessionData;
+
+/**
+ * State shared by all executions of the plugin within a build, so parallel module builds resolve the same things only
+ * once. It's stored in the data of the repository session, which lives as long as the Maven session.
+ */
+final class JDepsSessionContext {
+
+    private static final String KEY = JDepsSessionContext.class.getName();
+
+    /**
+     * Toolchain key to jdeps executable.
+     */
+    private final ConcurrentMap<String, String> jdepsExecutables = new ConcurrentHashMap<>();
+
+    /**
+     * Toolchain requirements to the matching toolchain, if any.
+     */
+    private final ConcurrentMap<String, Optional<Toolchain>> toolchains = new ConcurrentHashMap<>();
+
+    /**
+     * Analysis key and archive to the result of its analysis.
+     */
+    private final ConcurrentMap<String, CompletableFuture<AnalysisCache.Result>> results = new ConcurrentHashMap<>();
+
+    /**
+     * Key of the archives of a module path to their module graph.
+     */
+    private final ConcurrentMap<String, ModuleGraph> moduleGraphs = new ConcurrentHashMap<>();
+
+    /**
+     * File in the build directory to the results of the main classes stored in it.
+     */
+    private final ConcurrentMap<Path, MainResults> mainResults = new ConcurrentHashMap<>();
+
+    /**
+     * Metrics of the executions which have finished, in the order they finished.
+     */
+    private final List<ExecutionMetrics> metrics = new ArrayList<>();
+
+    /**
+     * The file the metrics of all executions are written to, and the log to summarize them to when the session ends.
+     */
+    private Path rollUpFile;
+
+    private Log metricsLog;
+
+    /**
+     * JDK and JVM options to the worker running jdeps of that JDK.
+     */
+    private final Map<String, JDepsWorkerClient> workers = new HashMap<>();
+
+    private boolean ended;
+
+    /**
+     * @param session the Maven session
+     * @return the context of the session, created by the first execution asking for it
+     */
+    static JDepsSessionContext of(MavenSession session) {
+        SessionData data = session.getRepositorySession().getData();
+        while (true) {
+            JDepsSessionContext context = (JDepsSessionContext) data.get(KEY);
+            if (context != null) {
+                return context;
+            }
+            context = new JDepsSessionContext();
+            if (data.set(KEY, null, context)) {
+                return context;
+            }
+        }
+    }
+
+    /**
+     * Ends the context of the session, if an execution created one.
+     *
+     * @param session the Maven session which has ended
+     */
+    static void sessionEnded(MavenSession session) {
+        JDepsSessionContext context =
+                (JDepsSessionContext) session.getRepositorySession().getData().get(KEY);
+        if (context != null) {
+            context.sessionEnded();
+        }
+    }
+
+    /**
+     * @param toolchain the toolchain providing jdeps, may be {@code null}
+     * @param resolver locates the jdeps executable, only called once per toolchain
+     * @return the jdeps executable
+     * @throws IOException if the executable can't be found, which isn't remembered
+     */
+    String getJDepsExecutable(Toolchain toolchain, Resolver<String> resolver) throws IOException {
+        try {
+            return jdepsExecutables.computeIfAbsent(getKey(toolchain), k -> {
+                try {
+                    return resolver.resolve();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param key identifies the archives of the module path, see {@link ModuleGraph#getKey(java.util.Collection)}
+     * @param loader loads the module graph, only called once per key
+     * @return the module graph of the archives
+     * @throws IOException if the graph can't be loaded, which isn't remembered
+     */
+    ModuleGraph getModuleGraph(String key, Resolver<ModuleGraph> loader) throws IOException {
+        try {
+            return moduleGraphs.computeIfAbsent(key, k -> {
+                try {
+                    return loader.resolve();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param requirements describes the requested toolchain
+     * @param resolver finds the toolchain, only called once per requirements
+     * @return the toolchain, or {@code null} if there's none matching
+     */
+    Toolchain getToolchain(String requirements, Supplier<Toolchain> resolver) {
+        return toolchains
+                .computeIfAbsent(requirements, k -> Optional.ofNullable(resolver.get()))
+                .orElse(null);
+    }
+
+    /**
+     * @param analysisKey identifies the jdeps version and analysis options
+     * @param archive the absolute path of the archive
+     * @param result the result to register if there's none yet, the caller must complete it then
+     * @return the registered result
+     */
+    CompletableFuture<AnalysisCache.Result> getResult(
+            String analysisKey, Path archive, CompletableFuture<AnalysisCache.Result> result) {
+        CompletableFuture<AnalysisCache.Result> registered = results.putIfAbsent(analysisKey + '\n' + archive, result);
+        return registered != null ? registered : result;
+    }
+
+    /**
+     * Removes a failed result, so the next execution asking for it analyzes the archive again.
+     */
+    void removeResult(String analysisKey, Path archive, CompletableFuture<AnalysisCache.Result> result) {
+        results.remove(analysisKey + '\n' + archive, result);
+    }
+
+    /**
+     * @param file the file in the build directory containing the results of the main classes
+     * @return the results stored by an execution of this session, or {@code null}
+     */
+    MainResults getMainResults(Path file) {
+        return mainResults.get(file);
+    }
+
+    void putMainResults(Path file, MainResults results) {
+        mainResults.put(file, results);
+    }
+
+    /**
+     * Adds the metrics of an execution and rewrites the roll-up of all executions so far, so it's complete once the last
+     * execution has finished, however the executions of parallel module builds are ordered. The roll-up is summarized
+     * in the log when the session ends, which is only known if the plugin is declared as an extension.
+     *
+     * @param executionMetrics the metrics of the execution which has finished
+     * @param rollUpFile the file to write the metrics of all executions to
+     * @param log the log to summarize the metrics of all executions to
+     * @throws IOException if the file can't be written
+     */
+    synchronized void addMetrics(ExecutionMetrics executionMetrics, Path rollUpFile, Log log) throws IOException {
+        metrics.add(executionMetrics);
+        this.rollUpFile = rollUpFile;
+        this.metricsLog = log;
+        ExecutionMetrics.writeRollUp(rollUpFile, metrics);
+    }
+
+    /**
+     * @param key identifies the JDK and the options of the worker JVM
+     * @param starter starts the worker, only called once per key unless the worker exited or is about to exit for being
+     *        idle
+     * @return the worker, to be released once the execution is done with it
+     * @throws IOException if the worker can't be started
+     */
+    synchronized JDepsWorkerClient acquireWorker(String key, Resolver<JDepsWorkerClient> starter) throws IOException {
+        JDepsWorkerClient worker = workers.get(key);
+        if (worker != null && worker.users == 0 && worker.isIdleExpiring()) {
+            worker.close();
+            worker = null;
+        }
+        if (worker == null || !worker.isAlive()) {
+            worker = starter.resolve();
+            workers.put(key, worker);
+        }
+        worker.users++;
+        return worker;
+    }
+
+    /**
+     * @param worker the worker the execution is done with
+     * @throws IOException if the worker can't be closed
+     */
+    synchronized void releaseWorker(JDepsWorkerClient worker) throws IOException {
+        worker.users--;
+        if (worker.users == 0 && worker.closeWhenUnused) {
+            worker.close();
+        }
+    }
+
+    /**
+     * Closes the workers, those still in use once they are released. Later executions start new workers.
+     *
+     * @throws IOException if a worker can't be closed
+     */
+    synchronized void closeWorkers() throws IOException {
+        for (JDepsWorkerClient worker : workers.values()) {
+            worker.closeWhenUnused = true;
+            if (worker.users == 0) {
+                worker.close();
+            }
+        }
+        workers.clear();
+    }
+
+    /**
+     * Closes the workers and summarizes the metrics once all projects of the build have been built. Only called if the
+     * plugin is declared as an extension, otherwise the workers exit once they are idle, or with Maven, and the metrics
+     * are only written to the roll-up file. Only the first call has an effect.
+     */
+    synchronized void sessionEnded() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        try {
+            closeWorkers();
+        } catch (IOException e) {
+            // the workers exit with Maven anyway, once their standard input is closed
+        }
+        if (metrics.size() > 1) {
+            metricsLog.info(ExecutionMetrics.summarize(metrics, rollUpFile));
+        }
+    }
+
+    /**
+     * Java toolchains identify themselves by their home directory, other toolchains are only equal to themselves.
+     */
+    private static String getKey(Toolchain toolchain) {
+        return toolchain == null ? "" : toolchain.getType() + ':' + toolchain;
+    }
+
+    /**
+     * Resolves something which may fail.
+     *
+     * @param <T> the type of the result
+     */
+    interface Resolver<T> {
+        T resolve() throws IOException;
+    }
+}
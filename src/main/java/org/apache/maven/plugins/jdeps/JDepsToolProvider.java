@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+/**
+ * Runs jdeps inside the current JVM. The {@code java.util.spi.ToolProvider} API is only available since JDK 9, while
+ * the plugin still runs on JDK 8, hence it is accessed by reflection.
+ */
+final class JDepsToolProvider {
+
+    private final Object tool;
+
+    private final Method runMethod;
+
+    private JDepsToolProvider(Object tool, Method runMethod) {
+        this.tool = tool;
+        this.runMethod = runMethod;
+    }
+
+    /**
+     * @return the jdeps tool of the running JDK, or {@code null} if it can't be executed in-process
+     */
+    static JDepsToolProvider find() {
+        try {
+            Class<?> toolProviderClass = Class.forName("java.util.spi.ToolProvider");
+
+            Method findFirstMethod = toolProviderClass.getMethod("findFirst", String.class);
+            Optional<?> tool = (Optional<?>) findFirstMethod.invoke(null, "jdeps");
+            if (!tool.isPresent()) {
+                return null;
+            }
+
+            Method runMethod = toolProviderClass.getMethod("run", PrintWriter.class, PrintWriter.class, String[].class);
+            return new JDepsToolProvider(tool.get(), runMethod);
+        } catch (ClassNotFoundException
+                | NoSuchMethodException
+                | SecurityException
+                | IllegalAccessException
+                | IllegalArgumentException
+                | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param out the writer for the standard output of jdeps
+     * @param err the writer for the error output of jdeps
+     * @param args the jdeps arguments, without executable
+     * @return the exit code of jdeps
+     * @throws InvocationTargetException if jdeps failed with an exception
+     */
+    int run(PrintWriter out, PrintWriter err, String... args) throws InvocationTargetException {
+        try {
+            return (Integer) runMethod.invoke(tool, out, err, args);
+        } catch (IllegalAccessException e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs jdeps in a JVM of the JDK of a toolchain, so all executions of a build with that JDK share one JVM, with the
+ * classes of jdeps loaded and compiled once. Started by {@link JDepsWorkerClient} with only the plugin on the
+ * classpath, so it may only use classes of the JDK.
+ * <p>
+ * Requests are read from standard input: the request id, the number of arguments and the jdeps arguments. Requests
+ * run concurrently, their output is written to standard output as frames of the request id, the frame type and its
+ * content: a line of standard or error output, or the exit code of jdeps which ends the request. Every line is flushed
+ * once it's complete, so the client consumes the output while jdeps runs. Strings are written as length and UTF-8
+ * bytes, as a classpath may exceed the limit of {@link DataOutput#writeUTF(String)}.
+ * <p>
+ * A request id followed by {@link #CANCEL} instead of the number of arguments cancels that request: the thread running
+ * jdeps is interrupted, and the next line jdeps writes fails, so jdeps stops at the latest when it writes output. The
+ * request still ends with an exit code. The worker finishes the running requests and exits once standard input is
+ * closed, or once it had no request for the idle timeout in seconds passed as argument, if any. So a worker whose
+ * build isn't told to close it doesn't outlive the build for long in a JVM running many builds.
+ */
+public final class JDepsWorker {
+
+    static final int OUTPUT_LINE = 1;
+
+    static final int ERROR_LINE = 2;
+
+    static final int EXIT_CODE = 3;
+
+    static final int CANCEL = -1;
+
+    private final Object tool;
+
+    private final Method runMethod;
+
+    private final DataOutputStream frames;
+
+    private final Map<Integer, Request> pendingRequests = new ConcurrentHashMap<>();
+
+    /**
+     * When the last request has been read or has ended, in {@link System#nanoTime()}.
+     */
+    private volatile long lastActivity = System.nanoTime();
+
+    private JDepsWorker(Object tool, Method runMethod, DataOutputStream frames) {
+        this.tool = tool;
+        this.runMethod = runMethod;
+        this.frames = frames;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Class<?> toolProviderClass = Class.forName("java.util.spi.ToolProvider");
+        Optional<?> tool = (Optional<?>)
+                toolProviderClass.getMethod("findFirst", String.class).invoke(null, "jdeps");
+        Method runMethod = toolProviderClass.getMethod("run", PrintWriter.class, PrintWriter.class, String[].class);
+
+        // only frames may be written to standard output
+        DataOutputStream frames =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024));
+        System.setOut(System.err);
+
+        JDepsWorker worker = new JDepsWorker(tool.get(), runMethod, frames);
+        long idleTimeout = args.length > 0 ? TimeUnit.SECONDS.toNanos(Long.parseLong(args[0])) : 0;
+        if (idleTimeout > 0) {
+            Thread idleExit = new Thread(() -> worker.exitWhenIdle(idleTimeout), "jdeps-worker-idle-exit");
+            idleExit.setDaemon(true);
+            idleExit.start();
+        }
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try (DataInputStream requests = new DataInputStream(new BufferedInputStream(System.in))) {
+            while (true) {
+                int id;
+                try {
+                    id = requests.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                worker.lastActivity = System.nanoTime();
+                int argumentCount = requests.readInt();
+                if (argumentCount == CANCEL) {
+                    worker.cancel(id);
+                    continue;
+                }
+                String[] arguments = new String[argumentCount];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = readString(requests);
+                }
+                Request request = new Request();
+                worker.pendingRequests.put(id, request);
+                executor.execute(() -> worker.run(id, request, arguments));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        }
+    }
+
+    /**
+     * Exits once no request has been pending for the idle timeout. A request being read counts as activity, so it's
+     * not lost, unless it's read in the moment the worker exits: the client starts a new worker well before then.
+     */
+    private void exitWhenIdle(long idleTimeout) {
+        while (true) {
+            long idle = System.nanoTime() - lastActivity;
+            if (idle >= idleTimeout && pendingRequests.isEmpty()) {
+                System.exit(0);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(idle < idleTimeout ? idleTimeout - idle : idleTimeout);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void cancel(int id) {
+        Request request = pendingRequests.get(id);
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    private void run(int id, Request request, String[] arguments) {
+        try {
+            writeExitCode(id, request.start() ? runJDeps(id, request, arguments) : -1);
+        } finally {
+            lastActivity = System.nanoTime();
+            pendingRequests.remove(id);
+            request.finish();
+        }
+    }
+
+    private int runJDeps(int id, Request request, String[] arguments) {
+        int exitCode;
+        try (PrintWriter out = new PrintWriter(new FrameWriter(id, request, OUTPUT_LINE));
+                PrintWriter err = new PrintWriter(new FrameWriter(id, request, ERROR_LINE))) {
+            try {
+                exitCode = (Integer) runMethod.invoke(tool, out, err, arguments);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                err.println("Unable to execute jdeps in the worker: " + cause);
+                exitCode = -1;
+            }
+        } catch (CancellationException e) {
+            // thrown by the last line of a cancelled request
+            exitCode = -1;
+        }
+        return exitCode;
+    }
+
+    private void writeExitCode(int id, int exitCode) {
+        try {
+            synchronized (frames) {
+                frames.writeInt(id);
+                frames.writeByte(EXIT_CODE);
+                frames.writeInt(exitCode);
+                frames.flush();
+            }
+        } catch (IOException e) {
+            // the client is gone
+            System.exit(1);
+        }
+    }
+
+    private void writeLine(int id, Request request, int type, String line) throws IOException {
+        if (request.cancelled) {
+            // not an IOException, which PrintWriter would swallow
+            throw new CancellationException("The request has been cancelled");
+        }
+        synchronized (frames) {
+            frames.writeInt(id);
+            frames.writeByte(type);
+            writeString(frames, line);
+            frames.flush();
+        }
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A request which has been read, until it has ended.
+     */
+    private static final class Request {
+        private volatile boolean cancelled;
+
+        private Thread thread;
+
+        /**
+         * @return whether to run jdeps, {@code false} if the request has been cancelled before it started
+         */
+        synchronized boolean start() {
+            thread = Thread.currentThread();
+            return !cancelled;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        synchronized void finish() {
+            thread = null;
+            // the thread runs the next request, which hasn't been cancelled
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Writes every line as a frame of its own, once it's complete.
+     */
+    private final class FrameWriter extends Writer {
+        private final int id;
+
+        private final Request request;
+
+        private final int type;
+
+        private final StringBuilder line = new StringBuilder();
+
+        FrameWriter(int id, Request request, int type) {
+            this.id = id;
+            this.request = request;
+            this.type = type;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                char c = cbuf[i];
+                if (c == '\n') {
+                    writeLine();
+                } else if (c != '\r') {
+                    line.append(c);
+                }
+            }
+        }
+
+        private void writeLine() throws IOException {
+            JDepsWorker.this.writeLine(id, request, type, line.toString());
+            line.setLength(0);
+        }
+
+        @Override
+        public void flush() {
+            // complete lines are flushed already, an incomplete line is written once it's complete
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (line.length() > 0) {
+                writeLine();
+            }
+        }
+    }
+}
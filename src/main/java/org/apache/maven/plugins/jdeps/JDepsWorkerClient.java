@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * A {@link JDepsWorker} process, running the requests of all executions of a build with the JDK of the worker. The
+ * output of the requests is passed on to their consumers by a single thread, as it's read from the worker.
+ */
+final class JDepsWorkerClient implements Closeable {
+
+    private final Process process;
+
+    private final DataOutputStream requests;
+
+    private final Map<Integer, Request> pendingRequests = new ConcurrentHashMap<>();
+
+    private final AtomicInteger requestIds = new AtomicInteger();
+
+    /**
+     * The time without requests after which the worker exits, in nanoseconds, {@code 0} if it only exits when closed.
+     */
+    private final long idleTimeout;
+
+    /**
+     * When the last request has been sent or has ended, in {@link System#nanoTime()}.
+     */
+    private volatile long lastActivity = System.nanoTime();
+
+    /**
+     * Set once the worker has exited, before the pending requests fail.
+     */
+    private volatile IOException failure;
+
+    /**
+     * The number of executions using the worker, guarded by the {@link JDepsSessionContext}.
+     */
+    int users;
+
+    /**
+     * Whether to close the worker once no execution uses it anymore, guarded by the {@link JDepsSessionContext}.
+     */
+    boolean closeWhenUnused;
+
+    private JDepsWorkerClient(Process process, long idleTimeout) {
+        this.process = process;
+        this.idleTimeout = idleTimeout;
+        this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+
+        startDaemon("jdeps-worker-output", this::readFrames);
+        // JVM warnings only, the worker writes the error output of jdeps as frames
+        startDaemon("jdeps-worker-error", () -> drain(process.getErrorStream()));
+    }
+
+    /**
+     * @param javaExecutable the java launcher of the JDK to run jdeps of, at least JDK 9
+     * @param jvmOptions the options of the worker JVM
+     * @param idleTimeout the seconds without requests after which the worker exits, {@code 0} to only exit when closed
+     * @return the started worker
+     * @throws IOException if the worker can't be started
+     */
+    static JDepsWorkerClient start(String javaExecutable, List<String> jvmOptions, int idleTimeout) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable);
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(getPluginClassPath());
+        command.add(JDepsWorker.class.getName());
+        command.add(String.valueOf(idleTimeout));
+        return new JDepsWorkerClient(new ProcessBuilder(command).start(), TimeUnit.SECONDS.toNanos(idleTimeout));
+    }
+
+    private static String getPluginClassPath() throws IOException {
+        try {
+            return Paths.get(JDepsWorker.class
+                            .getProtectionDomain()
+                            .getCodeSource()
+                            .getLocation()
+                            .toURI())
+                    .toString();
+        } catch (URISyntaxException | RuntimeException e) {
+            throw new IOException("Unable to locate the plugin: " + e.getMessage(), e);
+        }
+    }
+
+    boolean isAlive() {
+        return failure == null;
+    }
+
+    /**
+     * @return whether the worker has been idle for half its idle timeout, so it might exit before a new request reaches
+     *         it
+     */
+    boolean isIdleExpiring() {
+        return idleTimeout > 0 && pendingRequests.isEmpty() && System.nanoTime() - lastActivity >= idleTimeout / 2;
+    }
+
+    /**
+     * Executes jdeps in the worker.
+     *
+     * @param arguments the jdeps arguments, without executable
+     * @param out the consumer of the standard output of jdeps
+     * @param err the consumer of the error output of jdeps
+     * @return the exit code of jdeps
+     * @throws IOException if the worker failed
+     * @throws InterruptedException if interrupted while waiting for jdeps, which is cancelled in the worker then. jdeps
+     *         stops once it notices the interrupt, at the latest when it writes its next line of output
+     */
+    int run(String[] arguments, StreamConsumer out, StreamConsumer err) throws IOException, InterruptedException {
+        int id = requestIds.incrementAndGet();
+        Request request = new Request(out, err);
+        pendingRequests.put(id, request);
+        lastActivity = System.nanoTime();
+        try {
+            synchronized (requests) {
+                requests.writeInt(id);
+                requests.writeInt(arguments.length);
+                for (String argument : arguments) {
+                    JDepsWorker.writeString(requests, argument);
+                }
+                requests.flush();
+            }
+            if (failure != null) {
+                // the worker has exited before the request has been registered
+                request.exitCode.completeExceptionally(failure);
+            }
+            try {
+                return request.exitCode.get();
+            } catch (InterruptedException e) {
+                cancel(id);
+                throw e;
+            }
+        } catch (ExecutionException e) {
+            throw (IOException) e.getCause();
+        } finally {
+            lastActivity = System.nanoTime();
+            pendingRequests.remove(id);
+        }
+    }
+
+    private void cancel(int id) {
+        synchronized (requests) {
+            try {
+                requests.writeInt(id);
+                requests.writeInt(JDepsWorker.CANCEL);
+                requests.flush();
+            } catch (IOException e) {
+                // the worker has exited or is closed, the request ends with it
+            }
+        }
+    }
+
+    private void readFrames() {
+        IOException exited = new IOException("The jdeps worker has exited");
+        try (DataInputStream frames = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+            while (true) {
+                int id = frames.readInt();
+                int type = frames.readByte();
+                Request request = pendingRequests.get(id);
+                if (type == JDepsWorker.EXIT_CODE) {
+                    int exitCode = frames.readInt();
+                    if (request != null) {
+                        request.exitCode.complete(exitCode);
+                    }
+                } else {
+                    String line = JDepsWorker.readString(frames);
+                    // requests stopped by an interrupt or a failed consumer are no longer pending
+                    if (request != null && !request.exitCode.isDone()) {
+                        consumeLine(id, request, type, line);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (e.getMessage() != null) {
+                exited = new IOException("The jdeps worker has exited: " + e.getMessage(), e);
+            }
+        }
+        failure = exited;
+        for (Request request : pendingRequests.values()) {
+            request.exitCode.completeExceptionally(exited);
+        }
+    }
+
+    /**
+     * Passes a line on to the consumer of the request. If the consumer fails, only the request fails, and it's cancelled
+     * in the worker, whose further output of it is discarded.
+     */
+    private void consumeLine(int id, Request request, int type, String line) {
+        try {
+            (type == JDepsWorker.OUTPUT_LINE ? request.out : request.err).consumeLine(line);
+        } catch (IOException | RuntimeException e) {
+            request.exitCode.completeExceptionally(
+                    new IOException("Unable to consume the jdeps output: " + e.getMessage(), e));
+            cancel(id);
+        }
+    }
+
+    private static void drain(InputStream in) {
+        byte[] buffer = new byte[8192];
+        try {
+            while (in.read(buffer) >= 0) {
+                // discard
+            }
+        } catch (IOException e) {
+            // the worker has exited
+        }
+    }
+
+    private static void startDaemon(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Closes the standard input of the worker, which exits once it finished the running requests.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (requests) {
+            try {
+                requests.close();
+            } catch (IOException e) {
+                // requests the exited worker couldn't take anymore
+                if (process.isAlive()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static final class Request {
+        private final StreamConsumer out;
+
+        private final StreamConsumer err;
+
+        private final CompletableFuture<Integer> exitCode = new CompletableFuture<>();
+
+        Request(StreamConsumer out, StreamConsumer err) {
+            this.out = out;
+            this.err = err;
+        }
+    }
+}
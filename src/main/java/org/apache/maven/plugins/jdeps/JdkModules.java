@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The packages of the modules of a JDK, to which modules they are exported, and the JDK 8 internal API removed since,
+ * read from the {@code jrt:/} file system of the JDK. As this takes a while, the result is kept in memory and stored
+ * in a binary index per JDK installation.
+ */
+final class JdkModules {
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final Map<String, JdkModules> LOADED = new ConcurrentHashMap<>();
+
+    /**
+     * jdeps reports every package of this module as JDK internal API, even though they are exported.
+     */
+    private static final String JDK_UNSUPPORTED = "jdk.unsupported";
+
+    /**
+     * The packages of JDK 8 which jdeps reports as JDK removed internal API if a class of them isn't found.
+     */
+    private static final String JDK8_INTERNALS = "jdk.jdeps/com/sun/tools/jdeps/resources/jdk8_internals.txt";
+
+    /**
+     * Package name to module name.
+     */
+    private final Map<String, String> packageModules;
+
+    /**
+     * Exported package name to the modules it's exported to, none if it's exported to all modules.
+     */
+    private final Map<String, Set<String>> exports;
+
+    /**
+     * The packages of JDK 8 internal API, empty if the JDK doesn't contain jdeps.
+     */
+    private final Set<String> jdk8InternalPackages;
+
+    /**
+     * The classes the JDK still contains of the packages of JDK 8 internal API, in internal form, e.g.
+     * {@code sun/misc/Unsafe}.
+     */
+    private final Set<String> jdk8InternalClasses;
+
+    JdkModules(
+            Map<String, String> packageModules,
+            Map<String, Set<String>> exports,
+            Set<String> jdk8InternalPackages,
+            Set<String> jdk8InternalClasses) {
+        this.packageModules = packageModules;
+        this.exports = exports;
+        this.jdk8InternalPackages = jdk8InternalPackages;
+        this.jdk8InternalClasses = jdk8InternalClasses;
+    }
+
+    /**
+     * @param javaHome the JDK directory
+     * @param indexDirectory the directory containing the indexes of JDKs
+     * @return the modules of the JDK, or {@code null} if it isn't a modular JDK
+     * @throws IOException if the modules can't be read
+     */
+    static JdkModules load(File javaHome, Path indexDirectory) throws IOException {
+        if (!new File(javaHome, "lib/jrt-fs.jar").isFile()) {
+            return null;
+        }
+
+        // the release changes with every update installed in place
+        String key = javaHome.getAbsolutePath() + '\n' + JdkRelease.describe(javaHome);
+        JdkModules jdkModules = LOADED.get(key);
+        if (jdkModules != null) {
+            return jdkModules;
+        }
+
+        Path indexFile = indexDirectory.resolve(AnalysisCache.hash(key.getBytes(StandardCharsets.UTF_8)) + ".index");
+        jdkModules = readIndex(indexFile, key);
+        if (jdkModules == null) {
+            jdkModules = load(javaHome);
+            jdkModules.writeIndex(indexFile, key);
+        }
+        LOADED.put(key, jdkModules);
+        return jdkModules;
+    }
+
+    /**
+     * @param javaHome the JDK directory
+     * @return the modules of the JDK, read from its {@code jrt:/} file system
+     * @throws IOException if the modules can't be read
+     */
+    static JdkModules load(File javaHome) throws IOException {
+        File jrtFs = new File(javaHome, "lib/jrt-fs.jar");
+
+        // the jrt file system of another JDK is provided by its own jrt-fs.jar, which Java 8 can only load this way
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {jrtFs.toURI().toURL()}, null);
+                FileSystem jrt = FileSystems.newFileSystem(
+                        URI.create("jrt:/"),
+                        Collections.singletonMap("java.home", javaHome.getAbsolutePath()),
+                        loader)) {
+            return read(jrt.getPath("/"));
+        } catch (IOException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to open the modules of " + javaHome + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param root the root of a {@code jrt:/} file system
+     */
+    static JdkModules read(Path root) throws IOException {
+        Map<String, String> packageModules = new HashMap<>();
+        try (DirectoryStream<Path> packages = Files.newDirectoryStream(root.resolve("packages"))) {
+            for (Path pkg : packages) {
+                String packageName = getName(pkg);
+                try (DirectoryStream<Path> modules = Files.newDirectoryStream(pkg)) {
+                    for (Path module : modules) {
+                        // modules are listed for the parent packages of their packages as well
+                        if (containsClasses(root.resolve("modules")
+                                .resolve(getName(module))
+                                .resolve(packageName.replace('.', '/')))) {
+                            packageModules.put(packageName, getName(module));
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<String, Set<String>> exports = new HashMap<>();
+        try (DirectoryStream<Path> modules = Files.newDirectoryStream(root.resolve("modules"))) {
+            for (Path module : modules) {
+                Path moduleInfo = module.resolve("module-info.class");
+                if (Files.isRegularFile(moduleInfo)) {
+                    for (Map.Entry<String, List<String>> export : new ClassFileReader(Files.readAllBytes(moduleInfo))
+                            .getExports()
+                            .entrySet()) {
+                        exports.put(export.getKey().replace('/', '.'), new HashSet<>(export.getValue()));
+                    }
+                }
+            }
+        }
+
+        // the list jdeps itself uses, which only exists in a JDK containing jdeps
+        Set<String> jdk8InternalPackages = new HashSet<>();
+        Set<String> jdk8InternalClasses = new HashSet<>();
+        Path jdk8Internals = root.resolve("modules").resolve(JDK8_INTERNALS);
+        if (Files.isRegularFile(jdk8Internals)) {
+            for (String line : Files.readAllLines(jdk8Internals, StandardCharsets.UTF_8)) {
+                String pkg = line.trim();
+                if (pkg.isEmpty() || pkg.startsWith("#")) {
+                    continue;
+                }
+                jdk8InternalPackages.add(pkg);
+                String module = packageModules.get(pkg);
+                if (module != null) {
+                    String packagePath = pkg.replace('.', '/');
+                    try (DirectoryStream<Path> classFiles = Files.newDirectoryStream(
+                            root.resolve("modules").resolve(module).resolve(packagePath), "*.class")) {
+                        for (Path classFile : classFiles) {
+                            String fileName = getName(classFile);
+                            jdk8InternalClasses.add(
+                                    packagePath + '/' + fileName.substring(0, fileName.length() - ".class".length()));
+                        }
+                    }
+                }
+            }
+        }
+        return new JdkModules(packageModules, exports, jdk8InternalPackages, jdk8InternalClasses);
+    }
+
+    /**
+     * @return the index, or {@code null} if there's no usable index
+     */
+    static JdkModules readIndex(Path indexFile, String key) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+
+            String[] modules = new String[in.readUnsignedShort()];
+            for (int i = 0; i < modules.length; i++) {
+                modules[i] = in.readUTF();
+            }
+
+            int packageCount = in.readInt();
+            Map<String, String> packageModules = new HashMap<>(packageCount * 2);
+            Map<String, Set<String>> exports = new HashMap<>();
+            for (int i = 0; i < packageCount; i++) {
+                String pkg = in.readUTF();
+                packageModules.put(pkg, modules[in.readUnsignedShort()]);
+                if (in.readBoolean()) {
+                    Set<String> targets = new HashSet<>();
+                    for (int j = in.readUnsignedShort(); j > 0; j--) {
+                        targets.add(modules[in.readUnsignedShort()]);
+                    }
+                    exports.put(pkg, targets);
+                }
+            }
+
+            Set<String> jdk8InternalPackages = readStrings(in, new HashSet<>());
+            Set<String> jdk8InternalClasses = readStrings(in, new HashSet<>());
+            return new JdkModules(packageModules, exports, jdk8InternalPackages, jdk8InternalClasses);
+        } catch (IOException | ArrayIndexOutOfBoundsException e) {
+            // missing or corrupt index, read the JDK again
+            return null;
+        }
+    }
+
+    private static Set<String> readStrings(DataInputStream in, Set<String> strings) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            strings.add(in.readUTF());
+        }
+        return strings;
+    }
+
+    /**
+     * Writes the index as a table of module names followed by every package with the index of its module, whether
+     * it's exported and the indexes of the modules it's exported to, then the packages of JDK 8 internal API and their
+     * classes the JDK still contains.
+     */
+    void writeIndex(Path indexFile, String key) throws IOException {
+        Set<String> moduleNames = new TreeSet<>(packageModules.values());
+        for (Set<String> targets : exports.values()) {
+            moduleNames.addAll(targets);
+        }
+        Map<String, Integer> moduleIndexes = new TreeMap<>();
+        for (String module : moduleNames) {
+            moduleIndexes.put(module, moduleIndexes.size());
+        }
+
+        AtomicFiles.write(indexFile, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeShort(moduleIndexes.size());
+            for (String module : moduleIndexes.keySet()) {
+                out.writeUTF(module);
+            }
+            out.writeInt(packageModules.size());
+            for (Map.Entry<String, String> packageModule : new TreeMap<>(packageModules).entrySet()) {
+                out.writeUTF(packageModule.getKey());
+                out.writeShort(moduleIndexes.get(packageModule.getValue()));
+                Set<String> targets = exports.get(packageModule.getKey());
+                out.writeBoolean(targets != null);
+                if (targets != null) {
+                    out.writeShort(targets.size());
+                    for (String target : new TreeSet<>(targets)) {
+                        out.writeShort(moduleIndexes.get(target));
+                    }
+                }
+            }
+            writeStrings(out, jdk8InternalPackages);
+            writeStrings(out, jdk8InternalClasses);
+        });
+    }
+
+    private static void writeStrings(DataOutputStream out, Set<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : new TreeSet<>(strings)) {
+            out.writeUTF(string);
+        }
+    }
+
+    private static boolean containsClasses(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        try (DirectoryStream<Path> classFiles = Files.newDirectoryStream(directory, "*.class")) {
+            return classFiles.iterator().hasNext();
+        }
+    }
+
+    private static String getName(Path path) {
+        // directories of the jrt file system end with a slash on some versions
+        String name = path.getFileName().toString();
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    /**
+     * @param pkg the package name, e.g. {@code java.lang}
+     * @return the module containing the package, or {@code null} if it isn't part of the JDK
+     */
+    String getModule(String pkg) {
+        return packageModules.get(pkg);
+    }
+
+    /**
+     * @param pkg the package name, e.g. {@code sun.misc}
+     * @return {@code true} if the package is part of the JDK and jdeps would report it as JDK internal API
+     */
+    boolean isInternal(String pkg) {
+        String module = packageModules.get(pkg);
+        return module != null && (JDK_UNSUPPORTED.equals(module) || !isExported(pkg, null));
+    }
+
+    /**
+     * @param pkg the package name, e.g. {@code jdk.internal.misc}
+     * @param module the name of the reading module, or {@code null} for the unnamed module
+     * @return {@code true} if the package is exported to all modules, or to the given one by a qualified export
+     */
+    boolean isExported(String pkg, String module) {
+        Set<String> targets = exports.get(pkg);
+        return targets != null && (targets.isEmpty() || targets.contains(module));
+    }
+
+    /**
+     * jdeps reports a class as JDK removed internal API if its package was JDK internal API in JDK 8, but the class
+     * can't be found anymore, even if other classes of the package remain, e.g. {@code sun.misc.BASE64Encoder}.
+     *
+     * @param className the internal name of a class, e.g. {@code sun/misc/BASE64Encoder}
+     * @return {@code true} if jdeps would report the class as JDK removed internal API
+     */
+    boolean isRemovedInternal(String className) {
+        int index = className.lastIndexOf('/');
+        return index > 0
+                && jdk8InternalPackages.contains(className.substring(0, index).replace('/', '.'))
+                && !jdk8InternalClasses.contains(className);
+    }
+}
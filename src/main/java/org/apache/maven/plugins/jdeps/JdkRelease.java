@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+/**
+ * Identifies a JDK installation by its {@code release} file, without having to execute any of its tools.
+ */
+final class JdkRelease {
+
+    private static final String[] KEYS = {"IMPLEMENTOR", "JAVA_VERSION", "JAVA_RUNTIME_VERSION", "BUILD_TYPE"};
+
+    private JdkRelease() {}
+
+    /**
+     * @param javaHome the JDK directory, or its {@code jre} directory for JDK 8
+     * @return a description which changes with every update of the JDK
+     */
+    static String describe(File javaHome) {
+        Properties release = load(javaHome);
+        if (release == null) {
+            // no release file, fall back to the installation itself
+            return javaHome.getAbsolutePath() + ':' + javaHome.lastModified();
+        }
+
+        StringBuilder description = new StringBuilder();
+        for (String key : KEYS) {
+            String value = release.getProperty(key);
+            if (value != null) {
+                if (description.length() > 0) {
+                    description.append(';');
+                }
+                description.append(key).append('=').append(value.replace("\"", ""));
+            }
+        }
+        return description.toString();
+    }
+
+    /**
+     * @param javaHome the JDK directory, or its {@code jre} directory for JDK 8
+     * @return the feature version of the JDK, e.g. {@code 8} or {@code 17}, or {@code -1} if unknown
+     */
+    static int getFeatureVersion(File javaHome) {
+        Properties release = load(javaHome);
+        String version = release == null ? null : release.getProperty("JAVA_VERSION");
+        if (version == null) {
+            return -1;
+        }
+
+        version = version.replace("\"", "");
+        if (version.startsWith("1.")) {
+            version = version.substring(2);
+        }
+        int end = 0;
+        while (end < version.length() && Character.isDigit(version.charAt(end))) {
+            end++;
+        }
+        return end == 0 ? -1 : Integer.parseInt(version.substring(0, end));
+    }
+
+    private static Properties load(File javaHome) {
+        File releaseFile = new File(javaHome, "release");
+        if (!releaseFile.isFile() && javaHome.getParentFile() != null) {
+            releaseFile = new File(javaHome.getParentFile(), "release");
+        }
+
+        Properties release = new Properties();
+        try (InputStream in = Files.newInputStream(releaseFile.toPath())) {
+            release.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        return release;
+    }
+
+    /**
+     * @param jdepsExecutable the jdeps executable in the {@code bin} directory of a JDK
+     * @return the JDK directory
+     */
+    static File getJavaHome(String jdepsExecutable) {
+        return new File(jdepsExecutable).getAbsoluteFile().getParentFile().getParentFile();
+    }
+}
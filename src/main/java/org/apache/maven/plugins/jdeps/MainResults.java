@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+
+/**
+ * The results of the archives analyzed for the main classes, kept in the build directory and the session, so the
+ * analysis of the test classes only has to analyze the test classes and the test dependencies. Archives are identified
+ * by their absolute path and a fingerprint of their size and modification time, or those of their files for
+ * directories, so results of archives changed since are not reused.
+ */
+final class MainResults {
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Whether a goal stores its results for others or reuses the stored results.
+     */
+    enum Mode {
+        STORE,
+        REUSE
+    }
+
+    private final String analysisKey;
+
+    private final Map<Path, Archive> archives = new LinkedHashMap<>();
+
+    private MainResults(String analysisKey) {
+        this.analysisKey = analysisKey;
+    }
+
+    /**
+     * Collects the results of the archives jdeps identifies uniquely by their file name.
+     *
+     * @param analysisKey identifies the jdeps version and analysis options
+     * @param analyzedArchives every archive the results cover, whether analyzed or reused
+     * @param consumer the results
+     * @param incrementalAnalysis the incremental analysis of the classes directory, its results aren't attributed to
+     *            the classes directory by the consumer, or {@code null}
+     * @return the results
+     */
+    static MainResults of(
+            String analysisKey,
+            Collection<Path> analyzedArchives,
+            JDepsConsumer consumer,
+            IncrementalAnalysis incrementalAnalysis) {
+        Map<Path, Integer> fileNames = new HashMap<>();
+        for (Path archive : analyzedArchives) {
+            fileNames.merge(archive.getFileName(), 1, Integer::sum);
+        }
+
+        MainResults mainResults = new MainResults(analysisKey);
+        for (Path archive : analyzedArchives) {
+            if (fileNames.get(archive.getFileName()) > 1) {
+                continue;
+            }
+            AnalysisCache.Result result = AnalysisCache.Result.of(consumer, archive);
+            if (incrementalAnalysis != null && archive.equals(incrementalAnalysis.getClassesDirectory())) {
+                result.getOffendingPackages().putAll(incrementalAnalysis.getOffendingPackages());
+                result.getProfiles().putAll(incrementalAnalysis.getProfiles());
+            }
+            try {
+                mainResults.archives.put(
+                        archive.toAbsolutePath(), new Archive(AnalysisCache.fingerprint(archive), result));
+            } catch (IOException e) {
+                // analyzed again for the test classes
+            }
+        }
+        return mainResults;
+    }
+
+    /**
+     * @param analysisKey identifies the jdeps version and analysis options
+     * @return {@code true} if the results have been found with the same jdeps version and analysis options
+     */
+    boolean matches(String analysisKey) {
+        return this.analysisKey.equals(analysisKey);
+    }
+
+    /**
+     * @param dependenciesToAnalyze the archives to analyze
+     * @return the results of the archives which are unchanged since they were analyzed for the main classes
+     * @throws IOException if an archive can't be read
+     */
+    Map<Path, AnalysisCache.Result> getResults(Collection<Path> dependenciesToAnalyze) throws IOException {
+        Map<Path, AnalysisCache.Result> results = new LinkedHashMap<>();
+        for (Path dependencyToAnalyze : dependenciesToAnalyze) {
+            Archive archive = archives.get(dependencyToAnalyze.toAbsolutePath());
+            if (archive != null && archive.fingerprint.equals(AnalysisCache.fingerprint(dependencyToAnalyze))) {
+                results.put(dependencyToAnalyze, archive.result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param context the session, containing the results stored by earlier executions
+     * @param file the file in the build directory containing the results of the main classes
+     * @param analysisKey identifies the jdeps version and analysis options
+     * @param dependenciesToAnalyze the archives to analyze
+     * @param log the log
+     * @return the results of the archives which are unchanged since they were analyzed for the main classes
+     */
+    static Map<Path, AnalysisCache.Result> reuse(
+            JDepsSessionContext context,
+            Path file,
+            String analysisKey,
+            Collection<Path> dependenciesToAnalyze,
+            Log log) {
+        MainResults mainResults = context.getMainResults(file);
+        if (mainResults == null) {
+            mainResults = read(file);
+        }
+        if (mainResults == null || !mainResults.matches(analysisKey)) {
+            log.debug("No results of the main classes to reuse in " + file);
+            return Collections.emptyMap();
+        }
+        try {
+            Map<Path, AnalysisCache.Result> results = mainResults.getResults(dependenciesToAnalyze);
+            log.debug("Reusing the results of " + results.size() + " archives analyzed for the main classes");
+            return results;
+        } catch (IOException e) {
+            log.warn("Unable to reuse the results of the main classes: " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Keeps the results in the session and the build directory.
+     *
+     * @param context the session
+     * @param file the file in the build directory to write
+     * @param mainResults the results of the main classes
+     * @param log the log
+     */
+    static void store(JDepsSessionContext context, Path file, MainResults mainResults, Log log) {
+        context.putMainResults(file, mainResults);
+        try {
+            mainResults.write(file);
+        } catch (IOException e) {
+            log.warn("Unable to store the results of the main classes: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param file the file to read
+     * @return the results, or {@code null} if there's no usable file
+     */
+    static MainResults read(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            MainResults mainResults = new MainResults(in.readUTF());
+            int archiveCount = in.readInt();
+            for (int i = 0; i < archiveCount; i++) {
+                Path archive = Paths.get(in.readUTF());
+                String fingerprint = in.readUTF();
+                AnalysisCache.Result result = new AnalysisCache.Result();
+                StringMaps.read(in, result.getOffendingPackages());
+                StringMaps.read(in, result.getProfiles());
+                mainResults.archives.put(archive, new Archive(fingerprint, result));
+            }
+            return mainResults;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // corrupt file, analyze everything
+            return null;
+        }
+    }
+
+    /**
+     * Writes the results, readers see either the previous or the complete file.
+     *
+     * @param file the file to write
+     * @throws IOException if the file can't be written
+     */
+    void write(Path file) throws IOException {
+        AtomicFiles.write(file, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(analysisKey);
+            out.writeInt(archives.size());
+            for (Map.Entry<Path, Archive> archive : archives.entrySet()) {
+                out.writeUTF(archive.getKey().toString());
+                out.writeUTF(archive.getValue().fingerprint);
+                StringMaps.write(out, archive.getValue().result.getOffendingPackages());
+                StringMaps.write(out, archive.getValue().result.getProfiles());
+            }
+        });
+    }
+
+    private static final class Archive {
+        private final String fingerprint;
+
+        private final AnalysisCache.Result result;
+
+        Archive(String fingerprint, AnalysisCache.Result result) {
+            this.fingerprint = fingerprint;
+            this.result = result;
+        }
+    }
+}
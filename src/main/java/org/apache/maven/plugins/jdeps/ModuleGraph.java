@@ -0,0 +1,457 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import javax.lang.model.SourceVersion;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+/**
+ * The modules of the archives of a module path, and which of them are needed to resolve the analyzed modules. The
+ * modules are found by the rules of {@code java.lang.module.ModuleFinder}, which isn't available on Java 8: explicit
+ * modules by their {@code module-info.class}, automatic modules of JAR files by the {@code Automatic-Module-Name} of
+ * their manifest or else by their file name. As reading the descriptors of many archives takes a while, the graph is
+ * stored in a binary index per distinct set of archives, so later builds with the same module path reuse it. Within a
+ * build, the {@link JDepsSessionContext} keeps the graphs in memory for other projects.
+ */
+final class ModuleGraph {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String MODULE_INFO = "module-info.class";
+
+    private static final String VERSIONS = "META-INF/versions/";
+
+    private static final String ALL_MODULE_PATH = "ALL-MODULE-PATH";
+
+    private static final Pattern VERSION = Pattern.compile("-(\\d+(\\.|$))");
+
+    /**
+     * The modules of the archives by archive, in module path order, without archives which aren't modules.
+     */
+    private final Map<Path, Module> modules;
+
+    ModuleGraph(Map<Path, Module> modules) {
+        this.modules = modules;
+    }
+
+    /**
+     * @param archives the archives of the module path
+     * @param key the key of the archives, see {@link #getKey(Collection)}
+     * @param indexDirectory the directory containing the indexes of module paths
+     * @return the module graph of the archives, read from its index if there's one
+     * @throws IOException if a descriptor can't be read
+     */
+    static ModuleGraph load(Collection<Path> archives, String key, Path indexDirectory) throws IOException {
+        Path indexFile = indexDirectory.resolve(key + ".index");
+        ModuleGraph graph = readIndex(indexFile, key);
+        if (graph == null) {
+            graph = read(archives);
+            graph.writeIndex(indexFile, key);
+        }
+        return graph;
+    }
+
+    /**
+     * @param archives the archives of the module path
+     * @return the key identifying the archives in their current state
+     * @throws IOException if the attributes of an archive can't be read
+     */
+    static String getKey(Collection<Path> archives) throws IOException {
+        // an archive replaced in place, e.g. a snapshot, changes its size or time stamp
+        StringBuilder description = new StringBuilder();
+        for (Path archive : archives) {
+            description.append(archive.toAbsolutePath()).append('\n');
+            if (Files.isRegularFile(archive)) {
+                description
+                        .append(Files.size(archive))
+                        .append(':')
+                        .append(Files.getLastModifiedTime(archive).toMillis());
+            } else if (Files.isRegularFile(archive.resolve(MODULE_INFO))) {
+                description.append(
+                        Files.getLastModifiedTime(archive.resolve(MODULE_INFO)).toMillis());
+            }
+            description.append('\n');
+        }
+        return AnalysisCache.hash(description.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param archives the archives of the module path
+     * @return the module graph of the archives, read from their descriptors
+     * @throws IOException if a descriptor can't be read
+     */
+    static ModuleGraph read(Collection<Path> archives) throws IOException {
+        Map<Path, Module> modules = new LinkedHashMap<>();
+        for (Path archive : archives) {
+            Module module = readModule(archive);
+            if (module != null) {
+                modules.put(archive, module);
+            }
+        }
+        return new ModuleGraph(modules);
+    }
+
+    /**
+     * @param archive a JAR file or classes directory
+     * @return the module of the archive, or {@code null} if it isn't a module
+     * @throws IOException if the descriptor can't be read
+     */
+    static Module readModule(Path archive) throws IOException {
+        if (Files.isDirectory(archive)) {
+            // directories are only modules with a descriptor, i.e. exploded modules
+            Path moduleInfo = archive.resolve(MODULE_INFO);
+            return Files.isRegularFile(moduleInfo) ? readDescriptor(Files.readAllBytes(moduleInfo)) : null;
+        }
+        if (!Files.isRegularFile(archive) || !archive.getFileName().toString().endsWith(".jar")) {
+            return null;
+        }
+
+        try (JarFile jarFile = new JarFile(archive.toFile())) {
+            ZipEntry moduleInfo = getModuleInfo(jarFile);
+            if (moduleInfo != null) {
+                try (InputStream in = jarFile.getInputStream(moduleInfo)) {
+                    return readDescriptor(readAllBytes(in));
+                }
+            }
+
+            Manifest manifest = jarFile.getManifest();
+            String name = manifest != null ? manifest.getMainAttributes().getValue("Automatic-Module-Name") : null;
+            if (name == null) {
+                name = getAutomaticModuleName(archive.getFileName().toString());
+            }
+            return isModuleName(name) ? new Module(name, true, Collections.emptyList()) : null;
+        }
+    }
+
+    /**
+     * @return the descriptor of a modular JAR file, the one of the latest version for a multi-release JAR file
+     */
+    private static ZipEntry getModuleInfo(JarFile jarFile) {
+        ZipEntry moduleInfo = jarFile.getEntry(MODULE_INFO);
+        int moduleInfoVersion = 0;
+        Enumeration<? extends ZipEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            String name = entry.getName();
+            if (name.startsWith(VERSIONS) && name.endsWith('/' + MODULE_INFO)) {
+                try {
+                    int version = Integer.parseInt(
+                            name.substring(VERSIONS.length(), name.length() - MODULE_INFO.length() - 1));
+                    if (version > moduleInfoVersion) {
+                        moduleInfo = entry;
+                        moduleInfoVersion = version;
+                    }
+                } catch (NumberFormatException e) {
+                    // not a version directory
+                }
+            }
+        }
+        return moduleInfo;
+    }
+
+    private static Module readDescriptor(byte[] bytes) throws IOException {
+        ClassFileReader reader = new ClassFileReader(bytes);
+        return new Module(reader.getModuleName(), false, reader.getRequiredModules());
+    }
+
+    /**
+     * Derives the name of an automatic module from the file name, just like {@code ModuleFinder}: without the version,
+     * with every sequence of characters other than letters and digits replaced by a dot.
+     */
+    static String getAutomaticModuleName(String fileName) {
+        String name = fileName.substring(0, fileName.length() - ".jar".length());
+        Matcher version = VERSION.matcher(name);
+        if (version.find()) {
+            name = name.substring(0, version.start());
+        }
+        name = name.replaceAll("[^A-Za-z0-9]+", ".");
+        int start = name.startsWith(".") ? 1 : 0;
+        int end = name.endsWith(".") && name.length() > start ? name.length() - 1 : name.length();
+        return name.substring(start, end);
+    }
+
+    private static boolean isModuleName(String name) {
+        return !name.isEmpty() && SourceVersion.isName(name);
+    }
+
+    private static byte[] readAllBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @param archive an archive of the module path
+     * @return the module of the archive, or {@code null} if it isn't a module
+     */
+    Module getModule(Path archive) {
+        return modules.get(archive);
+    }
+
+    /**
+     * Resolves the modules the roots require, transitively, just like the module system would. Code in the unnamed
+     * module and automatic modules read every module, so all modules are resolved for them.
+     *
+     * @param roots the modules of the analyzed archives, {@code null} for archives which aren't explicit modules
+     * @return the archives of the resolved modules, in module path order
+     */
+    Set<Path> resolve(Collection<Module> roots) {
+        // the first archive of a module name wins, just like on the module path
+        Map<String, Path> archivesByName = new HashMap<>();
+        for (Map.Entry<Path, Module> module : modules.entrySet()) {
+            archivesByName.putIfAbsent(module.getValue().getName(), module.getKey());
+        }
+
+        Set<String> resolved = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (Module root : roots) {
+            if (root == null || root.isAutomatic()) {
+                return new LinkedHashSet<>(archivesByName.values());
+            }
+            resolved.add(root.getName());
+        }
+        for (Module root : roots) {
+            pending.addAll(root.getRequires());
+        }
+
+        boolean automaticResolved = false;
+        while (!pending.isEmpty()) {
+            String name = pending.removeFirst();
+            Path archive = archivesByName.get(name);
+            if (archive == null || !resolved.add(name)) {
+                // a module of the JDK, or a missing module jdeps will report
+                continue;
+            }
+            Module module = modules.get(archive);
+            pending.addAll(module.getRequires());
+            if (module.isAutomatic() && !automaticResolved) {
+                // an automatic module reads every other automatic module, which are resolved along with it
+                automaticResolved = true;
+                for (Module other : modules.values()) {
+                    if (other.isAutomatic()) {
+                        pending.add(other.getName());
+                    }
+                }
+            }
+        }
+
+        Set<Path> archives = new LinkedHashSet<>();
+        for (Map.Entry<Path, Module> module : modules.entrySet()) {
+            if (resolved.contains(module.getValue().getName())
+                    && module.getKey()
+                            .equals(archivesByName.get(module.getValue().getName()))) {
+                archives.add(module.getKey());
+            }
+        }
+        return archives;
+    }
+
+    /**
+     * @param archive an archive
+     * @return {@code true} if the archive is a JAR file of this module path
+     */
+    boolean isModularJar(Path archive) {
+        return modules.containsKey(archive) && Files.isRegularFile(archive);
+    }
+
+    /**
+     * Splits the archives into the module path, with the modules needed to resolve the analyzed archives, and the
+     * classpath, with the archives which aren't modules. Analyzed JAR files of this module path are analyzed as root
+     * modules on the module path, other analyzed archives remain jdeps arguments.
+     *
+     * @param classPath the archives on the classpath, except the analyzed archives
+     * @param dependenciesToAnalyze the analyzed archives
+     * @return the module path and the rest of the classpath
+     */
+    ModulePath getModulePath(Collection<Path> classPath, Collection<Path> dependenciesToAnalyze) {
+        ModulePath modulePath = new ModulePath();
+        List<Module> roots = new ArrayList<>();
+        boolean allModules = false;
+        for (Path dependencyToAnalyze : dependenciesToAnalyze) {
+            Module root = modules.get(dependencyToAnalyze);
+            if (root != null && isModularJar(dependencyToAnalyze)) {
+                modulePath.modulePath.add(dependencyToAnalyze);
+                modulePath.rootModules.add(root.getName());
+            } else if (root == null) {
+                try {
+                    root = readModule(dependencyToAnalyze);
+                } catch (IOException e) {
+                    // jdeps reports unreadable archives, analyzed as unnamed module meanwhile
+                }
+            }
+            roots.add(root);
+            allModules |= root == null || root.isAutomatic();
+        }
+
+        // modules which aren't resolved aren't readable by the analyzed modules
+        Set<Path> resolved = resolve(roots);
+        for (Path path : classPath) {
+            if (!modules.containsKey(path)) {
+                modulePath.classPath.add(path);
+            } else if (resolved.contains(path)) {
+                modulePath.modulePath.add(path);
+            }
+        }
+        if (allModules && !modulePath.modulePath.isEmpty()) {
+            // includes the analyzed modules
+            modulePath.rootModules.clear();
+            modulePath.rootModules.add(ALL_MODULE_PATH);
+        }
+        return modulePath;
+    }
+
+    /**
+     * @return the index, or {@code null} if there's no usable index
+     */
+    static ModuleGraph readIndex(Path indexFile, String key) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+
+            int moduleCount = in.readInt();
+            Map<Path, Module> modules = new LinkedHashMap<>(moduleCount * 2);
+            for (int i = 0; i < moduleCount; i++) {
+                Path archive = Paths.get(in.readUTF());
+                String name = in.readUTF();
+                boolean automatic = in.readBoolean();
+                List<String> requires = new ArrayList<>();
+                for (int j = in.readUnsignedShort(); j > 0; j--) {
+                    requires.add(in.readUTF());
+                }
+                modules.put(archive, new Module(name, automatic, requires));
+            }
+            return new ModuleGraph(modules);
+        } catch (IOException | RuntimeException e) {
+            // missing or corrupt index, read the archives again
+            return null;
+        }
+    }
+
+    /**
+     * Writes the index as the list of modules with their archive, name, whether they're automatic and the modules
+     * they require.
+     */
+    void writeIndex(Path indexFile, String key) throws IOException {
+        AtomicFiles.write(indexFile, stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeInt(modules.size());
+            for (Map.Entry<Path, Module> module : modules.entrySet()) {
+                out.writeUTF(module.getKey().toString());
+                out.writeUTF(module.getValue().getName());
+                out.writeBoolean(module.getValue().isAutomatic());
+                out.writeShort(module.getValue().getRequires().size());
+                for (String require : module.getValue().getRequires()) {
+                    out.writeUTF(require);
+                }
+            }
+        });
+    }
+
+    /**
+     * A module of the module path.
+     */
+    static final class Module {
+        private final String name;
+
+        private final boolean automatic;
+
+        private final List<String> requires;
+
+        Module(String name, boolean automatic, List<String> requires) {
+            this.name = name;
+            this.automatic = automatic;
+            this.requires = requires;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isAutomatic() {
+            return automatic;
+        }
+
+        /**
+         * @return the modules required at run time, i.e. without {@code requires static}
+         */
+        List<String> getRequires() {
+            return requires;
+        }
+    }
+
+    /**
+     * The module path and classpath of analyzed archives.
+     */
+    static final class ModulePath {
+        private final List<Path> modulePath = new ArrayList<>();
+
+        private final List<Path> classPath = new ArrayList<>();
+
+        private final List<String> rootModules = new ArrayList<>();
+
+        List<Path> getModulePath() {
+            return modulePath;
+        }
+
+        List<Path> getClassPath() {
+            return classPath;
+        }
+
+        /**
+         * @return the modules of the module path to analyze, or {@code ALL-MODULE-PATH} if some analyzed archives
+         *         aren't explicit modules, so they read every module
+         */
+        List<String> getRootModules() {
+            return rootModules;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The versions of multi-release archives to analyze, each analyzed by a jdeps execution of its own.
+ */
+final class MultiReleaseVersions {
+
+    /**
+     * Selects every version present in {@code META-INF/versions} of the archives, and the base version.
+     */
+    static final String ALL = "all";
+
+    static final String BASE = "base";
+
+    private static final String VERSIONS = "META-INF/versions/";
+
+    private MultiReleaseVersions() {}
+
+    /**
+     * @param multiRelease a comma separated list of versions, i.e. {@code base} or a feature release of at least 9, or
+     *            {@code all}
+     * @param archives the archives to analyze
+     * @return the versions to analyze, base first and in ascending order, empty if none is selected
+     * @throws IOException if an archive can't be read
+     */
+    static List<String> resolve(String multiRelease, Collection<Path> archives) throws IOException {
+        Set<Integer> versions = new TreeSet<>();
+        boolean base = false;
+        if (multiRelease != null) {
+            for (String version : multiRelease.split(",")) {
+                version = version.trim();
+                if (BASE.equals(version)) {
+                    base = true;
+                } else if (ALL.equals(version)) {
+                    base = true;
+                    for (Path archive : archives) {
+                        addVersions(archive, versions);
+                    }
+                } else if (!version.isEmpty()) {
+                    versions.add(parseVersion(version));
+                }
+            }
+        }
+
+        List<String> resolved = new ArrayList<>();
+        if (base) {
+            resolved.add(BASE);
+        }
+        for (Integer version : versions) {
+            resolved.add(version.toString());
+        }
+        return resolved;
+    }
+
+    private static int parseVersion(String version) {
+        try {
+            int featureVersion = Integer.parseInt(version);
+            if (featureVersion >= 9) {
+                return featureVersion;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(
+                "Invalid multi-release version '" + version + "', use base, " + ALL + " or an integer >= 9");
+    }
+
+    private static void addVersions(Path archive, Set<Integer> versions) throws IOException {
+        if (Files.isDirectory(archive)) {
+            Path versionsDirectory = archive.resolve(VERSIONS);
+            if (Files.isDirectory(versionsDirectory)) {
+                try (DirectoryStream<Path> directories = Files.newDirectoryStream(versionsDirectory)) {
+                    for (Path directory : directories) {
+                        addVersion(directory.getFileName().toString(), versions);
+                    }
+                }
+            }
+        } else if (Files.isRegularFile(archive)) {
+            try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    int end = name.indexOf('/', VERSIONS.length());
+                    if (name.startsWith(VERSIONS) && end > VERSIONS.length()) {
+                        addVersion(name.substring(VERSIONS.length(), end), versions);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Only versions jdeps can select are added, other directories are ignored by the JVM as well.
+     */
+    private static void addVersion(String name, Set<Integer> versions) {
+        try {
+            int version = Integer.parseInt(name);
+            if (version >= 9) {
+                versions.add(version);
+            }
+        } catch (NumberFormatException e) {
+            // not a version directory
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Query the dependency graph written to {@code dotOutput} by a previous analysis, e.g. which packages depend on a
+ * package, or everything an archive depends on transitively. The DOT files are indexed the first time they are queried,
+ * later queries read the index only.
+ *
+ * @since 3.2.1
+ */
+@Mojo(name = "query", requiresProject = false, threadSafe = true)
+public class QueryMojo extends AbstractMojo {
+
+    /**
+     * The directory containing the DOT files of the analysis.
+     */
+    @Parameter(property = "jdeps.dotOutput", required = true)
+    private File dotOutput;
+
+    /**
+     * The package, class, archive or module whose dependents to list. A package also stands for its classes, an archive
+     * or module for the packages or classes it contains.
+     */
+    @Parameter(property = "jdeps.dependentsOf")
+    private String dependentsOf;
+
+    /**
+     * The package, class, archive or module whose dependencies to list. A package also stands for its classes, an
+     * archive or module for the packages or classes it contains.
+     */
+    @Parameter(property = "jdeps.dependenciesOf")
+    private String dependenciesOf;
+
+    /**
+     * Whether to list indirect dependents and dependencies as well.
+     */
+    @Parameter(defaultValue = "false", property = "jdeps.transitive")
+    private boolean transitive;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (dependentsOf == null && dependenciesOf == null) {
+            throw new MojoFailureException("Set dependentsOf or dependenciesOf to query the dependency graph");
+        }
+
+        Path directory = dotOutput.toPath();
+        if (!Files.isDirectory(directory)) {
+            throw new MojoFailureException("No DOT files found in " + dotOutput + ", run an analysis with dotOutput");
+        }
+
+        DependencyGraphIndex index;
+        try {
+            if (!DependencyGraphIndex.isUpToDate(directory)) {
+                indexDotFiles(directory);
+            }
+            index = DependencyGraphIndex.open(directory);
+        } catch (IOException e) {
+            throw new MojoExecutionException(
+                    "Unable to index the DOT files in " + dotOutput + ": " + e.getMessage(), e);
+        }
+
+        if (dependentsOf != null) {
+            query(index, dependentsOf, true);
+        }
+        if (dependenciesOf != null) {
+            query(index, dependenciesOf, false);
+        }
+    }
+
+    private void indexDotFiles(Path directory) throws IOException {
+        long start = System.nanoTime();
+        int edgeCount = DependencyGraphIndex.build(directory);
+        getLog().info("Indexed " + edgeCount + " dependencies in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private void query(DependencyGraphIndex index, String name, boolean reverse) {
+        int[] nodes = index.findAll(name);
+        if (nodes.length == 0) {
+            getLog().warn("The dependency graph contains no " + name);
+            return;
+        }
+
+        BitSet result = new BitSet(index.getNodeCount());
+        if (transitive) {
+            result = index.getTransitiveClosure(nodes, reverse);
+        } else {
+            for (int node : nodes) {
+                for (int next : reverse ? index.getDependents(node) : index.getDependencies(node)) {
+                    result.set(next);
+                }
+            }
+        }
+
+        StringBuilder msg = new StringBuilder();
+        msg.append(result.cardinality())
+                .append(transitive ? " direct and indirect " : " direct ")
+                .append(reverse ? "dependents of " : "dependencies of ")
+                .append(name)
+                .append(':');
+        for (int node = result.nextSetBit(0); node >= 0; node = result.nextSetBit(node + 1)) {
+            msg.append(System.lineSeparator()).append("   ").append(index.getName(node));
+            String container = index.getContainer(node);
+            if (container != null && !container.equals(index.getName(node))) {
+                msg.append(" (").append(container).append(')');
+            }
+        }
+        getLog().info(msg);
+    }
+}
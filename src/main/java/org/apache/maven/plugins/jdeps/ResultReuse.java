@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Count;
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Phase;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+
+/**
+ * Reuses the results of earlier analyses for an execution: those of the main classes, of the unchanged packages of the
+ * classes directory, of other executions of the build and of the analysis cache. Archives whose results are reused
+ * remain on the classpath to resolve dependencies, but aren't analyzed. Without analysis key nothing is reused.
+ */
+final class ResultReuse {
+
+    private final JDepsSessionContext context;
+
+    private final String analysisKey;
+
+    private final String module;
+
+    private final ExecutionMetrics executionMetrics;
+
+    private final Log log;
+
+    private MainResults.Mode mainResultsMode;
+
+    private Path mainResultsFile;
+
+    private Set<Path> selectedDependencies = Collections.emptySet();
+
+    private Map<Path, AnalysisCache.Result> mainResults = Collections.emptyMap();
+
+    private Path classesDirectory;
+
+    private Path indexFile;
+
+    private IncrementalAnalysis incrementalAnalysis;
+
+    private boolean share;
+
+    private SharedResults sharedResults;
+
+    private AnalysisCache cache;
+
+    private Map<Path, AnalysisCache.Result> cachedResults = Collections.emptyMap();
+
+    private final Set<Path> archivesToCache = new LinkedHashSet<>();
+
+    /**
+     * @param context the state shared by the executions of the build
+     * @param analysisKey identifies the jdeps version and analysis options, {@code null} to reuse nothing
+     * @param module the module of the execution, for the flight recorder
+     * @param executionMetrics the metrics of the execution
+     * @param log the log
+     */
+    ResultReuse(
+            JDepsSessionContext context,
+            String analysisKey,
+            String module,
+            ExecutionMetrics executionMetrics,
+            Log log) {
+        this.context = context;
+        this.analysisKey = analysisKey;
+        this.module = module;
+        this.executionMetrics = executionMetrics;
+        this.log = log;
+    }
+
+    /**
+     * @param mode whether to store the results of the main classes or to reuse them for the test classes
+     * @param file the file in the build directory containing the results of the main classes
+     */
+    void useMainResults(MainResults.Mode mode, Path file) {
+        this.mainResultsMode = mode;
+        this.mainResultsFile = file;
+    }
+
+    /**
+     * @param classesDirectory the classes directory to only analyze the changed packages of
+     * @param indexFile the file in the build directory containing the results of its packages
+     */
+    void useIncrementalAnalysis(Path classesDirectory, Path indexFile) {
+        this.classesDirectory = classesDirectory;
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Shares the results of the archives with the other executions of the build.
+     */
+    void shareResults() {
+        this.share = true;
+    }
+
+    /**
+     * @param cacheDirectory the directory of the analysis cache
+     */
+    void useAnalysisCache(Path cacheDirectory) {
+        this.cache = new AnalysisCache(cacheDirectory, analysisKey);
+    }
+
+    /**
+     * Takes the results of the main classes, scans the classes directory for changed packages and claims the archives
+     * to analyze for this execution.
+     *
+     * @param dependenciesToAnalyze the archives to analyze
+     * @return the archives and class files still to analyze
+     */
+    Set<Path> select(Set<Path> dependenciesToAnalyze) {
+        if (analysisKey == null) {
+            return dependenciesToAnalyze;
+        }
+        long start = System.nanoTime();
+        selectedDependencies = new LinkedHashSet<>(dependenciesToAnalyze);
+        Set<Path> archives = new LinkedHashSet<>(dependenciesToAnalyze);
+        if (mainResultsMode == MainResults.Mode.REUSE) {
+            mainResults = MainResults.reuse(context, mainResultsFile, analysisKey, archives, log);
+            executionMetrics.add(Count.MAIN_ARCHIVES, mainResults.size());
+            archives.removeAll(mainResults.keySet());
+        }
+
+        if (classesDirectory != null) {
+            incrementalAnalysis = scanClassesDirectory();
+            if (incrementalAnalysis != null && !incrementalAnalysis.isFullAnalysis()) {
+                archives = replaceClassesDirectory(archives);
+            }
+        }
+
+        if (share) {
+            sharedResults = new SharedResults(context, analysisKey);
+            sharedResults.claim(archives);
+            archives.removeAll(sharedResults.getOtherArchives());
+        }
+        executionMetrics.addTime(Phase.RESULT_REUSE, start);
+        return archives;
+    }
+
+    /**
+     * Looks up the archives in the analysis cache.
+     *
+     * @param dependenciesToAnalyze the archives to analyze
+     * @return the archives which aren't cached
+     */
+    Set<Path> lookUpCache(Set<Path> dependenciesToAnalyze) {
+        if (cache == null) {
+            return dependenciesToAnalyze;
+        }
+        long start = System.nanoTime();
+        cachedResults = cache.lookup(dependenciesToAnalyze, archivesToCache, module, log);
+        executionMetrics.addTime(Phase.RESULT_REUSE, start);
+        executionMetrics.add(Count.CACHED_ARCHIVES, cachedResults.size());
+
+        Set<Path> archives = new LinkedHashSet<>(dependenciesToAnalyze);
+        archives.removeAll(cachedResults.keySet());
+        return archives;
+    }
+
+    /**
+     * @return the results found in the analysis cache
+     */
+    JDepsConsumer getCachedResults() {
+        JDepsConsumer consumer = new JDepsConsumer();
+        AnalysisCache.addResults(consumer, cachedResults);
+        return consumer;
+    }
+
+    /**
+     * Updates the incremental analysis index and the analysis cache with the results of the analysis, and adds the
+     * results of the unchanged packages and the cached archives.
+     *
+     * @param consumer the results of the analysis
+     */
+    void addResults(JDepsConsumer consumer) {
+        long start = System.nanoTime();
+        if (incrementalAnalysis != null) {
+            updateIncrementalAnalysis(consumer);
+        }
+        if (cache != null) {
+            cache.store(archivesToCache, consumer, log);
+            AnalysisCache.addResults(consumer, cachedResults);
+        }
+        executionMetrics.addTime(Phase.RESULT_REUSE, start);
+    }
+
+    /**
+     * Passes the own results on to the other executions and adds theirs, analyzing the archives they failed on, and
+     * adds the results of the main classes.
+     *
+     * @param consumer the results of the analysis
+     * @param analysis analyzes the archives other executions failed on
+     * @throws MojoExecutionException if the archives can't be analyzed
+     * @throws MojoFailureException if the archives can't be analyzed
+     */
+    void addOtherResults(JDepsConsumer consumer, Analysis analysis)
+            throws MojoExecutionException, MojoFailureException {
+        if (sharedResults != null) {
+            sharedResults.complete(consumer);
+
+            // only wait for others once the own results are available, others may be waiting for them as well
+            long start = System.nanoTime();
+            Set<Path> failedSharedResults;
+            try {
+                failedSharedResults = sharedResults.addOtherResults(consumer, log);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while waiting for the analysis of other executions", e);
+            }
+            executionMetrics.addTime(Phase.SHARED_RESULTS, start);
+            executionMetrics.add(
+                    Count.SHARED_ARCHIVES, sharedResults.getOtherArchives().size() - failedSharedResults.size());
+            if (!failedSharedResults.isEmpty()) {
+                log.debug("Analyzing " + failedSharedResults.size() + " archives other executions failed on");
+                consumer.addResults(analysis.analyze(failedSharedResults));
+            }
+        }
+        AnalysisCache.addResults(consumer, mainResults);
+    }
+
+    /**
+     * Keeps the results of the main classes for the analysis of the test classes, if this execution stores them.
+     *
+     * @param consumer the complete results
+     */
+    void storeMainResults(JDepsConsumer consumer) {
+        if (analysisKey != null && mainResultsMode == MainResults.Mode.STORE) {
+            MainResults.store(
+                    context,
+                    mainResultsFile,
+                    MainResults.of(analysisKey, selectedDependencies, consumer, incrementalAnalysis),
+                    log);
+        }
+    }
+
+    /**
+     * Releases the archives claimed for the other executions if the analysis failed, so they analyze them themselves.
+     */
+    void fail() {
+        if (sharedResults != null) {
+            sharedResults.fail();
+        }
+    }
+
+    /**
+     * @return the incremental analysis, or {@code null} if the classes directory must be analyzed as usual
+     */
+    private IncrementalAnalysis scanClassesDirectory() {
+        IncrementalAnalysis analysis = new IncrementalAnalysis(classesDirectory, indexFile, analysisKey);
+        try {
+            analysis.scan();
+        } catch (IOException e) {
+            log.warn("Unable to scan " + classesDirectory + ": " + e.getMessage());
+            return null;
+        }
+
+        if (!analysis.isSupported()) {
+            log.debug("Incremental analysis is not supported for " + classesDirectory);
+            return null;
+        }
+        return analysis;
+    }
+
+    private Set<Path> replaceClassesDirectory(Set<Path> dependenciesToAnalyze) {
+        // the classes directory remains on the classpath to resolve the dependencies of the class files
+        Set<Path> incrementalDependencies = new LinkedHashSet<>();
+        for (Path dependencyToAnalyze : dependenciesToAnalyze) {
+            if (dependencyToAnalyze.equals(incrementalAnalysis.getClassesDirectory())) {
+                incrementalDependencies.addAll(incrementalAnalysis.getClassFilesToAnalyze());
+            } else {
+                incrementalDependencies.add(dependencyToAnalyze);
+            }
+        }
+        return incrementalDependencies;
+    }
+
+    private void updateIncrementalAnalysis(JDepsConsumer consumer) {
+        for (String archiveName : incrementalAnalysis.getArchiveNames()) {
+            incrementalAnalysis.update(
+                    consumer.getOffendingPackagesByOrigin(archiveName), consumer.getProfilesByOrigin(archiveName));
+        }
+
+        try {
+            incrementalAnalysis.store();
+        } catch (IOException e) {
+            log.warn("Unable to store the incremental analysis index: " + e.getMessage());
+        }
+
+        consumer.getOffendingPackages().putAll(incrementalAnalysis.getOffendingPackages());
+        consumer.getProfiles().putAll(incrementalAnalysis.getProfiles());
+    }
+
+    /**
+     * Analyzes archives without reusing results.
+     */
+    interface Analysis {
+        JDepsConsumer analyze(Set<Path> archives) throws MojoExecutionException, MojoFailureException;
+    }
+}
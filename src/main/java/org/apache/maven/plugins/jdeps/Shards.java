@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Splits the archives to analyze into shards of about the same size, each analyzed by a jdeps execution of its own.
+ */
+final class Shards {
+
+    private Shards() {}
+
+    /**
+     * Distributes the archives over at most {@code parallelism} shards, largest first to the smallest shard.
+     *
+     * @param dependenciesToAnalyze the archives to analyze
+     * @param parallelism the number of jdeps executions to run in parallel
+     * @return the shards, a single one if there are no archives to split
+     */
+    static List<Set<Path>> create(Set<Path> dependenciesToAnalyze, int parallelism) {
+        int shardCount = Math.min(parallelism, dependenciesToAnalyze.size());
+        if (shardCount <= 1) {
+            return Collections.singletonList(dependenciesToAnalyze);
+        }
+
+        Map<Path, Long> sizes = new HashMap<>();
+        for (Path dependencyToAnalyze : dependenciesToAnalyze) {
+            sizes.put(dependencyToAnalyze, getSize(dependencyToAnalyze));
+        }
+        List<Path> archives = new ArrayList<>(dependenciesToAnalyze);
+        archives.sort((a, b) -> Long.compare(sizes.get(b), sizes.get(a)));
+
+        List<Set<Path>> shards = new ArrayList<>(shardCount);
+        long[] shardSizes = new long[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new LinkedHashSet<>());
+        }
+        for (Path archive : archives) {
+            int smallest = 0;
+            for (int i = 1; i < shardCount; i++) {
+                if (shardSizes[i] < shardSizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            shards.get(smallest).add(archive);
+            shardSizes[smallest] += sizes.get(archive);
+        }
+        return shards;
+    }
+
+    /**
+     * @return the size of a file, or of all files in a directory
+     */
+    private static long getSize(Path path) {
+        try {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    return files.filter(Files::isRegularFile)
+                            .mapToLong(file -> file.toFile().length())
+                            .sum();
+                }
+            }
+            return Files.size(path);
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+
+/**
+ * The results of the single archives of an execution in the store shared by all executions of the session: the first
+ * execution asking for the result of an archive analyzes it, the others use its result.
+ */
+final class SharedResults {
+
+    private final JDepsSessionContext context;
+
+    private final String analysisKey;
+
+    /**
+     * Results of archives analyzed by this execution for others.
+     */
+    private final Map<Path, CompletableFuture<AnalysisCache.Result>> ownResults = new LinkedHashMap<>();
+
+    /**
+     * Results of archives analyzed by others for this execution.
+     */
+    private final Map<Path, CompletableFuture<AnalysisCache.Result>> otherResults = new LinkedHashMap<>();
+
+    SharedResults(JDepsSessionContext context, String analysisKey) {
+        this.context = context;
+        this.analysisKey = analysisKey;
+    }
+
+    /**
+     * Registers the single archives, the archives already registered by other executions are analyzed by them.
+     *
+     * @param dependenciesToAnalyze the archives to analyze
+     */
+    void claim(Set<Path> dependenciesToAnalyze) {
+        for (Path archive : AnalysisCache.getSingleArchives(dependenciesToAnalyze)) {
+            CompletableFuture<AnalysisCache.Result> result = new CompletableFuture<>();
+            CompletableFuture<AnalysisCache.Result> sharedResult =
+                    context.getResult(analysisKey, archive.toAbsolutePath(), result);
+            if (sharedResult == result) {
+                ownResults.put(archive, result);
+            } else {
+                otherResults.put(archive, sharedResult);
+            }
+        }
+    }
+
+    /**
+     * @return the archives analyzed by other executions
+     */
+    Set<Path> getOtherArchives() {
+        return otherResults.keySet();
+    }
+
+    /**
+     * Passes the results of the archives claimed by this execution on to the other executions.
+     *
+     * @param consumer the results of this execution
+     */
+    void complete(JDepsConsumer consumer) {
+        for (Map.Entry<Path, CompletableFuture<AnalysisCache.Result>> ownResult : ownResults.entrySet()) {
+            ownResult.getValue().complete(AnalysisCache.Result.of(consumer, ownResult.getKey()));
+        }
+    }
+
+    /**
+     * Waits for the results of the other executions.
+     *
+     * @param consumer the results of this execution, to add the results of the other executions to
+     * @param log the log
+     * @return the archives whose analysis failed in another execution
+     * @throws InterruptedException if interrupted while waiting
+     */
+    Set<Path> addOtherResults(JDepsConsumer consumer, Log log) throws InterruptedException {
+        Set<Path> failedArchives = new LinkedHashSet<>();
+        for (Map.Entry<Path, CompletableFuture<AnalysisCache.Result>> otherResult : otherResults.entrySet()) {
+            Path archive = otherResult.getKey();
+            try {
+                AnalysisCache.Result result = otherResult.getValue().get();
+                log.debug("Using the jdeps result of " + archive + " from another execution");
+                consumer.addResults(
+                        archive.getFileName().toString(), result.getOffendingPackages(), result.getProfiles());
+            } catch (ExecutionException e) {
+                failedArchives.add(archive);
+            }
+        }
+        return failedArchives;
+    }
+
+    /**
+     * Releases the archives this execution couldn't analyze, so waiting and later executions analyze them themselves.
+     */
+    void fail() {
+        for (Map.Entry<Path, CompletableFuture<AnalysisCache.Result>> ownResult : ownResults.entrySet()) {
+            if (ownResult.getValue().completeExceptionally(new IllegalStateException("Analysis failed"))) {
+                context.removeResult(analysisKey, ownResult.getKey().toAbsolutePath(), ownResult.getValue());
+            }
+        }
+    }
+}
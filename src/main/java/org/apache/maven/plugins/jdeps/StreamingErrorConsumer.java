@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+
+/**
+ * Logs the warnings of jdeps as soon as they are reported and only keeps the last lines for the error message.
+ */
+final class StreamingErrorConsumer extends CommandLineUtils.StringStreamConsumer {
+
+    private static final int MAX_LINES = 50;
+
+    private final Log log;
+
+    private final Deque<String> lines = new ArrayDeque<>();
+
+    StreamingErrorConsumer(Log log) {
+        this.log = log;
+    }
+
+    @Override
+    public synchronized void consumeLine(String line) {
+        if (line.startsWith("Picked up JAVA_TOOL_OPTIONS:")) {
+            return;
+        }
+        if (lines.isEmpty()) {
+            log.warn("JDeps Warnings");
+        }
+        log.warn(line.trim());
+
+        if (lines.size() == MAX_LINES) {
+            lines.removeFirst();
+        }
+        lines.addLast(line);
+    }
+
+    @Override
+    public synchronized String getOutput() {
+        return String.join(System.lineSeparator(), lines);
+    }
+}
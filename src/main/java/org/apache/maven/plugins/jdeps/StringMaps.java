@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads and writes the maps of the results in the binary files the plugin keeps between executions, as the number of
+ * entries followed by every key and value.
+ */
+final class StringMaps {
+
+    private StringMaps() {}
+
+    /**
+     * @param in the input to read a map written by {@link #write(DataOutput, Map)} from
+     * @param map receives the entries of the map
+     * @throws IOException if the map can't be read
+     */
+    static void read(DataInput in, Map<String, String> map) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            map.put(in.readUTF(), in.readUTF());
+        }
+    }
+
+    /**
+     * @param out the output to write the map to
+     * @param map the map to write
+     * @throws IOException if the map can't be written
+     */
+    static void write(DataOutput out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+    }
+}
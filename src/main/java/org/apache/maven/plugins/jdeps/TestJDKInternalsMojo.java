@@ -76,4 +76,9 @@ public class TestJDKInternalsMojo extends AbstractJDepsMojo {
 
         return classPath;
     }
+
+    @Override
+    MainResults.Mode getMainResultsMode() {
+        return MainResults.Mode.REUSE;
+    }
 }
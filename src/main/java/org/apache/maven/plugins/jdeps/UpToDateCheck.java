@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+
+/**
+ * Skips an execution whose inputs are unchanged since the previous build: the results of the previous build are kept
+ * in the build directory with a fingerprint of the inputs, and replayed as long as the fingerprint matches. Archives
+ * contribute their size and modification time, or those of their files for directories.
+ */
+final class UpToDateCheck {
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The key of the results of all versions, the others are the results of single multi-release versions.
+     */
+    private static final String ALL_VERSIONS = "";
+
+    private final Path file;
+
+    private final String fingerprint;
+
+    /**
+     * @param file the file containing the results of the previous build
+     * @param inputs the JDK, the jdeps options and anything else the results depend on, except the archives
+     * @param archives the archives on the classpath and the analyzed archives
+     * @throws IOException if an archive can't be read
+     */
+    UpToDateCheck(Path file, String inputs, Collection<Path> archives) throws IOException {
+        StringBuilder fingerprint = new StringBuilder(inputs);
+        for (Path archive : archives) {
+            fingerprint.append('\n').append(archive.toAbsolutePath()).append('=');
+            fingerprint.append(Files.exists(archive) ? AnalysisCache.fingerprint(archive) : "missing");
+        }
+        this.file = file;
+        this.fingerprint = AnalysisCache.hash(fingerprint.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param multiReleaseResults receives the results of the multi-release versions, if analyzed one by one
+     * @return the results of the previous build, or {@code null} if the inputs changed since
+     */
+    JDepsConsumer replay(Map<String, JDepsConsumer> multiReleaseResults) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION || !fingerprint.equals(in.readUTF())) {
+                return null;
+            }
+            Map<String, JDepsConsumer> results = new LinkedHashMap<>();
+            int resultCount = in.readInt();
+            for (int i = 0; i < resultCount; i++) {
+                String version = in.readUTF();
+                JDepsConsumer consumer = new JDepsConsumer();
+                StringMaps.read(in, consumer.getOffendingPackages());
+                StringMaps.read(in, consumer.getProfiles());
+                results.put(version, consumer);
+            }
+
+            JDepsConsumer consumer = results.remove(ALL_VERSIONS);
+            if (consumer != null) {
+                multiReleaseResults.putAll(results);
+            }
+            return consumer;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // corrupt file, analyze again
+            return null;
+        }
+    }
+
+    /**
+     * Keeps the results for the next build, readers see either the previous or the complete file.
+     *
+     * @param consumer the results of all versions
+     * @param multiReleaseResults the results of the multi-release versions, if analyzed one by one, or {@code null}
+     * @param log the log
+     */
+    void store(JDepsConsumer consumer, Map<String, JDepsConsumer> multiReleaseResults, Log log) {
+        Map<String, JDepsConsumer> results = new LinkedHashMap<>();
+        results.put(ALL_VERSIONS, consumer);
+        if (multiReleaseResults != null) {
+            results.putAll(multiReleaseResults);
+        }
+
+        try {
+            AtomicFiles.write(file, stream -> {
+                DataOutputStream out = new DataOutputStream(stream);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(fingerprint);
+                out.writeInt(results.size());
+                for (Map.Entry<String, JDepsConsumer> result : results.entrySet()) {
+                    out.writeUTF(result.getKey());
+                    StringMaps.write(out, result.getValue().getOffendingPackages());
+                    StringMaps.write(out, result.getValue().getProfiles());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Unable to store the results for the up-to-date check: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.cli.CommandLineUtils;
+import org.codehaus.plexus.util.cli.Commandline;
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Runs jdeps in a {@link JDepsWorker} shared by the executions of the build. The request is cancelled in the worker if
+ * the running thread is interrupted.
+ */
+final class WorkerJDepsRunner implements JDepsRunner {
+
+    private final JDepsWorkerClient worker;
+
+    private final Log log;
+
+    WorkerJDepsRunner(JDepsWorkerClient worker, Log log) {
+        this.worker = worker;
+        this.log = log;
+    }
+
+    @Override
+    public int run(Set<Path> archives, Commandline cmd, StreamConsumer out, StreamConsumer err)
+            throws MojoExecutionException {
+        if (log.isDebugEnabled()) {
+            log.debug("Running jdeps in the jdeps worker");
+            // no quoted arguments
+            log.debug("Executing: "
+                    + CommandLineUtils.toString(cmd.getCommandline()).replace("'", ""));
+        }
+
+        try {
+            return worker.run(cmd.getArguments(), out, err);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to execute jdeps in the worker: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for jdeps", e);
+        }
+    }
+}
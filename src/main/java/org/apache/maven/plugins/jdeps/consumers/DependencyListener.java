@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps.consumers;
+
+/**
+ * Receives the dependencies parsed from the output of jdeps, in the order jdeps prints them. Names are passed as
+ * printed by jdeps, except for the unnamed package, which is passed as an empty string.
+ *
+ * @since 3.2.1
+ */
+public interface DependencyListener {
+
+    /**
+     * @param archive the archive, e.g. {@code guava.jar}
+     * @param target the archive or module it depends on, e.g. {@code java.base} or {@code not found}
+     */
+    void archiveDependency(String archive, String target);
+
+    /**
+     * @param archive the archive containing the origin, may be {@code null} if jdeps printed no archive
+     * @param origin the package or class, depending on the verbosity
+     * @param target the package or class the origin depends on
+     * @param detail the archive or module of the target, or why it's reported, e.g.
+     *            {@code JDK internal API (java.base)}, may be empty
+     */
+    void dependency(String archive, String origin, String target, String detail);
+}
@@ -18,10 +18,10 @@
  */
 package org.apache.maven.plugins.jdeps.consumers;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 import org.codehaus.plexus.util.cli.CommandLineUtils;
 import org.codehaus.plexus.util.cli.StreamConsumer;
@@ -34,12 +34,18 @@ import org.codehaus.plexus.util.cli.StreamConsumer;
 public class JDepsConsumer extends CommandLineUtils.StringStreamConsumer implements StreamConsumer {
 
     /**
+     * Detail of an offending package, followed by the module containing it.
+     * <pre>
      * JDK8 Windows: JDK internal API (rt.jar)
      * JDK8 Linux:   JDK internal API (JDK removed internal API)
      * JDK9:         JDK internal API (java.base)
+     * </pre>
      */
-    private static final Pattern JDKINTERNALAPI =
-            Pattern.compile(".+->\\s([a-z\\.]+)\\s+(JDK (?:removed )?internal API.*)");
+    private static final String JDKINTERNALAPI = "JDK internal API";
+
+    private static final String JDKREMOVEDINTERNALAPI = "JDK removed internal API";
+
+    private static final String ARROW = "->";
 
     /**
      * <dl>
@@ -49,8 +55,6 @@ public class JDepsConsumer extends CommandLineUtils.StringStreamConsumer impleme
      */
     private Map<String, String> offendingPackages = new HashMap<>();
 
-    private static final Pattern PROFILE = Pattern.compile("\\s+->\\s([a-z\\.]+)\\s+(\\S+)");
-
     /**
      * <dl>
      *  <dt>key</dt><dd>The package</dd>
@@ -59,20 +63,262 @@ public class JDepsConsumer extends CommandLineUtils.StringStreamConsumer impleme
      */
     private Map<String, String> profiles = new HashMap<>();
 
+    /**
+     * The archive the current lines belong to, as printed by jdeps: the file name since JDK 9, the path as passed to
+     * jdeps for JDK 8.
+     */
+    private String archive;
+
+    private Map<String, Map<String, String>> archiveOffendingPackages = new HashMap<>();
+
+    private Map<String, Map<String, String>> archiveProfiles = new HashMap<>();
+
+    /**
+     * The origin of the current lines, i.e. the package or class of the archive which has the dependencies. The
+     * unnamed package is represented by an empty string.
+     */
+    private String origin;
+
+    private Map<String, Map<String, Map<String, String>>> archiveOriginOffendingPackages = new HashMap<>();
+
+    private Map<String, Map<String, Map<String, String>>> archiveOriginProfiles = new HashMap<>();
+
+    /**
+     * The names parsed so far, so every occurrence of a package, origin or detail shares the same string.
+     */
+    private final StringTable names = new StringTable();
+
+    private final Consumer<String> lineConsumer;
+
+    private final boolean keepOutput;
+
+    private final DependencyListener dependencyListener;
+
+    public JDepsConsumer() {
+        this(null, true);
+    }
+
+    /**
+     * @param lineConsumer receives every line as soon as it has been parsed, may be {@code null}
+     * @param keepOutput whether to keep the complete output in memory for {@link #getOutput()}, otherwise only the
+     *            parsed results are kept
+     * @since 3.2.1
+     */
+    public JDepsConsumer(Consumer<String> lineConsumer, boolean keepOutput) {
+        this(lineConsumer, keepOutput, null);
+    }
+
+    /**
+     * @param lineConsumer receives every line as soon as it has been parsed, may be {@code null}
+     * @param keepOutput whether to keep the complete output in memory for {@link #getOutput()}, otherwise only the
+     *            parsed results are kept
+     * @param dependencyListener receives every dependency as soon as it has been parsed, may be {@code null}
+     * @since 3.2.1
+     */
+    public JDepsConsumer(Consumer<String> lineConsumer, boolean keepOutput, DependencyListener dependencyListener) {
+        this.lineConsumer = lineConsumer;
+        this.keepOutput = keepOutput;
+        this.dependencyListener = dependencyListener;
+    }
+
     public void consumeLine(String line) {
-        super.consumeLine(line);
-        Matcher matcher;
+        if (keepOutput) {
+            super.consumeLine(line);
+        }
+        parseLine(line);
+        if (lineConsumer != null) {
+            lineConsumer.accept(line);
+        }
+    }
 
-        matcher = JDKINTERNALAPI.matcher(line);
-        if (matcher.matches()) {
-            offendingPackages.put(matcher.group(1), matcher.group(2));
+    /**
+     * Scans the line without regular expressions, as jdeps may print millions of lines. Lines without an arrow are
+     * rejected right away and names are only copied out of the line the first time they are seen.
+     */
+    private void parseLine(String line) {
+        int length = line.length();
+        if (length > 0 && !Character.isWhitespace(line.charAt(0))) {
+            // e.g. "classes -> java.base", every other unindented line ends the section of the archive
+            int arrow = line.indexOf(" -> ");
+            archive = arrow > 0 ? names.get(line, 0, arrow) : null;
+            origin = null;
+            if (dependencyListener != null && archive != null) {
+                int start = arrow + 4;
+                int end = trimEnd(line, start);
+                if (end > start) {
+                    dependencyListener.archiveDependency(archive, names.get(line, start, end));
+                }
+            }
+        } else {
+            int start = 0;
+            while (start < length && line.charAt(start) <= ' ') {
+                start++;
+            }
+            int end = start;
+            if (!line.startsWith(ARROW, start)) {
+                // JDK 9+: "   p.q    -> java.lang    java.base", JDK 8: "   p.q (classes)" then "      -> java.lang"
+                int limit = trimEnd(line, start);
+                while (end < limit && !Character.isWhitespace(line.charAt(end))) {
+                    end++;
+                }
+                origin = isUnnamed(line, start, end) ? "" : names.get(line, start, end);
+            }
+            if (dependencyListener != null && origin != null) {
+                parseDependency(line, end);
+            }
+        }
+
+        int arrow = line.lastIndexOf(ARROW);
+        if (arrow < 0) {
+            return;
+        }
+
+        // ".+->\s([a-z\.]+)\s+(JDK (?:removed )?internal API.*)", trying the last arrow first
+        for (; arrow > 0; arrow = line.lastIndexOf(ARROW, arrow - 1)) {
+            int packageStart = arrow + ARROW.length() + 1;
+            if (packageStart > length || !isSpace(line.charAt(packageStart - 1))) {
+                continue;
+            }
+            int packageEnd = scanPackage(line, packageStart);
+            int detailStart = scanSpaces(line, packageEnd);
+            if (packageEnd > packageStart
+                    && detailStart > packageEnd
+                    && (line.startsWith(JDKINTERNALAPI, detailStart)
+                            || line.startsWith(JDKREMOVEDINTERNALAPI, detailStart))) {
+                addOffendingPackage(names.get(line, packageStart, packageEnd), names.get(line, detailStart, length));
+                return;
+            }
+        }
+
+        // "\s+->\s([a-z\.]+)\s+(\S+)", only JDK 8 prints profiles
+        arrow = scanSpaces(line, 0);
+        if (arrow == 0 || !line.startsWith(ARROW, arrow)) {
+            return;
+        }
+        int packageStart = arrow + ARROW.length() + 1;
+        if (packageStart > length || !isSpace(line.charAt(packageStart - 1))) {
+            return;
+        }
+        int packageEnd = scanPackage(line, packageStart);
+        int profileStart = scanSpaces(line, packageEnd);
+        if (packageEnd == packageStart || profileStart == packageEnd || profileStart == length) {
+            return;
+        }
+        for (int i = profileStart; i < length; i++) {
+            if (isSpace(line.charAt(i))) {
+                return;
+            }
+        }
+        addProfile(names.get(line, packageStart, packageEnd), names.get(line, profileStart, length));
+    }
+
+    /**
+     * Passes the dependency of the origin on to the listener, if the line continues with an arrow after the origin.
+     */
+    private void parseDependency(String line, int originEnd) {
+        int arrow = originEnd;
+        while (arrow < line.length() && line.charAt(arrow) <= ' ') {
+            arrow++;
+        }
+        if (!line.startsWith(ARROW, arrow)) {
+            return;
+        }
+
+        int targetStart = arrow + ARROW.length();
+        while (targetStart < line.length() && line.charAt(targetStart) <= ' ') {
+            targetStart++;
+        }
+        int targetEnd = targetStart;
+        while (targetEnd < line.length() && !Character.isWhitespace(line.charAt(targetEnd))) {
+            targetEnd++;
+        }
+        if (targetEnd == targetStart) {
             return;
         }
 
-        matcher = PROFILE.matcher(line);
-        if (matcher.matches()) {
-            profiles.put(matcher.group(1), matcher.group(2));
+        int detailStart = targetEnd;
+        while (detailStart < line.length() && line.charAt(detailStart) <= ' ') {
+            detailStart++;
+        }
+        dependencyListener.dependency(
+                archive,
+                origin,
+                names.get(line, targetStart, targetEnd),
+                names.get(line, detailStart, trimEnd(line, detailStart)));
+    }
+
+    private void addOffendingPackage(String pkg, String detail) {
+        offendingPackages.put(pkg, detail);
+        if (archive != null) {
+            archiveOffendingPackages
+                    .computeIfAbsent(archive, k -> new HashMap<>())
+                    .put(pkg, detail);
+            if (origin != null) {
+                archiveOriginOffendingPackages
+                        .computeIfAbsent(archive, k -> new HashMap<>())
+                        .computeIfAbsent(origin, k -> new HashMap<>())
+                        .put(pkg, detail);
+            }
+        }
+    }
+
+    private void addProfile(String pkg, String profile) {
+        profiles.put(pkg, profile);
+        if (archive != null) {
+            archiveProfiles.computeIfAbsent(archive, k -> new HashMap<>()).put(pkg, profile);
+            if (origin != null) {
+                archiveOriginProfiles
+                        .computeIfAbsent(archive, k -> new HashMap<>())
+                        .computeIfAbsent(origin, k -> new HashMap<>())
+                        .put(pkg, profile);
+            }
+        }
+    }
+
+    /**
+     * @return the end of the line without trailing white space, but not before the index
+     */
+    private static int trimEnd(String line, int index) {
+        int end = line.length();
+        while (end > index && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean isUnnamed(String line, int start, int end) {
+        return end - start == "<unnamed>".length() && line.startsWith("<unnamed>", start);
+    }
+
+    /**
+     * @return the end of the package name starting at the index, which is the index itself if there's none
+     */
+    private static int scanPackage(String line, int index) {
+        while (index < line.length()) {
+            char c = line.charAt(index);
+            if ((c < 'a' || c > 'z') && c != '.') {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of the first character after the whitespace starting at the index
+     */
+    private static int scanSpaces(String line, int index) {
+        while (index < line.length() && isSpace(line.charAt(index))) {
+            index++;
         }
+        return index;
+    }
+
+    /**
+     * Whitespace as matched by {@code \s} of a regular expression.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     public Map<String, String> getOffendingPackages() {
@@ -82,4 +328,132 @@ public class JDepsConsumer extends CommandLineUtils.StringStreamConsumer impleme
     public Map<String, String> getProfiles() {
         return profiles;
     }
+
+    /**
+     * @param archive the archive name as printed by jdeps
+     * @return the offending packages found in the archive, never {@code null}
+     */
+    public Map<String, String> getOffendingPackages(String archive) {
+        return archiveOffendingPackages.getOrDefault(archive, Collections.emptyMap());
+    }
+
+    /**
+     * @param archive the archive name as printed by jdeps
+     * @return the profiles of the packages used by the archive, never {@code null}
+     */
+    public Map<String, String> getProfiles(String archive) {
+        return archiveProfiles.getOrDefault(archive, Collections.emptyMap());
+    }
+
+    /**
+     * @param archive the archive name as printed by jdeps
+     * @return the offending packages found in the archive per origin package or class, never {@code null}
+     */
+    public Map<String, Map<String, String>> getOffendingPackagesByOrigin(String archive) {
+        return archiveOriginOffendingPackages.getOrDefault(archive, Collections.emptyMap());
+    }
+
+    /**
+     * @param archive the archive name as printed by jdeps
+     * @return the profiles of the packages used by the archive per origin package or class, never {@code null}
+     */
+    public Map<String, Map<String, String>> getProfilesByOrigin(String archive) {
+        return archiveOriginProfiles.getOrDefault(archive, Collections.emptyMap());
+    }
+
+    /**
+     * Adds the results of another consumer, e.g. of a jdeps execution analyzing other archives.
+     *
+     * @param other the consumer to take the results from
+     */
+    public void addResults(JDepsConsumer other) {
+        offendingPackages.putAll(other.offendingPackages);
+        profiles.putAll(other.profiles);
+        addArchiveResults(other.archiveOffendingPackages, archiveOffendingPackages);
+        addArchiveResults(other.archiveProfiles, archiveProfiles);
+        addArchiveOriginResults(other.archiveOriginOffendingPackages, archiveOriginOffendingPackages);
+        addArchiveOriginResults(other.archiveOriginProfiles, archiveOriginProfiles);
+    }
+
+    /**
+     * Adds results of a single archive which have been found another way, e.g. by an earlier analysis.
+     *
+     * @param archive the archive name as printed by jdeps
+     * @param offendingPackages the offending packages found in the archive
+     * @param profiles the profiles of the packages used by the archive
+     */
+    public void addResults(String archive, Map<String, String> offendingPackages, Map<String, String> profiles) {
+        this.offendingPackages.putAll(offendingPackages);
+        this.profiles.putAll(profiles);
+        archiveOffendingPackages.computeIfAbsent(archive, k -> new HashMap<>()).putAll(offendingPackages);
+        archiveProfiles.computeIfAbsent(archive, k -> new HashMap<>()).putAll(profiles);
+    }
+
+    private static void addArchiveResults(
+            Map<String, Map<String, String>> source, Map<String, Map<String, String>> target) {
+        for (Map.Entry<String, Map<String, String>> entry : source.entrySet()) {
+            target.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).putAll(entry.getValue());
+        }
+    }
+
+    private static void addArchiveOriginResults(
+            Map<String, Map<String, Map<String, String>>> source,
+            Map<String, Map<String, Map<String, String>>> target) {
+        for (Map.Entry<String, Map<String, Map<String, String>>> entry : source.entrySet()) {
+            addArchiveResults(entry.getValue(), target.computeIfAbsent(entry.getKey(), k -> new HashMap<>()));
+        }
+    }
+
+    /**
+     * Interns substrings of lines, looking them up by their characters so a name seen before isn't copied again.
+     */
+    private static final class StringTable {
+
+        private String[] strings = new String[256];
+
+        private int size;
+
+        String get(String line, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + line.charAt(i);
+            }
+
+            int length = end - start;
+            int mask = strings.length - 1;
+            for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+                String string = strings[i];
+                if (string == null) {
+                    string = line.substring(start, end);
+                    strings[i] = string;
+                    if (++size * 2 > strings.length) {
+                        resize();
+                    }
+                    return string;
+                }
+                if (string.length() == length && line.regionMatches(start, string, 0, length)) {
+                    return string;
+                }
+            }
+        }
+
+        private void resize() {
+            String[] oldStrings = strings;
+            strings = new String[oldStrings.length * 2];
+            int mask = strings.length - 1;
+            for (String string : oldStrings) {
+                if (string != null) {
+                    int i = spread(string.hashCode()) & mask;
+                    while (strings[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    strings[i] = string;
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps.consumers;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.codehaus.plexus.util.cli.StreamConsumer;
+
+/**
+ * Writer which splits everything written to it into lines and passes each line to a {@link StreamConsumer},
+ * the same way the output of a forked process would be consumed.
+ */
+public class StreamConsumerWriter extends Writer {
+
+    private final StreamConsumer consumer;
+
+    private final StringBuilder line = new StringBuilder();
+
+    private boolean skipLineFeed;
+
+    public StreamConsumerWriter(StreamConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int end = off + len;
+        for (int i = off; i < end; i++) {
+            char c = cbuf[i];
+            if (c == '\n') {
+                if (!skipLineFeed) {
+                    emitLine();
+                }
+                skipLineFeed = false;
+            } else if (c == '\r') {
+                emitLine();
+                skipLineFeed = true;
+            } else {
+                line.append(c);
+                skipLineFeed = false;
+            }
+        }
+    }
+
+    @Override
+    public void flush() {
+        // lines are passed on as soon as they are complete
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (line.length() > 0) {
+            emitLine();
+        }
+    }
+
+    private void emitLine() throws IOException {
+        String value = line.toString();
+        line.setLength(0);
+        consumer.consumeLine(value);
+    }
+}
@@ -19,17 +19,23 @@
 package org.apache.maven.plugins.jdeps;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
 import org.apache.maven.toolchain.ToolchainManager;
 import org.codehaus.plexus.util.cli.Commandline;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class AbstractJDepsMojoTest {
@@ -88,4 +94,27 @@ class AbstractJDepsMojoTest {
         assertFalse(
                 cmdLine.contains("-jdkinternals"), "Command line should not contain -jdkinternals flag when disabled");
     }
+
+    @Test
+    void failFastKeepsCause() throws Exception {
+        TestJDepsMojo mojo = new TestJDepsMojo(null);
+        Field failOnWarningField = AbstractJDepsMojo.class.getDeclaredField("failOnWarning");
+        failOnWarningField.setAccessible(true);
+        failOnWarningField.setBoolean(mojo, true);
+
+        JDepsConsumer consumer = new JDepsConsumer();
+        consumer.addResults(
+                "classes",
+                Collections.singletonMap("sun.misc", "JDK internal API (jdk.unsupported)"),
+                Collections.emptyMap());
+        Method failFast = AbstractJDepsMojo.class.getDeclaredMethod("failFast", JDepsConsumer.class);
+        failFast.setAccessible(true);
+
+        InvocationTargetException e =
+                assertThrows(InvocationTargetException.class, () -> failFast.invoke(mojo, consumer));
+        MojoExecutionException failure = (MojoExecutionException) e.getCause();
+        assertTrue(failure.getMessage().contains("sun.misc"), failure.getMessage());
+        assertTrue(failure.getMessage().contains("The analysis stopped at the first offending package"));
+        assertTrue(failure.getCause() instanceof MojoExecutionException);
+    }
 }
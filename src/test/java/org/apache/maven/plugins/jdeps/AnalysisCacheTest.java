@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void storeAndRetrieve() throws Exception {
+        Path jar = Files.write(tempDir.resolve("a.jar"), "content".getBytes(StandardCharsets.UTF_8));
+        Path cacheDir = tempDir.resolve("cache");
+
+        AnalysisCache cache = new AnalysisCache(cacheDir, "jdk17\n-P");
+        assertNull(cache.get(jar));
+
+        cache.put(
+                jar,
+                Collections.singletonMap("sun.misc", "JDK internal API (jdk.unsupported)"),
+                Collections.singletonMap("java.lang", "compact1"));
+
+        AnalysisCache.Result result = new AnalysisCache(cacheDir, "jdk17\n-P").get(jar);
+        assertNotNull(result);
+        assertEquals(
+                "JDK internal API (jdk.unsupported)",
+                result.getOffendingPackages().get("sun.misc"));
+        assertEquals("compact1", result.getProfiles().get("java.lang"));
+    }
+
+    @Test
+    void keyedByContentAndAnalysis() throws Exception {
+        Path jar = Files.write(tempDir.resolve("a.jar"), "content".getBytes(StandardCharsets.UTF_8));
+        Path sameContent = Files.write(tempDir.resolve("b.jar"), "content".getBytes(StandardCharsets.UTF_8));
+        Path otherContent = Files.write(tempDir.resolve("c.jar"), "other".getBytes(StandardCharsets.UTF_8));
+        Path cacheDir = tempDir.resolve("cache");
+
+        new AnalysisCache(cacheDir, "jdk17").put(jar, Collections.emptyMap(), Collections.emptyMap());
+
+        AnalysisCache cache = new AnalysisCache(cacheDir, "jdk17");
+        AnalysisCache.Result result = cache.get(sameContent);
+        assertNotNull(result);
+        assertTrue(result.getOffendingPackages().isEmpty());
+        assertNull(cache.get(otherContent));
+        assertNull(new AnalysisCache(cacheDir, "jdk21").get(jar));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ArgumentFileTest {
+
+    private static final String ARGUMENT = "C:\\Program Files\\lib\\\"quoted\" 'single'.jar";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void quoting() throws Exception {
+        StringWriter writer = new StringWriter();
+        ArgumentFile.write(writer, ARGUMENT);
+        ArgumentFile.write(writer, "a\nb");
+
+        assertEquals("\"C:\\\\Program Files\\\\lib\\\\\\\"quoted\\\" 'single'.jar\"\n\"a\\nb\"\n", writer.toString());
+    }
+
+    @Test
+    void readByJavaLauncher() throws Exception {
+        File javaHome = new File(System.getProperty("java.home"));
+        File java = new File(javaHome, "bin/java" + (File.separatorChar == '\\' ? ".exe" : ""));
+        assumeTrue(new File(javaHome, "lib/jrt-fs.jar").isFile() && java.isFile(), "requires JDK 9 or later");
+
+        Path file = tempDir.resolve("java.args");
+        ArgumentFile.write(
+                file,
+                new String[] {"-Dtest.argument=" + ARGUMENT, "-XshowSettings:properties"},
+                new String[] {"-version"});
+
+        Process process = new ProcessBuilder(java.getPath(), "@" + file)
+                .redirectErrorStream(true)
+                .start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream in = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                output.write(buffer, 0, n);
+            }
+        }
+
+        assertEquals(0, process.waitFor());
+        assertTrue(output.toString().contains("test.argument = " + ARGUMENT), output.toString());
+    }
+}
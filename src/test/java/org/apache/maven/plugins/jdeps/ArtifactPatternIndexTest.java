@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.codehaus.plexus.util.MatchPatterns;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArtifactPatternIndexTest {
+
+    @Test
+    void documentedPatterns() {
+        ArtifactPatternIndex index = new ArtifactPatternIndex(
+                Arrays.asList("org.foo.*:*", "com.foo.bar:*", "dot.foo.bar:utilities", "*:*-api"));
+
+        assertTrue(index.matches("org.foo.baz:qux"));
+        assertFalse(index.matches("org.foo:qux"));
+        assertTrue(index.matches("com.foo.bar:anything"));
+        assertFalse(index.matches("com.foo.barbaz:anything"));
+        assertTrue(index.matches("dot.foo.bar:utilities"));
+        assertFalse(index.matches("dot.foo.bar:utilities2"));
+        assertTrue(index.matches("javax.ws.rs:jakarta.ws.rs-api"));
+
+        assertTrue(new ArtifactPatternIndex(Collections.singletonList("*:*")).matches("a:b"));
+        assertFalse(new ArtifactPatternIndex(Collections.emptyList()).matches("a:b"));
+    }
+
+    @Test
+    void sameResultAsMatchPatterns() {
+        String[] fragments = {"org", "foo", "bar", ".", ":", "-", "*", "**", "?", "a", "ab", "/", "%regex[.*]", " "};
+        Random random = new Random(42);
+        int matches = 0;
+
+        for (int run = 0; run < 500; run++) {
+            List<String> patterns = new ArrayList<>();
+            for (int i = random.nextInt(6); i >= 0; i--) {
+                patterns.add(randomString(random, fragments, 5));
+            }
+            ArtifactPatternIndex index = new ArtifactPatternIndex(patterns);
+            MatchPatterns matchPatterns = MatchPatterns.from(patterns);
+
+            for (int i = 0; i < 200; i++) {
+                String key = randomString(random, fragments, 6);
+                boolean expected = matchPatterns.matchesPatternStart(key, true);
+                assertEquals(expected, index.matches(key), "key '" + key + "' with patterns " + patterns);
+                if (expected) {
+                    matches++;
+                }
+            }
+        }
+        // both outcomes must be covered
+        assertTrue(matches > 10_000 && matches < 90_000, "matches: " + matches);
+    }
+
+    private static String randomString(Random random, String[] fragments, int maxFragments) {
+        StringBuilder string = new StringBuilder();
+        for (int i = random.nextInt(maxFragments + 1); i > 0; i--) {
+            string.append(fragments[random.nextInt(fragments.length)]);
+        }
+        return string.toString();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AtomicFilesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void write() throws Exception {
+        Path file = tempDir.resolve("cache/entry");
+        AtomicFiles.write(file, out -> out.write("first".getBytes(StandardCharsets.UTF_8)));
+        AtomicFiles.write(file, out -> out.write("second".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("second", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void failedWriteKeepsPreviousFile() throws Exception {
+        Path file = tempDir.resolve("entry");
+        AtomicFiles.write(file, out -> out.write("previous".getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(
+                IOException.class,
+                () -> AtomicFiles.write(file, out -> {
+                    out.write("partial".getBytes(StandardCharsets.UTF_8));
+                    throw new IOException("disk full");
+                }));
+        assertEquals("previous", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
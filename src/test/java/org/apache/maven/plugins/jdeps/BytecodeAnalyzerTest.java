@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BytecodeAnalyzerTest {
+
+    private static JdkModules jdkModules;
+
+    @BeforeAll
+    static void loadJdkModules() throws Exception {
+        jdkModules = JdkModules.load(new File(System.getProperty("java.home")));
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void referencedClassNames() throws Exception {
+        ClassFileReader reader = new ClassFileReader(Files.readAllBytes(writeClassFile()));
+
+        assertEquals("p/Fixture", reader.getClassName());
+        Set<String> classNames = reader.getReferencedClassNames();
+        assertEquals(3, classNames.size());
+        assertTrue(classNames.contains("java/lang/Object"));
+        assertTrue(classNames.contains("sun/misc/Unsafe"));
+        assertTrue(classNames.contains("java/util/List"));
+    }
+
+    @Test
+    void sameResultAsJDeps() throws Exception {
+        assumeTrue(jdkModules != null, "requires a JDK with modules");
+        JDepsToolProvider jdeps = JDepsToolProvider.find();
+        assumeTrue(jdeps != null, "requires the jdeps tool");
+        Path classFile = writeClassFile();
+
+        // the arguments of the jdkinternals goal by default
+        JDepsConsumer expected = new JDepsConsumer();
+        StringWriter out = new StringWriter();
+        assertEquals(0, jdeps.run(new PrintWriter(out), new PrintWriter(new StringWriter()), classFile.toString()));
+        for (String line : out.toString().split("\\R")) {
+            expected.consumeLine(line);
+        }
+
+        JDepsConsumer actual = new JDepsConsumer();
+        new BytecodeAnalyzer(jdkModules)
+                .analyze(Collections.singletonList(classFile), 1)
+                .forEach(actual::consumeLine);
+
+        assertEquals(
+                Collections.singletonMap("sun.misc", "JDK internal API (jdk.unsupported)"),
+                expected.getOffendingPackages());
+        assertEquals(expected.getOffendingPackages(), actual.getOffendingPackages());
+        assertEquals(
+                expected.getOffendingPackagesByOrigin("Fixture.class"),
+                actual.getOffendingPackagesByOrigin("Fixture.class"));
+    }
+
+    @Test
+    void removedInternalApi() throws Exception {
+        assumeTrue(jdkModules != null, "requires a JDK with modules");
+        JDepsToolProvider jdeps = JDepsToolProvider.find();
+        assumeTrue(jdeps != null, "requires the jdeps tool");
+        Path classFile =
+                writeClassFile("sun/misc/BASE64Encoder", "sun/misc/Unsafe", "com/sun/image/codec/jpeg/JPEGCodec");
+
+        StringWriter out = new StringWriter();
+        assertEquals(0, jdeps.run(new PrintWriter(out), new PrintWriter(new StringWriter()), classFile.toString()));
+        List<String> expected = Arrays.asList(out.toString().split("\\R"));
+
+        // sun.misc.Unsafe remains, sun.misc.BASE64Encoder and com.sun.image.codec.jpeg are removed
+        assertTrue(
+                expected.stream().anyMatch(line -> line.matches("\\s+p\\s+-> sun\\.misc\\s+JDK removed internal API")));
+        assertTrue(expected.stream()
+                .anyMatch(line -> line.matches("\\s+p\\s+-> sun\\.misc\\s+JDK internal API \\(jdk\\.unsupported\\)")));
+
+        // the order of the two lines of sun.misc differs between the versions of jdeps
+        List<String> actual = new BytecodeAnalyzer(jdkModules).analyze(Collections.singletonList(classFile), 1);
+        assertEquals(new TreeSet<>(expected), new TreeSet<>(actual));
+        assertEquals(expected.size(), actual.size());
+    }
+
+    /**
+     * Writes {@code package p; public class Fixture { java.util.List names; }} which also references
+     * {@code sun.misc.Unsafe}, which can't be compiled for Java 8.
+     */
+    private Path writeClassFile() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            out.writeShort(9);
+            writeClass(out, 1, "p/Fixture"); // #1, #2
+            writeClass(out, 3, "java/lang/Object"); // #3, #4
+            writeClass(out, 5, "sun/misc/Unsafe"); // #5, #6
+            out.writeByte(1);
+            out.writeUTF("names"); // #7
+            out.writeByte(1);
+            out.writeUTF("Ljava/util/List;"); // #8
+            out.writeShort(0x21);
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(0);
+            out.writeShort(1);
+            out.writeShort(0);
+            out.writeShort(7);
+            out.writeShort(8);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+        return Files.write(tempDir.resolve("Fixture.class"), bytes.toByteArray());
+    }
+
+    /**
+     * Writes {@code package p; public class Fixture} referencing the given classes without using them.
+     */
+    private Path writeClassFile(String... classNames) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(52);
+            out.writeShort(5 + 2 * classNames.length);
+            writeClass(out, 1, "p/Fixture"); // #1, #2
+            writeClass(out, 3, "java/lang/Object"); // #3, #4
+            for (int i = 0; i < classNames.length; i++) {
+                writeClass(out, 5 + 2 * i, classNames[i]);
+            }
+            out.writeShort(0x21);
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+        return Files.write(tempDir.resolve("Fixture.class"), bytes.toByteArray());
+    }
+
+    private static void writeClass(DataOutputStream out, int index, String name) throws Exception {
+        out.writeByte(1);
+        out.writeUTF(name);
+        out.writeByte(7);
+        out.writeShort(index);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClassDataArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void createAndUse() throws IOException {
+        File javaHome = createJavaHome("jdk-17", "17.0.9");
+        Path directory = tempDir.resolve("cds");
+        ClassDataArchive archive = ClassDataArchive.of(javaHome, "jdeps", directory);
+
+        // only one execution creates the archive
+        List<String> options = archive.getJvmOptions(true);
+        assertEquals(1, options.size());
+        assertTrue(options.get(0).startsWith("-XX:ArchiveClassesAtExit=" + directory));
+        assertEquals(Collections.emptyList(), archive.getJvmOptions(true));
+
+        Path dumpFile = Paths.get(options.get(0).substring(options.get(0).indexOf('=') + 1));
+        Files.write(dumpFile, new byte[] {1, 2, 3});
+        archive.store();
+        assertFalse(Files.exists(dumpFile));
+
+        ClassDataArchive later = ClassDataArchive.of(javaHome, "jdeps", directory);
+        assertEquals(
+                Collections.singletonList("-XX:SharedArchiveFile=" + archive.getFile()), later.getJvmOptions(false));
+        assertNotEquals(
+                archive.getFile(),
+                ClassDataArchive.of(javaHome, "java", directory).getFile());
+    }
+
+    @Test
+    void cleanUpFailedExecution() throws IOException {
+        ClassDataArchive archive = ClassDataArchive.of(createJavaHome("jdk-21", "21"), "jdeps", tempDir);
+        assertEquals(Collections.emptyList(), archive.getJvmOptions(false));
+        archive.getJvmOptions(true);
+        archive.cleanUp();
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void unsupportedJdk() throws IOException {
+        assertNull(ClassDataArchive.of(createJavaHome("jdk-11", "11.0.21"), "jdeps", tempDir));
+        assertNull(ClassDataArchive.of(createJavaHome("jdk-8", "1.8.0_392"), "jdeps", tempDir));
+        assertNull(ClassDataArchive.of(tempDir.resolve("unknown").toFile(), "jdeps", tempDir));
+    }
+
+    private File createJavaHome(String name, String version) throws IOException {
+        Path javaHome = Files.createDirectories(tempDir.resolve(name));
+        Files.write(
+                javaHome.resolve("release"),
+                Collections.singletonList("JAVA_VERSION=\"" + version + "\""),
+                StandardCharsets.UTF_8);
+        return javaHome.toFile();
+    }
+}
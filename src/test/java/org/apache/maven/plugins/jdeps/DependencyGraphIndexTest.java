@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DependencyGraphIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void writeDotFiles() throws IOException {
+        Files.write(
+                tempDir.resolve("summary.dot"),
+                Arrays.asList(
+                        "digraph \"summary\" {",
+                        "  \"a.jar\"                                            -> \"b.jar\";",
+                        "  \"a.jar\"                                            -> \"java.base (java.base)\";",
+                        "  \"b.jar\"                                            -> \"java.base (java.base)\";",
+                        "}"),
+                StandardCharsets.UTF_8);
+        Files.write(
+                tempDir.resolve("a.jar.dot"),
+                Arrays.asList(
+                        "digraph \"a.jar\" {",
+                        "    // Path: /repository/a.jar",
+                        "   \"a.A\"                                              -> \"b.B (b.jar)\";",
+                        "   \"a.A\"                                              -> \"java.lang.Object (java.base)\";",
+                        "   \"a.A\"                                              -> \"b.B (b.jar)\";",
+                        "   \"a.sub.C\"                                          -> \"a.A\";",
+                        "}"),
+                StandardCharsets.UTF_8);
+        Files.write(
+                tempDir.resolve("b.jar.dot"),
+                Arrays.asList(
+                        "digraph \"b.jar\" {",
+                        "    // Path: /repository/b.jar",
+                        "   \"b.B\"                                              -> \"java.lang.Object (java.base)\";",
+                        "}"),
+                StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void query() throws IOException {
+        assertFalse(DependencyGraphIndex.isUpToDate(tempDir));
+        assertEquals(7, DependencyGraphIndex.build(tempDir));
+        assertTrue(DependencyGraphIndex.isUpToDate(tempDir));
+
+        DependencyGraphIndex index = DependencyGraphIndex.open(tempDir);
+        assertEquals(7, index.getNodeCount());
+
+        int a = index.find("a.A");
+        assertEquals("a.A", index.getName(a));
+        assertEquals("a.jar", index.getContainer(a));
+        assertEquals(Arrays.asList("b.B", "java.lang.Object"), names(index, index.getDependencies(a)));
+
+        int object = index.find("java.lang.Object");
+        assertEquals("java.base", index.getContainer(object));
+        assertEquals(Arrays.asList("a.A", "b.B"), names(index, index.getDependents(object)));
+        assertEquals(0, index.getDependencies(object).length);
+
+        assertEquals(Arrays.asList("b.jar", "java.base"), names(index, index.getDependencies(index.find("a.jar"))));
+        assertNull(index.getContainer(index.find("a.jar")));
+        assertTrue(index.find("a.B") < 0);
+    }
+
+    @Test
+    void findAll() throws IOException {
+        DependencyGraphIndex.build(tempDir);
+        DependencyGraphIndex index = DependencyGraphIndex.open(tempDir);
+
+        // subpackages are not part of the package
+        assertEquals(Arrays.asList("a.A"), names(index, index.findAll("a")));
+        assertEquals(Arrays.asList("a.sub.C"), names(index, index.findAll("a.sub")));
+        assertEquals(0, index.findAll("c").length);
+
+        // and archives and modules their contents
+        assertEquals(Arrays.asList("a.A", "a.jar", "a.sub.C"), names(index, index.findAll("a.jar")));
+        assertEquals(Arrays.asList("java.base", "java.lang.Object"), names(index, index.findAll("java.base")));
+    }
+
+    @Test
+    void transitiveClosure() throws IOException {
+        DependencyGraphIndex.build(tempDir);
+        DependencyGraphIndex index = DependencyGraphIndex.open(tempDir);
+
+        assertEquals(
+                Arrays.asList("a.A", "b.B", "java.lang.Object"),
+                names(index, index.getTransitiveClosure(new int[] {index.find("a.sub.C")}, false)));
+        assertEquals(
+                Arrays.asList("a.A", "a.sub.C", "b.B"),
+                names(index, index.getTransitiveClosure(new int[] {index.find("java.lang.Object")}, true)));
+    }
+
+    @Test
+    void outdated() throws IOException {
+        DependencyGraphIndex.build(tempDir);
+        Path indexFile = DependencyGraphIndex.getIndexFile(tempDir);
+        Files.setLastModifiedTime(
+                indexFile,
+                FileTime.fromMillis(
+                        Files.getLastModifiedTime(tempDir.resolve("b.jar.dot")).toMillis() - 1000));
+
+        assertFalse(DependencyGraphIndex.isUpToDate(tempDir));
+    }
+
+    private static List<String> names(DependencyGraphIndex index, int[] nodes) {
+        List<String> names = new ArrayList<>();
+        for (int node : nodes) {
+            names.add(index.getName(node));
+        }
+        return names;
+    }
+
+    private static List<String> names(DependencyGraphIndex index, BitSet nodes) {
+        return names(index, nodes.stream().toArray());
+    }
+}
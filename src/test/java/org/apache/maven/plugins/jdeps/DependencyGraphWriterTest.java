@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DependencyGraphWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void jsonLines() throws IOException {
+        Path file = tempDir.resolve("graph/dependencies.jsonl");
+        write(DependencyGraphWriter.open(file, DependencyGraphWriter.JSONL, "package"));
+
+        assertEquals(
+                Arrays.asList(
+                        "{\"level\":\"archive\",\"source\":\"a.jar\",\"target\":\"java.base\"}",
+                        "{\"level\":\"package\",\"archive\":\"a.jar\",\"source\":\"\",\"target\":\"java.io\","
+                                + "\"detail\":\"java.base\"}",
+                        "{\"level\":\"package\",\"archive\":\"a.jar\",\"source\":\"a.b\",\"target\":\"sun.misc\","
+                                + "\"detail\":\"JDK internal API (java.base)\"}",
+                        "{\"level\":\"package\",\"archive\":\"a.jar\",\"source\":\"a.b\",\"target\":\"java.io\","
+                                + "\"detail\":\"java.base\"}"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void binary() throws IOException {
+        Path file = tempDir.resolve("dependencies.bin");
+        write(DependencyGraphWriter.open(file, DependencyGraphWriter.BINARY, "class"));
+
+        List<String> strings = new ArrayList<>();
+        strings.add(null);
+        List<String> dependencies = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            assertEquals(0x4A444752, in.readInt());
+            assertEquals(1, in.readByte());
+            assertEquals(1, in.readByte());
+            int type;
+            while ((type = in.read()) >= 0) {
+                if (type == 0) {
+                    strings.add(in.readUTF());
+                } else if (type == 1) {
+                    dependencies.add(strings.get(readVarInt(in)) + " -> " + strings.get(readVarInt(in)));
+                } else {
+                    dependencies.add(strings.get(readVarInt(in)) + ": " + strings.get(readVarInt(in)) + " -> "
+                            + strings.get(readVarInt(in)) + " [" + strings.get(readVarInt(in)) + "]");
+                }
+            }
+        }
+
+        assertEquals(
+                Arrays.asList(
+                        "a.jar -> java.base",
+                        "a.jar:  -> java.io [java.base]",
+                        "a.jar: a.b -> sun.misc [JDK internal API (java.base)]",
+                        "a.jar: a.b -> java.io [java.base]"),
+                dependencies);
+        // every name is written once
+        assertEquals(
+                Arrays.asList(
+                        null, "a.jar", "java.base", "", "java.io", "a.b", "sun.misc", "JDK internal API (java.base)"),
+                strings);
+    }
+
+    private static void write(DependencyGraphWriter writer) throws IOException {
+        try (DependencyGraphWriter w = writer) {
+            JDepsConsumer consumer = new JDepsConsumer(null, false, w);
+            consumer.consumeLine("a.jar -> java.base");
+            consumer.consumeLine("   <unnamed>                                          -> java.io      java.base");
+            consumer.consumeLine(
+                    "   a.b                                                -> sun.misc     JDK internal API (java.base)");
+            consumer.consumeLine("   a.b                                                -> java.io      java.base");
+        }
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
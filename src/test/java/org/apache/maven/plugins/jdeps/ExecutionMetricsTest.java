@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Count;
+import org.apache.maven.plugins.jdeps.ExecutionMetrics.Phase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void write() throws IOException {
+        ExecutionMetrics metrics = new ExecutionMetrics("org.example:app", "jdkinternals@default");
+        metrics.addNanos(Phase.JDEPS, 1_500_000);
+        metrics.addNanos(Phase.JDEPS, 250_000);
+        metrics.add(Count.ARCHIVES, 3);
+
+        Path file = tempDir.resolve("metrics/jdkinternals@default-metrics.json");
+        metrics.write(file);
+
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(
+                json.startsWith("{\n  \"project\": \"org.example:app\",\n  \"execution\": \"jdkinternals@default\""));
+        assertTrue(json.contains("\"resultReuse\": 0.000, \"commandLine\": 0.000, \"processStart\": 0.000, "
+                + "\"jdeps\": 1.750, \"bytecodeAnalysis\": 0.000"));
+        assertTrue(json.contains("\"counts\": {\"archives\": 3, \"analyzedArchives\": 0"));
+    }
+
+    @Test
+    void rollUp() throws IOException {
+        ExecutionMetrics app = new ExecutionMetrics("org.example:app", "jdkinternals@default");
+        app.addNanos(Phase.TOTAL, 2_000_000);
+        app.add(Count.JDEPS_EXECUTIONS, 1);
+        ExecutionMetrics lib = new ExecutionMetrics("org.example:lib", "test-jdkinternals@default");
+        lib.addNanos(Phase.TOTAL, 3_000_000);
+        lib.add(Count.JDEPS_EXECUTIONS, 2);
+
+        Path file = tempDir.resolve("jdeps-metrics.json");
+        ExecutionMetrics.writeRollUp(file, Arrays.asList(app, lib));
+
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\n  \"executions\": [\n    {\n      \"project\": \"org.example:app\""));
+        assertTrue(json.contains("\"project\": \"org.example:lib\""));
+
+        String total = json.substring(json.indexOf("\"total\": {"));
+        assertTrue(total.contains("\"total\": 5.000}"));
+        assertTrue(total.contains("\"jdepsExecutions\": 3"));
+        assertEquals(1, total.split("\"project\"", -1).length);
+    }
+}
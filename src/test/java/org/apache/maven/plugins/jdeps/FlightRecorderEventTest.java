@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FlightRecorderEventTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void notRecording() {
+        FlightRecorderEvent event = FlightRecorderEvent.begin(FlightRecorderEvent.CACHE_LOOKUP);
+        assertFalse(event.isEnabled());
+        event.set("archive", "a.jar").commit();
+    }
+
+    @Test
+    void recording() throws Exception {
+        Class<?> recordingClass;
+        try {
+            recordingClass = Class.forName("jdk.jfr.Recording");
+        } catch (ClassNotFoundException e) {
+            recordingClass = null;
+        }
+        assumeTrue(recordingClass != null, "JFR is not available");
+
+        Object recording = recordingClass.getConstructor().newInstance();
+        recordingClass.getMethod("start").invoke(recording);
+        try {
+            assertTrue(FlightRecorderEvent.CACHE_LOOKUP.isEnabled());
+            FlightRecorderEvent.begin(FlightRecorderEvent.CACHE_LOOKUP)
+                    .set("module", "org.example:app")
+                    .set("archive", "a.jar")
+                    .set("hit", true)
+                    .commit();
+        } finally {
+            recordingClass.getMethod("stop").invoke(recording);
+        }
+        Path file = tempDir.resolve("recording.jfr");
+        recordingClass.getMethod("dump", Path.class).invoke(recording, file);
+        recordingClass.getMethod("close").invoke(recording);
+
+        Class<?> recordedEventClass = Class.forName("jdk.jfr.consumer.RecordedEvent");
+        List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                .getMethod("readAllEvents", Path.class)
+                .invoke(null, file);
+        List<String> archives = new ArrayList<>();
+        for (Object event : events) {
+            Object type = recordedEventClass.getMethod("getEventType").invoke(event);
+            String name = (String) type.getClass().getMethod("getName").invoke(type);
+            if (name.equals("org.apache.maven.plugins.jdeps.AnalysisCacheLookup")) {
+                archives.add((String)
+                        recordedEventClass.getMethod("getString", String.class).invoke(event, "archive"));
+                assertTrue((Boolean)
+                        recordedEventClass.getMethod("getBoolean", String.class).invoke(event, "hit"));
+            }
+        }
+        assertEquals(1, archives.size());
+        assertEquals("a.jar", archives.get(0));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalAnalysisTest {
+
+    @TempDir
+    Path tempDir;
+
+    private long lastModified = System.currentTimeMillis();
+
+    @Test
+    void onlyChangedPackagesAreAnalyzed() throws Exception {
+        Path classes = tempDir.resolve("classes");
+        Path index = tempDir.resolve("classes.index");
+        writeClass(classes, "a/A.class", "a");
+        writeClass(classes, "a/A2.class", "a2");
+        writeClass(classes, "b/B.class", "b");
+        writeClass(classes, "c/C.class", "c");
+
+        IncrementalAnalysis analysis = new IncrementalAnalysis(classes, index, "key");
+        analysis.scan();
+        assertTrue(analysis.isFullAnalysis());
+        analysis.update(
+                Collections.singletonMap("b", Collections.singletonMap("sun.misc", "JDK internal API")),
+                Collections.emptyMap());
+        analysis.store();
+
+        writeClass(classes, "a/A.class", "changed");
+        analysis = new IncrementalAnalysis(classes, index, "key");
+        analysis.scan();
+        assertFalse(analysis.isFullAnalysis());
+        assertEquals(
+                Arrays.asList(classes.resolve("a/A.class"), classes.resolve("a/A2.class")),
+                analysis.getClassFilesToAnalyze());
+        assertEquals("JDK internal API", analysis.getOffendingPackages().get("sun.misc"));
+        analysis.update(Collections.emptyMap(), Collections.emptyMap());
+        analysis.store();
+
+        // rewritten with the same content
+        writeClass(classes, "c/C.class", "c");
+        Files.delete(classes.resolve("b/B.class"));
+        analysis = new IncrementalAnalysis(classes, index, "key");
+        analysis.scan();
+        assertTrue(analysis.getClassFilesToAnalyze().isEmpty());
+        assertTrue(analysis.getOffendingPackages().isEmpty());
+    }
+
+    @Test
+    void analysisKeyChangeDiscardsIndex() throws Exception {
+        Path classes = tempDir.resolve("classes");
+        Path index = tempDir.resolve("classes.index");
+        writeClass(classes, "a/A.class", "a");
+
+        IncrementalAnalysis analysis = new IncrementalAnalysis(classes, index, "jdk17");
+        analysis.scan();
+        analysis.store();
+
+        analysis = new IncrementalAnalysis(classes, index, "jdk21");
+        analysis.scan();
+        assertTrue(analysis.isFullAnalysis());
+    }
+
+    private void writeClass(Path classes, String relativePath, String content) throws IOException {
+        Path classFile = classes.resolve(relativePath);
+        Files.createDirectories(classFile.getParent());
+        Files.write(classFile, content.getBytes(StandardCharsets.UTF_8));
+        // make sure a rewrite is noticed even on file systems with a coarse timestamp resolution
+        Files.setLastModifiedTime(
+                classFile,
+                java.nio.file.attribute.FileTime.fromMillis(System.currentTimeMillis() + content.hashCode()));
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystemSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JDepsSessionContextTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void jdepsExecutableResolvedOnce() throws Exception {
+        JDepsSessionContext context = new JDepsSessionContext();
+        AtomicInteger resolutions = new AtomicInteger();
+
+        assertEquals("/jdk/bin/jdeps", context.getJDepsExecutable(null, () -> {
+            resolutions.incrementAndGet();
+            return "/jdk/bin/jdeps";
+        }));
+        assertEquals("/jdk/bin/jdeps", context.getJDepsExecutable(null, () -> {
+            resolutions.incrementAndGet();
+            return "/other/bin/jdeps";
+        }));
+        assertEquals(1, resolutions.get());
+    }
+
+    @Test
+    void failedResolutionNotRemembered() throws Exception {
+        JDepsSessionContext context = new JDepsSessionContext();
+
+        assertThrows(
+                IOException.class,
+                () -> context.getJDepsExecutable(null, () -> {
+                    throw new IOException("not found");
+                }));
+        assertEquals("/jdk/bin/jdeps", context.getJDepsExecutable(null, () -> "/jdk/bin/jdeps"));
+    }
+
+    @Test
+    void moduleGraphLoadedOnce() throws Exception {
+        JDepsSessionContext context = new JDepsSessionContext();
+        ModuleGraph graph = new ModuleGraph(Collections.emptyMap());
+
+        assertThrows(
+                IOException.class,
+                () -> context.getModuleGraph("key", () -> {
+                    throw new IOException("unreadable descriptor");
+                }));
+        assertSame(graph, context.getModuleGraph("key", () -> graph));
+        assertSame(graph, context.getModuleGraph("key", () -> new ModuleGraph(Collections.emptyMap())));
+        assertNotSame(graph, context.getModuleGraph("other", () -> new ModuleGraph(Collections.emptyMap())));
+    }
+
+    @Test
+    void sharedResults() {
+        JDepsSessionContext context = new JDepsSessionContext();
+        Path archive = Paths.get("a.jar").toAbsolutePath();
+
+        CompletableFuture<AnalysisCache.Result> first = new CompletableFuture<>();
+        assertSame(first, context.getResult("jdk17", archive, first));
+        assertSame(first, context.getResult("jdk17", archive, new CompletableFuture<>()));
+
+        CompletableFuture<AnalysisCache.Result> otherKey = new CompletableFuture<>();
+        assertSame(otherKey, context.getResult("jdk21", archive, otherKey));
+
+        context.removeResult("jdk17", archive, first);
+        assertNotSame(first, context.getResult("jdk17", archive, new CompletableFuture<>()));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_9)
+    void workersClosedAtSessionEnd() throws Exception {
+        RepositorySystemSession repositorySession = new DefaultRepositorySystemSession();
+        MavenSession session = newSession(repositorySession);
+        JDepsSessionContext context = JDepsSessionContext.of(session);
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        AtomicInteger starts = new AtomicInteger();
+        List<JDepsWorkerClient> workers = Collections.synchronizedList(new ArrayList<>());
+
+        // modules of a parallel build, which finish in any order and again start after others finished
+        int moduleCount = 4;
+        CyclicBarrier allStarted = new CyclicBarrier(moduleCount);
+        ExecutorService executor = Executors.newFixedThreadPool(moduleCount);
+        try {
+            List<Future<?>> modules = new ArrayList<>();
+            for (int i = 0; i < moduleCount; i++) {
+                modules.add(executor.submit(() -> {
+                    for (int round = 0; round < 2; round++) {
+                        JDepsWorkerClient worker = JDepsSessionContext.of(newSession(repositorySession))
+                                .acquireWorker("jdk", () -> {
+                                    starts.incrementAndGet();
+                                    return JDepsWorkerClient.start(java, Collections.emptyList(), 0);
+                                });
+                        workers.add(worker);
+                        allStarted.await();
+                        context.releaseWorker(worker);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> module : modules) {
+                module.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, starts.get());
+        assertTrue(workers.get(0).isAlive());
+
+        new JDepsLifecycleParticipant().afterSessionEnd(session);
+        assertThrows(IOException.class, () -> workers.get(0).run(new String[] {"-version"}, line -> {}, line -> {}));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_9)
+    void idleWorkerReplaced() throws Exception {
+        JDepsSessionContext context = new JDepsSessionContext();
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        AtomicInteger starts = new AtomicInteger();
+        JDepsSessionContext.Resolver<JDepsWorkerClient> starter = () -> {
+            starts.incrementAndGet();
+            return JDepsWorkerClient.start(java, Collections.emptyList(), 1);
+        };
+
+        JDepsWorkerClient first = context.acquireWorker("jdk", starter);
+        context.releaseWorker(first);
+        assertSame(first, context.acquireWorker("jdk", starter));
+        context.releaseWorker(first);
+
+        // half the idle timeout, the worker might exit before a request reaches it
+        Thread.sleep(600);
+        JDepsWorkerClient second = context.acquireWorker("jdk", starter);
+        assertNotSame(first, second);
+        assertEquals(2, starts.get());
+        assertEquals(0, second.run(new String[] {"-version"}, line -> {}, line -> {}));
+        context.releaseWorker(second);
+        context.closeWorkers();
+    }
+
+    @Test
+    void metricsSummarizedAtSessionEnd() throws Exception {
+        MavenSession session = newSession(new DefaultRepositorySystemSession());
+        List<String> infos = new ArrayList<>();
+        SystemStreamLog log = new SystemStreamLog() {
+            @Override
+            public void info(CharSequence content) {
+                infos.add(content.toString());
+            }
+        };
+
+        Path rollUpFile = tempDir.resolve("jdeps-metrics.json");
+        JDepsSessionContext.of(session)
+                .addMetrics(new ExecutionMetrics("org.example:app", "jdkinternals@default"), rollUpFile, log);
+        JDepsSessionContext.of(session)
+                .addMetrics(new ExecutionMetrics("org.example:lib", "jdkinternals@default"), rollUpFile, log);
+        assertTrue(Files.exists(rollUpFile));
+        assertFalse(infos.stream().anyMatch(info -> info.contains("jdeps executions took")));
+
+        new JDepsLifecycleParticipant().afterSessionEnd(session);
+        assertEquals(1, infos.size());
+        assertTrue(infos.get(0).startsWith("2 jdeps executions took"), infos.get(0));
+
+        JDepsSessionContext.of(session).sessionEnded();
+        assertEquals(1, infos.size());
+    }
+
+    /**
+     * @return a session of a module of the build, sessions of other modules share its repository session
+     */
+    private static MavenSession newSession(RepositorySystemSession repositorySession) {
+        MavenSession session = mock(MavenSession.class);
+        when(session.getRepositorySession()).thenReturn(repositorySession);
+        return session;
+    }
+}
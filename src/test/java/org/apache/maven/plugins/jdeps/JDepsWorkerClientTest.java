@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EnabledForJreRange(min = JRE.JAVA_9)
+class JDepsWorkerClientTest {
+
+    @Test
+    void concurrentRequests() throws Exception {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        String classes = new File(JDepsWorker.class
+                        .getProtectionDomain()
+                        .getCodeSource()
+                        .getLocation()
+                        .toURI())
+                .getPath();
+
+        try (JDepsWorkerClient worker = JDepsWorkerClient.start(java, Collections.emptyList(), 0)) {
+            List<String> versionOut = new ArrayList<>();
+            CompletableFuture<Integer> version = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return worker.run(new String[] {"-version"}, versionOut::add, line -> {});
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            List<String> out = new ArrayList<>();
+            assertEquals(0, worker.run(new String[] {"-summary", classes}, out::add, line -> {}));
+            assertTrue(out.stream().anyMatch(line -> line.contains("java.base")), out.toString());
+
+            List<String> usage = new ArrayList<>();
+            assertEquals(2, worker.run(new String[] {"--no-such-option"}, usage::add, line -> {}));
+            assertEquals("Error: unknown option: --no-such-option", usage.get(0));
+
+            assertEquals(0, version.get());
+            assertEquals(Collections.singletonList(System.getProperty("java.version")), versionOut);
+        }
+    }
+
+    @Test
+    void interruptedRequestCancelled() throws Exception {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        try (JDepsWorkerClient worker = JDepsWorkerClient.start(java, Collections.emptyList(), 0)) {
+            Thread requestThread = Thread.currentThread();
+            AtomicInteger lines = new AtomicInteger();
+            // tens of thousands of lines, the first ones are streamed long before jdeps has written the last one
+            String[] arguments = {"-verbose:class", "-m", "java.desktop"};
+            assertThrows(
+                    InterruptedException.class,
+                    () -> worker.run(
+                            arguments,
+                            line -> {
+                                if (lines.incrementAndGet() == 1) {
+                                    requestThread.interrupt();
+                                }
+                            },
+                            line -> {}));
+
+            List<String> versionOut = new ArrayList<>();
+            assertEquals(0, worker.run(new String[] {"-version"}, versionOut::add, line -> {}));
+            assertEquals(Collections.singletonList(System.getProperty("java.version")), versionOut);
+            assertTrue(worker.isAlive());
+        }
+    }
+
+    @Test
+    void failedConsumerFailsItsRequestOnly() throws Exception {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        try (JDepsWorkerClient worker = JDepsWorkerClient.start(java, Collections.emptyList(), 0)) {
+            IOException e = assertThrows(
+                    IOException.class,
+                    () -> worker.run(
+                            new String[] {"-verbose:class", "-m", "java.desktop"},
+                            line -> {
+                                throw new IllegalStateException("consumer failed");
+                            },
+                            line -> {}));
+            assertEquals("Unable to consume the jdeps output: consumer failed", e.getMessage());
+
+            List<String> versionOut = new ArrayList<>();
+            assertEquals(0, worker.run(new String[] {"-version"}, versionOut::add, line -> {}));
+            assertEquals(Collections.singletonList(System.getProperty("java.version")), versionOut);
+            assertTrue(worker.isAlive());
+        }
+    }
+
+    @Test
+    void exitedWorker() throws Exception {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        JDepsWorkerClient worker = JDepsWorkerClient.start(java, Collections.singletonList("-XX:NoSuchOption"), 0);
+        assertThrows(java.io.IOException.class, () -> worker.run(new String[] {"-version"}, line -> {}, line -> {}));
+        assertFalse(worker.isAlive());
+        worker.close();
+    }
+
+    @Test
+    void idleWorkerExits() throws Exception {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        try (JDepsWorkerClient worker = JDepsWorkerClient.start(java, Collections.emptyList(), 1)) {
+            assertEquals(0, worker.run(new String[] {"-version"}, line -> {}, line -> {}));
+            assertFalse(worker.isIdleExpiring());
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (worker.isAlive() && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+            assertFalse(worker.isAlive());
+            assertTrue(worker.isIdleExpiring());
+        }
+    }
+}
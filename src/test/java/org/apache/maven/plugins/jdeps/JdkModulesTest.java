@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JdkModulesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void runningJdk() throws Exception {
+        JdkModules jdkModules = JdkModules.load(new File(System.getProperty("java.home")), tempDir);
+        assumeTrue(jdkModules != null, "requires a JDK with modules");
+
+        assertEquals("java.base", jdkModules.getModule("java.lang"));
+        assertFalse(jdkModules.isInternal("java.lang"));
+        assertTrue(jdkModules.isInternal("sun.misc"));
+        assertTrue(jdkModules.isInternal("sun.nio.ch"));
+        assertNull(jdkModules.getModule("org.apache.maven.plugins.jdeps"));
+        assertFalse(jdkModules.isInternal("org.apache.maven.plugins.jdeps"));
+
+        assertFalse(jdkModules.isExported("jdk.internal.misc", null));
+        assertTrue(jdkModules.isExported("jdk.internal.misc", "jdk.unsupported"));
+        assertTrue(jdkModules.isInternal("jdk.internal.misc"));
+
+        assertTrue(jdkModules.isRemovedInternal("sun/misc/BASE64Encoder"));
+        assertTrue(jdkModules.isRemovedInternal("com/sun/image/codec/jpeg/JPEGCodec"));
+        assertFalse(jdkModules.isRemovedInternal("sun/misc/Unsafe"));
+        assertFalse(jdkModules.isRemovedInternal("java/lang/Object"));
+        assertFalse(jdkModules.isRemovedInternal("org/apache/maven/plugins/jdeps/JdkModules"));
+    }
+
+    @Test
+    void index() throws Exception {
+        Map<String, String> packageModules = new HashMap<>();
+        packageModules.put("java.lang", "java.base");
+        packageModules.put("sun.nio.ch", "java.base");
+        packageModules.put("sun.misc", "jdk.unsupported");
+        packageModules.put("jdk.internal.misc", "java.base");
+        Map<String, Set<String>> exports = new HashMap<>();
+        exports.put("java.lang", Collections.emptySet());
+        exports.put("sun.misc", Collections.emptySet());
+        exports.put("jdk.internal.misc", Collections.singleton("jdk.unsupported"));
+        Path indexFile = tempDir.resolve("jdk.index");
+        new JdkModules(
+                        packageModules,
+                        exports,
+                        new HashSet<>(Arrays.asList("sun.misc", "com.sun.image.codec.jpeg")),
+                        Collections.singleton("sun/misc/Unsafe"))
+                .writeIndex(indexFile, "jdk17");
+
+        assertNull(JdkModules.readIndex(indexFile, "jdk21"));
+
+        JdkModules jdkModules = JdkModules.readIndex(indexFile, "jdk17");
+        assertNotNull(jdkModules);
+        assertEquals("java.base", jdkModules.getModule("sun.nio.ch"));
+        assertFalse(jdkModules.isInternal("java.lang"));
+        assertTrue(jdkModules.isInternal("sun.nio.ch"));
+        assertTrue(jdkModules.isInternal("sun.misc"));
+        assertTrue(jdkModules.isInternal("jdk.internal.misc"));
+        assertTrue(jdkModules.isExported("jdk.internal.misc", "jdk.unsupported"));
+        assertFalse(jdkModules.isExported("jdk.internal.misc", "java.desktop"));
+        assertTrue(jdkModules.isRemovedInternal("sun/misc/BASE64Encoder"));
+        assertTrue(jdkModules.isRemovedInternal("com/sun/image/codec/jpeg/JPEGCodec"));
+        assertFalse(jdkModules.isRemovedInternal("sun/misc/Unsafe"));
+    }
+}
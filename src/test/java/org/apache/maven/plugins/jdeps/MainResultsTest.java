@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MainResultsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void reuseUnchangedArchives() throws Exception {
+        Path jar = Files.write(tempDir.resolve("a.jar"), "content".getBytes(StandardCharsets.UTF_8));
+        Path classes = tempDir.resolve("classes");
+        Path classFile = Files.write(
+                Files.createDirectories(classes.resolve("org/example")).resolve("Foo.class"),
+                "foo".getBytes(StandardCharsets.UTF_8));
+        Path file = tempDir.resolve("main.results");
+
+        JDepsConsumer consumer = new JDepsConsumer();
+        consumer.addResults(
+                "a.jar",
+                Collections.singletonMap("sun.misc", "JDK internal API (jdk.unsupported)"),
+                Collections.emptyMap());
+        consumer.addResults("classes", Collections.emptyMap(), Collections.singletonMap("org.example", "compact1"));
+        MainResults.of("jdk17", Arrays.asList(jar, classes), consumer, null).write(file);
+
+        MainResults mainResults = MainResults.read(file);
+        assertTrue(mainResults.matches("jdk17"));
+        assertFalse(mainResults.matches("jdk21"));
+
+        Map<Path, AnalysisCache.Result> results =
+                mainResults.getResults(Arrays.asList(tempDir.resolve("test-classes"), jar, classes));
+        assertEquals(Arrays.asList(jar, classes), Arrays.asList(results.keySet().toArray()));
+        assertEquals(
+                "JDK internal API (jdk.unsupported)",
+                results.get(jar).getOffendingPackages().get("sun.misc"));
+        assertEquals("compact1", results.get(classes).getProfiles().get("org.example"));
+
+        // recompiled main classes are analyzed again
+        Files.setLastModifiedTime(classFile, FileTime.fromMillis(0));
+        assertEquals(
+                Collections.singleton(jar),
+                mainResults.getResults(Arrays.asList(jar, classes)).keySet());
+    }
+
+    @Test
+    void unusableFile() throws Exception {
+        assertNull(MainResults.read(tempDir.resolve("missing.results")));
+        assertNull(MainResults.read(Files.write(tempDir.resolve("corrupt.results"), new byte[] {0, 0, 0, 1, 0})));
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import javax.tools.ToolProvider;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModuleGraphTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void automaticModuleName() {
+        assertEquals("foo.bar", ModuleGraph.getAutomaticModuleName("foo-bar-1.2.3-SNAPSHOT.jar"));
+        assertEquals("commons.lang3", ModuleGraph.getAutomaticModuleName("commons-lang3-3.12.0.jar"));
+        assertEquals("foo", ModuleGraph.getAutomaticModuleName("foo.jar"));
+        assertEquals("foo.bar", ModuleGraph.getAutomaticModuleName("_foo__bar_.jar"));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_9)
+    void modulePath() throws IOException {
+        Path base = createModule("base", "module base {}");
+        Path optional = createModule("optional", "module optional {}");
+        Path app = createModule("app", "module app { requires base; requires static optional; requires java.sql; }");
+        Path named = createJar("named-1.0.jar", "org.example.named");
+        Path automatic = createJar("some-lib-2.1.jar", null);
+        Path plain = tempDir.resolve("plain");
+        Files.createDirectories(plain);
+
+        ModuleGraph graph = ModuleGraph.read(Arrays.asList(base, named, automatic, optional, plain));
+        assertEquals("org.example.named", graph.getModule(named).getName());
+        assertEquals("some.lib", graph.getModule(automatic).getName());
+        assertTrue(graph.getModule(automatic).isAutomatic());
+        assertNull(graph.getModule(plain));
+
+        // an explicit module only needs the modules it requires at run time
+        ModuleGraph.ModulePath modulePath = graph.getModulePath(
+                Arrays.asList(base, named, automatic, optional, plain), Collections.singletonList(app));
+        assertEquals(Collections.singletonList(base), modulePath.getModulePath());
+        assertEquals(Collections.singletonList(plain), modulePath.getClassPath());
+        assertTrue(modulePath.getRootModules().isEmpty());
+        assertEquals(
+                Arrays.asList("java.base", "base", "java.sql"),
+                ModuleGraph.readModule(app).getRequires());
+
+        // unnamed code reads every module
+        modulePath =
+                graph.getModulePath(Arrays.asList(base, named, automatic, optional), Collections.singletonList(plain));
+        assertEquals(Arrays.asList(base, named, automatic, optional), modulePath.getModulePath());
+        assertEquals(Collections.singletonList("ALL-MODULE-PATH"), modulePath.getRootModules());
+
+        // analyzed modular JAR files are root modules of the module path, no jdeps arguments
+        modulePath = graph.getModulePath(Arrays.asList(base, automatic), Arrays.asList(app, named));
+        assertTrue(graph.isModularJar(named));
+        assertFalse(graph.isModularJar(base));
+        assertEquals(Arrays.asList(named, base, automatic), modulePath.getModulePath());
+        assertEquals(Collections.singletonList("ALL-MODULE-PATH"), modulePath.getRootModules());
+    }
+
+    @Test
+    void index() throws IOException {
+        Path named = createJar("named-1.0.jar", "org.example.named");
+        Path plain = createJar("1.0.jar", null);
+        Path indexDirectory = tempDir.resolve("modules");
+
+        List<Path> archives = Arrays.asList(named, plain);
+        ModuleGraph graph = ModuleGraph.load(archives, ModuleGraph.getKey(archives), indexDirectory);
+        assertNotNull(graph.getModule(named));
+        assertNull(graph.getModule(plain));
+
+        try (java.util.stream.Stream<Path> indexes = Files.list(indexDirectory)) {
+            Path indexFile = indexes.findFirst().get();
+            String key = indexFile.getFileName().toString().replace(".index", "");
+            assertEquals(ModuleGraph.getKey(archives), key);
+            ModuleGraph read = ModuleGraph.readIndex(indexFile, key);
+            assertEquals("org.example.named", read.getModule(named).getName());
+            assertTrue(read.getModule(named).isAutomatic());
+            assertNull(ModuleGraph.readIndex(indexFile, "other"));
+        }
+    }
+
+    private Path createModule(String name, String moduleInfo) throws IOException {
+        Path sources = tempDir.resolve("src").resolve(name);
+        Files.createDirectories(sources);
+        Path source = sources.resolve("module-info.java");
+        Files.write(source, moduleInfo.getBytes(StandardCharsets.UTF_8));
+
+        Path classes = tempDir.resolve("modules").resolve(name);
+        assertEquals(
+                0,
+                ToolProvider.getSystemJavaCompiler()
+                        .run(
+                                null,
+                                null,
+                                null,
+                                "-d",
+                                classes.toString(),
+                                "--module-path",
+                                tempDir.resolve("modules").toString(),
+                                source.toString()));
+        return classes;
+    }
+
+    private Path createJar(String fileName, String automaticModuleName) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (automaticModuleName != null) {
+            manifest.getMainAttributes().putValue("Automatic-Module-Name", automaticModuleName);
+        }
+        Path jar = tempDir.resolve(fileName);
+        try (OutputStream out = Files.newOutputStream(jar);
+                JarOutputStream jarOut = new JarOutputStream(out, manifest)) {
+            jarOut.putNextEntry(new ZipEntry("p/"));
+            jarOut.closeEntry();
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MultiReleaseVersionsTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void list() throws IOException {
+        assertEquals(Collections.emptyList(), MultiReleaseVersions.resolve(null, Collections.emptyList()));
+        assertEquals(
+                Arrays.asList("base", "11", "17"),
+                MultiReleaseVersions.resolve("17, base,11,17", Collections.emptyList()));
+        assertThrows(IllegalArgumentException.class, () -> MultiReleaseVersions.resolve("8", Collections.emptyList()));
+    }
+
+    @Test
+    void all() throws IOException {
+        Path jar = tempDir.resolve("lib.jar");
+        try (OutputStream out = Files.newOutputStream(jar);
+                ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String name : new String[] {
+                "p/A.class", "META-INF/versions/17/p/A.class", "META-INF/versions/11/", "META-INF/versions/x/"
+            }) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.closeEntry();
+            }
+        }
+        Path classes = tempDir.resolve("classes");
+        Files.createDirectories(classes.resolve("META-INF/versions/21/p"));
+
+        assertEquals(
+                Arrays.asList("base", "11", "17", "21"),
+                MultiReleaseVersions.resolve("all", Arrays.asList(jar, classes, tempDir.resolve("missing"))));
+        assertEquals(Collections.singletonList("base"), MultiReleaseVersions.resolve("all", Collections.emptyList()));
+    }
+}
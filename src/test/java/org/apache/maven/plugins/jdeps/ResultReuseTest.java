@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultReuseTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void nothingReusedWithoutAnalysisKey() throws Exception {
+        Path jar = Files.write(tempDir.resolve("a.jar"), "a".getBytes(StandardCharsets.UTF_8));
+        Set<Path> archives = Collections.singleton(jar);
+
+        ResultReuse resultReuse = newResultReuse(null);
+        assertSame(archives, resultReuse.select(archives));
+        assertSame(archives, resultReuse.lookUpCache(archives));
+
+        JDepsConsumer consumer = new JDepsConsumer();
+        resultReuse.addResults(consumer);
+        resultReuse.addOtherResults(consumer, others -> {
+            throw new AssertionError("nothing to analyze");
+        });
+        assertTrue(consumer.getOffendingPackages().isEmpty());
+    }
+
+    @Test
+    void cachedResultsAdded() throws Exception {
+        Path cached = Files.write(tempDir.resolve("a.jar"), "a".getBytes(StandardCharsets.UTF_8));
+        Path analyzed = Files.write(tempDir.resolve("b.jar"), "b".getBytes(StandardCharsets.UTF_8));
+        Path cacheDir = tempDir.resolve("cache");
+        new AnalysisCache(cacheDir, "jdk17")
+                .put(
+                        cached,
+                        Collections.singletonMap("sun.misc", "JDK internal API (jdk.unsupported)"),
+                        Collections.emptyMap());
+
+        ResultReuse resultReuse = newResultReuse("jdk17");
+        resultReuse.useAnalysisCache(cacheDir);
+        Set<Path> archives = resultReuse.select(new LinkedHashSet<>(Arrays.asList(cached, analyzed)));
+        assertEquals(Collections.singleton(analyzed), resultReuse.lookUpCache(archives));
+        assertEquals(
+                "JDK internal API (jdk.unsupported)",
+                resultReuse.getCachedResults().getOffendingPackages().get("sun.misc"));
+
+        JDepsConsumer consumer = new JDepsConsumer();
+        consumer.consumeLine("b.jar -> java.base");
+        resultReuse.addResults(consumer);
+        assertEquals(
+                Collections.singleton("sun.misc"),
+                consumer.getOffendingPackages().keySet());
+        assertNotNull(new AnalysisCache(cacheDir, "jdk17").get(analyzed));
+    }
+
+    private static ResultReuse newResultReuse(String analysisKey) {
+        return new ResultReuse(
+                new JDepsSessionContext(), analysisKey, null, new ExecutionMetrics(null, null), new SystemStreamLog());
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StringMapsTest {
+
+    @Test
+    void readWrite() throws Exception {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("sun.misc", "JDK internal API (jdk.unsupported)");
+        map.put("java.lang", "compact1");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StringMaps.write(new DataOutputStream(bytes), map);
+
+        Map<String, String> read = new LinkedHashMap<>();
+        StringMaps.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), read);
+        assertEquals(map, read);
+    }
+}
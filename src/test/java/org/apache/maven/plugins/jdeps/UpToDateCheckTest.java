@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.plugins.jdeps.consumers.JDepsConsumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpToDateCheckTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void replayUnchangedInputs() throws Exception {
+        Path jar = Files.write(tempDir.resolve("a.jar"), "content".getBytes(StandardCharsets.UTF_8));
+        Path classes = Files.createDirectories(tempDir.resolve("classes"));
+        Files.write(classes.resolve("Foo.class"), "foo".getBytes(StandardCharsets.UTF_8));
+        Path file = tempDir.resolve("jdkinternals@default.results");
+
+        JDepsConsumer consumer = new JDepsConsumer();
+        consumer.getOffendingPackages().put("sun.misc", "JDK internal API (jdk.unsupported)");
+        consumer.getProfiles().put("java.lang", "compact1");
+        Map<String, JDepsConsumer> storedVersions = new LinkedHashMap<>();
+        storedVersions.put("base", new JDepsConsumer());
+        storedVersions.put("11", consumer);
+        new UpToDateCheck(file, "jdk17\n-jdkinternals", Arrays.asList(classes, jar))
+                .store(consumer, storedVersions, new SystemStreamLog());
+
+        Map<String, JDepsConsumer> versions = new LinkedHashMap<>();
+        JDepsConsumer replayed =
+                new UpToDateCheck(file, "jdk17\n-jdkinternals", Arrays.asList(classes, jar)).replay(versions);
+        assertEquals(consumer.getOffendingPackages(), replayed.getOffendingPackages());
+        assertEquals(consumer.getProfiles(), replayed.getProfiles());
+        assertEquals(
+                Arrays.asList("base", "11"), Arrays.asList(versions.keySet().toArray()));
+        assertTrue(versions.get("base").getOffendingPackages().isEmpty());
+
+        // other options, or changed or added class files
+        assertNull(new UpToDateCheck(file, "jdk21\n-jdkinternals", Arrays.asList(classes, jar))
+                .replay(new LinkedHashMap<>()));
+        Files.write(classes.resolve("Bar.class"), "bar".getBytes(StandardCharsets.UTF_8));
+        assertNull(new UpToDateCheck(file, "jdk17\n-jdkinternals", Arrays.asList(classes, jar))
+                .replay(new LinkedHashMap<>()));
+    }
+
+    @Test
+    void noPreviousBuild() throws Exception {
+        assertNull(new UpToDateCheck(tempDir.resolve("missing.results"), "jdk17", Collections.emptyList())
+                .replay(new LinkedHashMap<>()));
+    }
+}
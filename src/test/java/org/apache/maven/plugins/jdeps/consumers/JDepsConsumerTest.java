@@ -18,9 +18,18 @@
  */
 package org.apache.maven.plugins.jdeps.consumers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 class JDepsConsumerTest {
 
@@ -96,4 +105,183 @@ class JDepsConsumerTest {
         assertEquals("compact1", consumer.getProfiles().get("java.io"));
         assertEquals("compact1", consumer.getProfiles().get("java.lang"));
     }
+
+    @Test
+    void offendingPackagesPerArchive() {
+        consumer = new JDepsConsumer();
+        consumer.consumeLine("classes -> java.base");
+        consumer.consumeLine(
+                "   p.q                                                -> java.lang                                          java.base");
+        consumer.consumeLine("guava.jar -> java.base");
+        consumer.consumeLine("guava.jar -> jdk.unsupported");
+        consumer.consumeLine(
+                "   com.google.common.primitives                       -> sun.misc                                           JDK internal API (jdk.unsupported)");
+        consumer.consumeLine("other.jar -> java.base");
+        consumer.consumeLine(
+                "   r                                                  -> sun.nio.ch                                         JDK internal API (java.base)");
+
+        assertEquals(2, consumer.getOffendingPackages().size());
+        assertEquals(0, consumer.getOffendingPackages("classes").size());
+        assertEquals(
+                "JDK internal API (jdk.unsupported)",
+                consumer.getOffendingPackages("guava.jar").get("sun.misc"));
+        assertEquals(1, consumer.getOffendingPackages("other.jar").size());
+        assertEquals(
+                "JDK internal API (java.base)",
+                consumer.getOffendingPackages("other.jar").get("sun.nio.ch"));
+    }
+
+    @Test
+    void addResults() {
+        consumer = new JDepsConsumer();
+        consumer.consumeLine("a.jar -> jdk.unsupported");
+        consumer.consumeLine("   a    -> sun.misc    JDK internal API (jdk.unsupported)");
+
+        JDepsConsumer other = new JDepsConsumer();
+        other.consumeLine("b.jar -> java.base");
+        other.consumeLine("   b    -> sun.nio.ch    JDK internal API (java.base)");
+
+        consumer.addResults(other);
+
+        assertEquals(2, consumer.getOffendingPackages().size());
+        assertEquals(
+                "JDK internal API (java.base)",
+                consumer.getOffendingPackages("b.jar").get("sun.nio.ch"));
+        assertEquals(
+                "JDK internal API (java.base)",
+                consumer.getOffendingPackagesByOrigin("b.jar").get("b").get("sun.nio.ch"));
+    }
+
+    @Test
+    void streamingWithoutKeepingOutput() {
+        List<String> lines = new ArrayList<>();
+        consumer = new JDepsConsumer(lines::add, false);
+        consumer.consumeLine("a.jar -> jdk.unsupported");
+        consumer.consumeLine("   a    -> sun.misc    JDK internal API (jdk.unsupported)");
+
+        assertEquals(2, lines.size());
+        assertEquals("", consumer.getOutput());
+        assertEquals(
+                "JDK internal API (jdk.unsupported)",
+                consumer.getOffendingPackages().get("sun.misc"));
+    }
+
+    @Test
+    void dependencyListener() {
+        List<String> dependencies = new ArrayList<>();
+        DependencyListener listener = new DependencyListener() {
+            @Override
+            public void archiveDependency(String archive, String target) {
+                dependencies.add(archive + " -> " + target);
+            }
+
+            @Override
+            public void dependency(String archive, String origin, String target, String detail) {
+                dependencies.add(archive + ": " + origin + " -> " + target + " [" + detail + "]");
+            }
+        };
+
+        // JDK 9 and later
+        consumer = new JDepsConsumer(null, false, listener);
+        consumer.consumeLine("a.jar -> java.base");
+        consumer.consumeLine("a.jar -> not found");
+        consumer.consumeLine("   <unnamed>                                          -> java.io      java.base");
+        consumer.consumeLine(
+                "   a.b                                                -> sun.misc     JDK internal API (java.base)");
+        consumer.consumeLine("   a.b                                                -> c.d          not found");
+
+        // JDK 8
+        consumer = new JDepsConsumer(null, false, listener);
+        consumer.consumeLine("classes -> /usr/lib/jvm/java-8/jre/lib/rt.jar (compact1)");
+        consumer.consumeLine("   a.b (classes)");
+        consumer.consumeLine("      -> java.io                                            compact1");
+        consumer.consumeLine("      -> x.y                                                ");
+
+        assertEquals(
+                Arrays.asList(
+                        "a.jar -> java.base",
+                        "a.jar -> not found",
+                        "a.jar:  -> java.io [java.base]",
+                        "a.jar: a.b -> sun.misc [JDK internal API (java.base)]",
+                        "a.jar: a.b -> c.d [not found]",
+                        "classes -> /usr/lib/jvm/java-8/jre/lib/rt.jar (compact1)",
+                        "classes: a.b -> java.io [compact1]",
+                        "classes: a.b -> x.y []"),
+                dependencies);
+        assertEquals("compact1", consumer.getProfiles().get("java.io"));
+    }
+
+    /**
+     * The scanner must accept exactly the lines the regular expressions it replaced accepted.
+     */
+    @Test
+    void sameResultsAsRegularExpressions() {
+        Pattern jdkInternalApi = Pattern.compile(".+->\\s([a-z\\.]+)\\s+(JDK (?:removed )?internal API.*)");
+        Pattern profile = Pattern.compile("\\s+->\\s([a-z\\.]+)\\s+(\\S+)");
+
+        List<String> lines = Arrays.asList(
+                "",
+                "   ",
+                "->",
+                "-> sun.misc JDK internal API",
+                " -> sun.misc JDK internal API (rt.jar)",
+                "a->sun.misc JDK internal API",
+                "a ->  sun.misc JDK internal API",
+                "a -> sun.misc JDK internal API",
+                "a -> sun.misc JDK internal APIs",
+                "a -> sun.misc JDK removed internal API",
+                "a -> sun.misc JDK removed internal",
+                "a -> sun.misc\tJDK internal API (java.base)",
+                "a -> sun.misc.Unsafe JDK internal API (java.base)",
+                "a -> sun.misc.Unsafe -> sun.misc JDK internal API (java.base)",
+                "a -> sun.misc JDK internal API -> java.base",
+                "a -> sun.security.x509 JDK internal API (java.base)",
+                "a -> JDK internal API",
+                "   a -> b c",
+                "      -> java.io compact1",
+                "      -> java.io compact1 ",
+                "      -> java.io compact1 compact2",
+                "      -> java.io",
+                "      -> java.io    ",
+                "      ->java.io compact1",
+                "      -> Java.io compact1",
+                "\t-> java.io\tcompact1",
+                "      -> -> java.io compact1");
+
+        for (String line : lines) {
+            Map<String, String> offendingPackages = new HashMap<>();
+            Map<String, String> profiles = new HashMap<>();
+            Matcher matcher = jdkInternalApi.matcher(line);
+            if (matcher.matches()) {
+                offendingPackages.put(matcher.group(1), matcher.group(2));
+            } else {
+                matcher = profile.matcher(line);
+                if (matcher.matches()) {
+                    profiles.put(matcher.group(1), matcher.group(2));
+                }
+            }
+
+            consumer = new JDepsConsumer();
+            consumer.consumeLine(line);
+
+            assertEquals(offendingPackages, consumer.getOffendingPackages(), line);
+            assertEquals(profiles, consumer.getProfiles(), line);
+        }
+    }
+
+    @Test
+    void namesAreShared() {
+        consumer = new JDepsConsumer();
+        consumer.consumeLine("a.jar -> jdk.unsupported");
+        consumer.consumeLine("   a    -> sun.misc    JDK internal API (jdk.unsupported)");
+        consumer.consumeLine("b.jar -> jdk.unsupported");
+        consumer.consumeLine("   b    -> sun.misc    JDK internal API (jdk.unsupported)");
+
+        String pkg = consumer.getOffendingPackages("a.jar").keySet().iterator().next();
+        assertSame(
+                pkg, consumer.getOffendingPackages("b.jar").keySet().iterator().next());
+        assertSame(
+                consumer.getOffendingPackages("a.jar").get(pkg),
+                consumer.getOffendingPackages("b.jar").get(pkg));
+    }
 }
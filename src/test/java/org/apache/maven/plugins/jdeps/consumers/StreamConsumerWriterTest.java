@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugins.jdeps.consumers;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamConsumerWriterTest {
+
+    @Test
+    void splitLines() {
+        List<String> lines = new ArrayList<>();
+
+        try (PrintWriter writer = new PrintWriter(new StreamConsumerWriter(lines::add))) {
+            writer.print("classes -> java.base\n   p.q");
+            writer.print("   -> java.lang\r\n");
+            writer.print("\r\n");
+            writer.print("last");
+        }
+
+        assertEquals(Arrays.asList("classes -> java.base", "   p.q   -> java.lang", "", "last"), lines);
+    }
+}